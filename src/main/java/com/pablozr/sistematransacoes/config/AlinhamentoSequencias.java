@@ -0,0 +1,77 @@
+package com.pablozr.sistematransacoes.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.sequence.SequenceSupport;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Migração dos ids IDENTITY para sequências: na subida, antes do servidor web aceitar requisições,
+ * garante que cada sequência entregue ids acima do maior id já gravado na tabela. Em bancos sem
+ * sequência (MySQL) o Hibernate usa uma tabela de uma linha com next_val, ajustada do mesmo jeito.
+ * Todas as instâncias precisam subir com a versão nova; uma instância antiga ainda usando
+ * auto_increment pode gerar ids dentro de um bloco já reservado.
+ */
+@Component
+public class AlinhamentoSequencias implements SmartInitializingSingleton {
+    private static final Logger log = LoggerFactory.getLogger(AlinhamentoSequencias.class);
+    private static final int ALOCACAO = 50; // Mesmo allocationSize dos @SequenceGenerator das entidades
+    private static final Map<String, String> SEQUENCIAS = Map.of(
+            "usuario", "usuario_seq",
+            "transacao", "transacao_seq",
+            "token_blacklist", "token_blacklist_seq",
+            "reset_password_token", "reset_password_token_seq",
+            "confirmacao_email_token", "confirmacao_email_token_seq",
+            "email_outbox", "email_outbox_seq",
+            "chave_idempotencia", "chave_idempotencia_seq",
+            "saldo_parcial", "saldo_parcial_seq");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final boolean ativo;
+
+    @Autowired
+    public AlinhamentoSequencias(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+                                 @Value("${jpa.sequencias.alinhar:true}") boolean ativo) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.ativo = ativo;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!ativo) {
+            return;
+        }
+        SequenceSupport suporte = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect().getSequenceSupport();
+        SEQUENCIAS.forEach((tabela, sequencia) -> alinhar(tabela, sequencia, suporte));
+    }
+
+    private void alinhar(String tabela, String sequencia, SequenceSupport suporte) {
+        long maiorId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from " + tabela, Long.class);
+        if (maiorId == 0) {
+            return;
+        }
+        // O otimizador pooled entrega o bloco (valor - ALOCACAO, valor]; o primeiro bloco após o ajuste começa em maiorId + 2
+        long inicio = maiorId + ALOCACAO + 1;
+        if (suporte.supportsSequences()) {
+            long atual = jdbcTemplate.queryForObject(suporte.getSequenceNextValString(sequencia), Long.class);
+            if (atual - ALOCACAO >= maiorId) {
+                return;
+            }
+            jdbcTemplate.execute("alter sequence " + sequencia + " restart with " + inicio);
+        } else if (jdbcTemplate.update("update " + sequencia + " set next_val = ? where next_val < ?", inicio, inicio) == 0) {
+            return;
+        }
+        log.info("Sequência {} ajustada para {} (maior id em {}: {})", sequencia, inicio, tabela, maiorId);
+    }
+}
@@ -0,0 +1,103 @@
+package com.pablozr.sistematransacoes.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Limita quantas conexões podem estar emprestadas ao mesmo tempo. Com threads virtuais não há mais
+ * o teto natural do pool do Tomcat, então milhares de requisições podem disputar o pool do Hikari;
+ * o semáforo (justo) as enfileira na frente do pool e desiste após a espera máxima.
+ */
+public class DataSourceLimitado extends DelegatingDataSource {
+    private final Semaphore permissoes;
+    private final long esperaMaximaMs;
+
+    public DataSourceLimitado(DataSource alvo, int maximoConexoes, long esperaMaximaMs) {
+        super(alvo);
+        this.permissoes = new Semaphore(maximoConexoes, true);
+        this.esperaMaximaMs = esperaMaximaMs;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        adquirir();
+        try {
+            return liberarAoFechar(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permissoes.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        adquirir();
+        try {
+            return liberarAoFechar(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permissoes.release();
+            throw e;
+        }
+    }
+
+    public int getPermissoesDisponiveis() {
+        return permissoes.availablePermits();
+    }
+
+    public int getAguardando() {
+        return permissoes.getQueueLength();
+    }
+
+    private void adquirir() throws SQLException {
+        try {
+            if (!permissoes.tryAcquire(esperaMaximaMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("Limite de conexões simultâneas com o banco atingido");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrompido aguardando conexão com o banco", e);
+        }
+    }
+
+    // A permissão volta no primeiro close da conexão, que devolve a conexão real ao pool; os seguintes não fazem nada.
+    // equals e hashCode ficam na identidade do proxy, como nos proxies de conexão do próprio Spring
+    private Connection liberarAoFechar(Connection conexao) {
+        AtomicBoolean fechada = new AtomicBoolean();
+        InvocationHandler handler = (proxy, metodo, argumentos) -> switch (metodo.getName()) {
+            case "equals" -> proxy == argumentos[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "close" -> {
+                if (!fechada.compareAndSet(false, true)) {
+                    yield null;
+                }
+                try {
+                    yield invocar(conexao, metodo, argumentos);
+                } finally {
+                    permissoes.release();
+                }
+            }
+            case "isClosed" -> fechada.get() || (Boolean) invocar(conexao, metodo, argumentos);
+            default -> invocar(conexao, metodo, argumentos);
+        };
+        return (Connection) Proxy.newProxyInstance(DataSourceLimitado.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    private static Object invocar(Connection conexao, Method metodo, Object[] argumentos) throws Throwable {
+        try {
+            return metodo.invoke(conexao, argumentos);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
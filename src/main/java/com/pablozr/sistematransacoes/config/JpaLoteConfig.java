@@ -0,0 +1,26 @@
+package com.pablozr.sistematransacoes.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Batching JDBC do Hibernate. Com ids vindos de sequências pooled (allocationSize 50) o Hibernate não
+ * precisa executar cada INSERT na hora para descobrir o id, então persist em sequência vira um único
+ * executeBatch no flush. No MySQL, rewriteBatchedStatements=true na URL junta o lote num só comando.
+ */
+@Configuration
+public class JpaLoteConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer batchingJdbc(@Value("${jpa.lote.tamanho:50}") int tamanhoLote) {
+        return propriedades -> {
+            propriedades.putIfAbsent(AvailableSettings.STATEMENT_BATCH_SIZE, tamanhoLote);
+            propriedades.putIfAbsent(AvailableSettings.ORDER_INSERTS, true);
+            propriedades.putIfAbsent(AvailableSettings.ORDER_UPDATES, true);
+            propriedades.putIfAbsent(AvailableSettings.BATCH_VERSIONED_DATA, true);
+        };
+    }
+}
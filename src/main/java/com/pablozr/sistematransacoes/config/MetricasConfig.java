@@ -0,0 +1,10 @@
+package com.pablozr.sistematransacoes.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+
+// Padrões de exposição e histogramas do actuator; qualquer propriedade da aplicação tem precedência
+@Configuration
+@PropertySource("classpath:metricas.properties")
+public class MetricasConfig {
+}
@@ -0,0 +1,76 @@
+package com.pablozr.sistematransacoes.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Leituras em réplicas, ligado com datasource.replicas.enabled=true e a lista de URLs em
+ * datasource.replicas.urls. O primário continua vindo de spring.datasource.* (inclusive
+ * spring.datasource.hikari.*); as réplicas copiam a configuração dele, com usuário e senha iguais.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replicas.enabled", havingValue = "true")
+public class ReplicasConfig {
+
+    @Bean(destroyMethod = "fechar")
+    public RoteadorReplicas roteadorReplicas(DataSourceProperties propriedades, Environment environment, MeterRegistry meterRegistry,
+                                             @Value("${datasource.replicas.urls}") List<String> urls,
+                                             @Value("${datasource.replicas.janela-leitura-propria-ms:5000}") long janelaLeituraPropriaMs,
+                                             @Value("${datasource.replicas.tempo-conexao-ms:1000}") long tempoConexaoMs) {
+        HikariDataSource primario = propriedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primario));
+        primario.setPoolName("primario");
+        primario.setMetricRegistry(meterRegistry);
+
+        List<HikariDataSource> replicas = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            HikariDataSource replica = new HikariDataSource();
+            primario.copyStateTo(replica);
+            replica.setJdbcUrl(url.trim());
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setConnectionTimeout(tempoConexaoMs); // Réplica lenta cai logo para a próxima ou para o primário
+            replica.setInitializationFailTimeout(-1); // Réplica fora do ar não impede a aplicação de subir
+            replicas.add(replica);
+        }
+        return new RoteadorReplicas(primario, replicas, Duration.ofMillis(janelaLeituraPropriaMs), meterRegistry);
+    }
+
+    // Substitui o DataSource do Spring Boot; o proxy adia a conexão até o readOnly da transação estar definido
+    @Bean
+    @Primary
+    public DataSource dataSource(RoteadorReplicas roteadorReplicas) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(roteadorReplicas.escrita());
+        proxy.setReadOnlyDataSource(roteadorReplicas.leitura());
+        return proxy;
+    }
+
+    // Infraestrutura para ser aplicado pelo mesmo auto-proxy das transações, sem depender de AspectJ
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor somenteLeituraAdvisor() {
+        ComposablePointcut pointcut = new ComposablePointcut(new AnnotationMatchingPointcut(SomenteLeitura.class, true))
+                .union(AnnotationMatchingPointcut.forMethodAnnotation(SomenteLeitura.class));
+        return new DefaultPointcutAdvisor(pointcut, RoteadorReplicas.interceptorSomenteLeitura());
+    }
+}
@@ -0,0 +1,227 @@
+package com.pablozr.sistematransacoes.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Escolhe a conexão de cada transação entre o primário e as réplicas. Fica atrás de um
+ * LazyConnectionDataSourceProxy, que só pede a conexão no primeiro comando, quando o readOnly
+ * da transação já é conhecido: transações readOnly usam {@link #leitura()}, o resto {@link #escrita()}.
+ * Só as transações abertas por métodos {@link SomenteLeitura} vão às réplicas; as consultas readOnly
+ * padrão do Spring Data (login, autenticação por JWT) continuam no primário.
+ * <p>
+ * Leituras giram entre as réplicas disponíveis; uma réplica que falha ao entregar conexão sai do
+ * rodízio até a próxima verificação, e sem nenhuma disponível a leitura vai ao primário. Depois de
+ * uma transação de escrita, as leituras do mesmo usuário ficam no primário durante a janela de
+ * leitura própria, que deve cobrir o atraso máximo de replicação.
+ */
+public class RoteadorReplicas {
+    private static final Logger log = LoggerFactory.getLogger(RoteadorReplicas.class);
+
+    private static final ThreadLocal<Boolean> LEITURA_EM_REPLICA = new ThreadLocal<>();
+
+    private final HikariDataSource primario;
+    private final List<Replica> replicas;
+    private final Cache<String, Boolean> escritasRecentes;
+    private final AtomicInteger proxima = new AtomicInteger();
+    private final DataSource escrita = new Escrita();
+    private final DataSource leitura = new Leitura();
+    private final Counter leiturasReplica;
+    private final Counter leiturasPropriasPrimario;
+    private final Counter leiturasSemReplica;
+
+    public RoteadorReplicas(HikariDataSource primario, List<HikariDataSource> replicas, Duration janelaLeituraPropria,
+                            MeterRegistry meterRegistry) {
+        this.primario = primario;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.escritasRecentes = Caffeine.newBuilder()
+                .expireAfterWrite(janelaLeituraPropria)
+                .maximumSize(1_000_000)
+                .build();
+        this.leiturasReplica = contador(meterRegistry, "replica");
+        this.leiturasPropriasPrimario = contador(meterRegistry, "primario-leitura-propria");
+        this.leiturasSemReplica = contador(meterRegistry, "primario-sem-replica");
+    }
+
+    private static Counter contador(MeterRegistry meterRegistry, String destino) {
+        return Counter.builder("db.leituras")
+                .description("Transações somente leitura por destino da conexão")
+                .tag("destino", destino)
+                .register(meterRegistry);
+    }
+
+    public DataSource escrita() {
+        return escrita;
+    }
+
+    public DataSource leitura() {
+        return leitura;
+    }
+
+    // Interceptor dos métodos SomenteLeitura; liberam a réplica para as transações que abrirem
+    static MethodInterceptor interceptorSomenteLeitura() {
+        return RoteadorReplicas::emLeituraDeReplica;
+    }
+
+    private static Object emLeituraDeReplica(MethodInvocation invocacao) throws Throwable {
+        Boolean anterior = LEITURA_EM_REPLICA.get();
+        LEITURA_EM_REPLICA.set(Boolean.TRUE);
+        try {
+            return invocacao.proceed();
+        } finally {
+            if (anterior == null) {
+                LEITURA_EM_REPLICA.remove();
+            } else {
+                LEITURA_EM_REPLICA.set(anterior);
+            }
+        }
+    }
+
+    public int replicasDisponiveis() {
+        return (int) replicas.stream().filter(replica -> replica.disponivel).count();
+    }
+
+    // Devolve ao rodízio as réplicas que voltaram e tira as que pararam de responder
+    @Scheduled(fixedDelayString = "${datasource.replicas.verificacao-ms:5000}")
+    public void verificar() {
+        for (Replica replica : replicas) {
+            boolean disponivel;
+            try (Connection conexao = replica.dataSource.getConnection()) {
+                disponivel = conexao.isValid(1);
+            } catch (SQLException | RuntimeException e) {
+                disponivel = false;
+            }
+            if (disponivel != replica.disponivel) {
+                log.info("Réplica {} {}", replica.dataSource.getPoolName(), disponivel ? "voltou ao rodízio" : "saiu do rodízio");
+            }
+            replica.disponivel = disponivel;
+        }
+    }
+
+    public void fechar() {
+        replicas.forEach(replica -> replica.dataSource.close());
+        primario.close();
+    }
+
+    private Connection conexaoDeLeitura() throws SQLException {
+        if (LEITURA_EM_REPLICA.get() == null) {
+            return primario.getConnection();
+        }
+        String usuario = usuarioAtual();
+        if (usuario != null && escritasRecentes.getIfPresent(usuario) != null) {
+            leiturasPropriasPrimario.increment();
+            return primario.getConnection();
+        }
+        int inicio = Math.floorMod(proxima.getAndIncrement(), Math.max(1, replicas.size()));
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((inicio + i) % replicas.size());
+            if (!replica.disponivel) {
+                continue;
+            }
+            try {
+                Connection conexao = replica.dataSource.getConnection();
+                leiturasReplica.increment();
+                return conexao;
+            } catch (SQLException | RuntimeException e) {
+                replica.disponivel = false;
+                log.warn("Réplica {} indisponível, tentando a próxima", replica.dataSource.getPoolName(), e);
+            }
+        }
+        leiturasSemReplica.increment();
+        return primario.getConnection();
+    }
+
+    // Para escritas confirmadas fora da thread da requisição (group commit de depósitos), que não têm
+    // SecurityContext: quem esperou o commit marca o próprio usuário
+    public void registrarEscritaPropria() {
+        String usuario = usuarioAtual();
+        if (usuario != null) {
+            escritasRecentes.put(usuario, Boolean.TRUE);
+        }
+    }
+
+    // Marca o usuário no início e de novo no fim da transação, para a janela contar a partir do commit
+    private void registrarEscrita() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return;
+        }
+        String usuario = usuarioAtual();
+        if (usuario == null) {
+            return;
+        }
+        escritasRecentes.put(usuario, Boolean.TRUE);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    escritasRecentes.put(usuario, Boolean.TRUE);
+                }
+            });
+        }
+    }
+
+    private String usuarioAtual() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || auth instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return auth.getName();
+    }
+
+    private static final class Replica {
+        private final HikariDataSource dataSource;
+        private volatile boolean disponivel = true;
+
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+
+    private final class Escrita extends AbstractDataSource {
+        @Override
+        public Connection getConnection() throws SQLException {
+            registrarEscrita();
+            return primario.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            registrarEscrita();
+            return primario.getConnection(username, password);
+        }
+    }
+
+    private final class Leitura extends AbstractDataSource {
+        @Override
+        public Connection getConnection() throws SQLException {
+            return conexaoDeLeitura();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return conexaoDeLeitura();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.pablozr.sistematransacoes.config;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Transação só de leitura. Com réplicas configuradas (datasource.replicas.enabled) a conexão vem de
+ * uma réplica, a menos que o usuário autenticado tenha escrito há pouco; sem réplicas vai ao primário.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Transactional(readOnly = true)
+public @interface SomenteLeitura {
+}
@@ -0,0 +1,46 @@
+package com.pablozr.sistematransacoes.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Ajustes do modo spring.threads.virtual.enabled=true. Nesse modo o Spring Boot já atende as requisições
+ * do Tomcat, o @Async e o @Scheduled em threads virtuais; aqui só se coloca o semáforo na frente do pool.
+ * Com as réplicas ligadas os pools são criados pelo RoteadorReplicas, fora do contexto, e cada um
+ * conta só com o connectionTimeout do próprio Hikari.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class ThreadsVirtuaisConfig {
+
+    // Estático porque o post-processor precisa existir antes dos demais beans da configuração
+    @Bean
+    public static BeanPostProcessor limitadorDeConexoes(Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // Só o pool em si: proxies como o das réplicas juntam vários pools e um teto único os estrangularia
+                if (!(bean instanceof HikariDataSource hikari)) {
+                    return bean;
+                }
+                // Sem valor explícito o limite acompanha o tamanho do pool, então ninguém espera dentro do Hikari
+                int maximo = environment.getProperty("db.concorrencia.maximo", Integer.class, hikari.getMaximumPoolSize());
+                long esperaMaximaMs = environment.getProperty("db.concorrencia.espera-maxima-ms", Long.class, 5000L);
+                DataSourceLimitado limitado = new DataSourceLimitado(hikari, maximo, esperaMaximaMs);
+                meterRegistry.ifAvailable(registro ->
+                        Gauge.builder("db.concorrencia.aguardando", limitado, DataSourceLimitado::getAguardando)
+                                .description("Threads esperando permissão para pegar uma conexão")
+                                .register(registro));
+                return limitado;
+            }
+        };
+    }
+}
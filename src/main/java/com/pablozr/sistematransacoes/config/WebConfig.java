@@ -1,21 +1,51 @@
 package com.pablozr.sistematransacoes.config;
 
+import com.pablozr.sistematransacoes.enums.FormatoExportacao;
 import com.pablozr.sistematransacoes.security.CurrentUserArgumentResolver;
+import com.pablozr.sistematransacoes.security.LimiteTaxaInterceptor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.format.FormatterRegistry;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.util.List;
 
 @Configuration
+@PropertySource("classpath:limite-taxa.properties")
 public class WebConfig implements WebMvcConfigurer {
 
     private final CurrentUserArgumentResolver currentUserArgumentResolver;
+    private final LimiteTaxaInterceptor limiteTaxaInterceptor;
+    private final long timeoutAsyncMs;
 
     @Autowired
-    public WebConfig(CurrentUserArgumentResolver currentUserArgumentResolver) {
+    public WebConfig(CurrentUserArgumentResolver currentUserArgumentResolver, LimiteTaxaInterceptor limiteTaxaInterceptor,
+                     @Value("${transacoes.exportacao.timeout-ms:1800000}") long timeoutAsyncMs) {
         this.currentUserArgumentResolver = currentUserArgumentResolver;
+        this.limiteTaxaInterceptor = limiteTaxaInterceptor;
+        this.timeoutAsyncMs = timeoutAsyncMs;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(limiteTaxaInterceptor).addPathPatterns("/api/transacoes/**");
+    }
+
+    // A exportação do histórico roda como resposta assíncrona e pode levar bem mais que o timeout padrão do servidor
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(timeoutAsyncMs);
+    }
+
+    // O conversor padrão de enums diferencia maiúsculas e recusaria o ?format=csv documentado
+    @Override
+    public void addFormatters(FormatterRegistry registry) {
+        registry.addConverter(String.class, FormatoExportacao.class, FormatoExportacao::de);
     }
 
     @Override
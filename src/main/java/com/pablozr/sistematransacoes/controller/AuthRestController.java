@@ -11,9 +11,6 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.mail.MailAuthenticationException;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
@@ -24,12 +21,10 @@ import java.net.URI;
 @RequestMapping("/api/auth")
 public class AuthRestController {
     private final UsuarioService usuarioService;
-    private final JavaMailSender mailSender;
 
     @Autowired
-    public AuthRestController(UsuarioService usuarioService, JavaMailSender mailSender){
+    public AuthRestController(UsuarioService usuarioService){
         this.usuarioService = usuarioService;
-        this.mailSender = mailSender;
     }
 
     @PostMapping("/login")
@@ -59,8 +54,7 @@ public class AuthRestController {
         usuario.setSaldo(BigDecimal.ZERO);
         Usuario usuarioSalvo = usuarioService.salvarUsuario(usuario);
 
-        String token = usuarioService.gerarTokenConfirmacaoEmail(usuarioSalvo.getEmail());
-        enviarEmailConfirmacao(usuarioSalvo.getEmail(), token);
+        usuarioService.gerarTokenConfirmacaoEmail(usuarioSalvo.getEmail()); // O email sai pela caixa de saída, fora da requisição
 
         return ResponseEntity.created(URI.create("/usuarios/" + usuarioSalvo.getId()))
                 .body(new UsuarioDTOOut(
@@ -83,21 +77,6 @@ public class AuthRestController {
         return ResponseEntity.ok().build();
     }
 
-    private void enviarEmailConfirmacao(String email, String token) {
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setTo(email);
-            message.setSubject("Confirmação de Email - Banco Digital");
-            message.setText("Confirme seu email com este token: " + token + "\nVálido por 24 horas.");
-            mailSender.send(message);
-        } catch (MailAuthenticationException e) {
-            throw new RuntimeException("Falha na autenticação de email: " + e.getMessage());
-        } catch (Exception e) {
-            throw new RuntimeException("Erro ao enviar email de confirmação: " + e.getMessage());
-        }
-    }
-
-
     @PutMapping("/profile")
     @PreAuthorize("hasRole('USER')")
     @Operation(summary = "Atualiza o perfil do usuário autenticado (API)", description = "Permite ao usuário autenticado atualizar seus dados")
@@ -112,7 +91,8 @@ public class AuthRestController {
         usuarioAtualizado.setNome(usuarioDTO.getNome());
         usuarioAtualizado.setEmail(usuarioDTO.getEmail());
         Usuario atualizado = usuarioService.atualizarUsuario(usuario.getId(), usuarioAtualizado);
-        return ResponseEntity.ok(new UsuarioDTOOut(atualizado.getId(), atualizado.getNome(), atualizado.getEmail(), atualizado.getSaldo()));
+        return ResponseEntity.ok(new UsuarioDTOOut(atualizado.getId(), atualizado.getNome(), atualizado.getEmail(),
+                usuarioService.saldoAtual(atualizado), atualizado.getDataCriacao()));
     }
 
     @GetMapping("/profile")
@@ -123,7 +103,8 @@ public class AuthRestController {
             @ApiResponse(responseCode = "403", description = "Acesso negado")
     })
     public ResponseEntity<UsuarioDTOOut> getPerfil(@CurrentUser Usuario usuario) {
-        return ResponseEntity.ok(new UsuarioDTOOut(usuario.getId(), usuario.getNome(), usuario.getEmail(), usuario.getSaldo()));
+        return ResponseEntity.ok(new UsuarioDTOOut(usuario.getId(), usuario.getNome(), usuario.getEmail(),
+                usuarioService.saldoAtual(usuario), usuario.getDataCriacao()));
     }
 
     @PostMapping("/logout")
@@ -151,19 +132,8 @@ public class AuthRestController {
             @ApiResponse(responseCode = "404", description = "Usuário não encontrado")
     })
     public ResponseEntity<Void> forgotPassword(@RequestBody @Valid ForgotPasswordDTO dto) {
-        try {
-            String token = usuarioService.gerarTokenResetSenha(dto.getEmail());
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setTo(dto.getEmail());
-            message.setSubject("Redefinição de Senha - Banco Digital");
-            message.setText("Use este token para redefinir sua senha: " + token + "\nVálido por 30 minutos.");
-            mailSender.send(message);
-            return ResponseEntity.accepted().build();
-        } catch (MailAuthenticationException e) {
-            throw new RuntimeException("Falha na autenticação de email: " + e.getMessage());
-        } catch (Exception e) {
-            throw new RuntimeException("Erro ao enviar email: " + e.getMessage());
-        }
+        usuarioService.gerarTokenResetSenha(dto.getEmail());
+        return ResponseEntity.accepted().build();
     }
 
     @PostMapping("/reset-password")
@@ -0,0 +1,40 @@
+package com.pablozr.sistematransacoes.controller;
+
+import com.pablozr.sistematransacoes.controller.dto.ReconstrucaoLivroRazaoDTOOut;
+import com.pablozr.sistematransacoes.service.LivroRazaoService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/livro-razao")
+public class LivroRazaoController {
+
+    private final LivroRazaoService livroRazaoService;
+
+    @Autowired
+    public LivroRazaoController(LivroRazaoService livroRazaoService) {
+        this.livroRazaoService = livroRazaoService;
+    }
+
+    @PostMapping("/reconstrucao")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Reconstrói os checkpoints do livro razão", description = "Recalcula o saldo consolidado de todas as contas a partir dos lançamentos e informa as divergências encontradas, restrito a administradores")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Checkpoints reconstruídos"),
+            @ApiResponse(responseCode = "403", description = "Acesso negado (somente administradores)"),
+            @ApiResponse(responseCode = "409", description = "Modo livro razão desligado"),
+            @ApiResponse(responseCode = "500", description = "Erro interno no servidor")
+    })
+    public ResponseEntity<ReconstrucaoLivroRazaoDTOOut> reconstruir() {
+        if (!livroRazaoService.isAtivo()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.ok(livroRazaoService.reconstruir());
+    }
+}
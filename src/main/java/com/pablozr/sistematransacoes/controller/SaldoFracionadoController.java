@@ -0,0 +1,43 @@
+package com.pablozr.sistematransacoes.controller;
+
+import com.pablozr.sistematransacoes.service.SaldoFracionadoService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/contas")
+public class SaldoFracionadoController {
+
+    private final SaldoFracionadoService saldoFracionadoService;
+
+    @Autowired
+    public SaldoFracionadoController(SaldoFracionadoService saldoFracionadoService) {
+        this.saldoFracionadoService = saldoFracionadoService;
+    }
+
+    @PutMapping("/{id}/fatias")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Define as fatias de saldo de uma conta quente", description = "Divide o saldo da conta em N fatias para que créditos simultâneos não disputem a mesma linha; 0 ou 1 desmarca a conta, restrito a administradores")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Fatias redefinidas"),
+            @ApiResponse(responseCode = "403", description = "Acesso negado (somente administradores)"),
+            @ApiResponse(responseCode = "404", description = "Usuário não encontrado"),
+            @ApiResponse(responseCode = "409", description = "LedgerEngine ou livro razão ligado"),
+            @ApiResponse(responseCode = "500", description = "Erro interno no servidor")
+    })
+    public ResponseEntity<Void> redefinirFatias(@PathVariable Long id,
+                                                @Parameter(description = "Quantidade de fatias") @RequestParam int quantidade) {
+        if (!saldoFracionadoService.isDisponivel()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        saldoFracionadoService.redefinirFatias(id, quantidade);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,13 +1,22 @@
 package com.pablozr.sistematransacoes.controller;
 
 import com.pablozr.sistematransacoes.controller.dto.DepositoDTOIn;
+import com.pablozr.sistematransacoes.controller.dto.LoteTransferenciaDTOIn;
+import com.pablozr.sistematransacoes.controller.dto.LoteTransferenciaDTOOut;
+import com.pablozr.sistematransacoes.controller.dto.PaginaCursorDTOOut;
 import com.pablozr.sistematransacoes.controller.dto.TransacaoDTOIn;
 import com.pablozr.sistematransacoes.controller.dto.TransacaoDTOOut;
+import com.pablozr.sistematransacoes.enums.FormatoExportacao;
 import com.pablozr.sistematransacoes.enums.TipoTransacao;
 import com.pablozr.sistematransacoes.exception.UsuarioNaoEncontradoException;
-import com.pablozr.sistematransacoes.model.Transacao;
 import com.pablozr.sistematransacoes.model.Usuario;
 import com.pablozr.sistematransacoes.security.CurrentUser;
+import com.pablozr.sistematransacoes.security.LimiteTaxa;
+import com.pablozr.sistematransacoes.security.UsuarioSnapshot;
+import com.pablozr.sistematransacoes.service.DepositoAgrupadoService;
+import com.pablozr.sistematransacoes.service.ExportacaoService;
+import com.pablozr.sistematransacoes.service.IdempotenciaService;
+import com.pablozr.sistematransacoes.service.MetricasTransacoes;
 import com.pablozr.sistematransacoes.service.TransacaoService;
 import com.pablozr.sistematransacoes.service.UsuarioService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -17,9 +26,12 @@ import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -30,62 +42,126 @@ import java.util.stream.Collectors;
 public class TransacaoController {
     private final TransacaoService transacaoService;
     private final UsuarioService usuarioService;
+    private final IdempotenciaService idempotenciaService;
+    private final ExportacaoService exportacaoService;
+    private final MetricasTransacoes metricasTransacoes;
+    private final DepositoAgrupadoService depositoAgrupadoService;
 
     @Autowired
-    public TransacaoController(TransacaoService transacaoService, UsuarioService usuarioService){
+    public TransacaoController(TransacaoService transacaoService, UsuarioService usuarioService, IdempotenciaService idempotenciaService,
+                               ExportacaoService exportacaoService, MetricasTransacoes metricasTransacoes,
+                               DepositoAgrupadoService depositoAgrupadoService){
         this.transacaoService = transacaoService;
         this.usuarioService = usuarioService;
+        this.idempotenciaService = idempotenciaService;
+        this.exportacaoService = exportacaoService;
+        this.metricasTransacoes = metricasTransacoes;
+        this.depositoAgrupadoService = depositoAgrupadoService;
     }
 
     @PostMapping("/deposito")
+    @LimiteTaxa("deposito")
     @PreAuthorize("hasRole('USER')")
-    @Operation(summary = "Realiza um depósito na conta do usuário autenticado")
+    @Operation(summary = "Realiza um depósito na conta do usuário autenticado",
+            description = "Com o header Idempotency-Key, repetições com a mesma chave devolvem o resultado original sem novo depósito")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Depósito realizado com sucesso"),
             @ApiResponse(responseCode = "400", description = "Valor inválido"),
-            @ApiResponse(responseCode = "403", description = "Acesso negado")
+            @ApiResponse(responseCode = "403", description = "Acesso negado"),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key já usada com outro corpo"),
+            @ApiResponse(responseCode = "429", description = "Fila de depósitos cheia (modo agrupado)")
     })
-    public ResponseEntity<TransacaoDTOOut> depositar(@Valid @RequestBody DepositoDTOIn DepositoDTO, @CurrentUser Usuario usuario){
-        Transacao transacao = transacaoService.deposito(usuario, DepositoDTO.getValor());
-        return ResponseEntity.ok(converterParaDTO(transacao));
+    public ResponseEntity<TransacaoDTOOut> depositar(@Valid @RequestBody DepositoDTOIn DepositoDTO, @CurrentUser Usuario usuario,
+                                                     @RequestHeader(value = "Idempotency-Key", required = false) String chaveIdempotencia){
+        // Com Idempotency-Key o depósito precisa ser gravado na mesma transação da chave, então não entra no group commit
+        boolean agrupado = chaveIdempotencia == null && depositoAgrupadoService.isAtivo();
+        return ResponseEntity.ok(metricasTransacoes.medir("deposito", () -> idempotenciaService.executar(usuario.getId(), chaveIdempotencia,
+                "deposito", DepositoDTO, () -> TransacaoDTOOut.de(agrupado
+                        ? depositoAgrupadoService.depositar(usuario, DepositoDTO.getValor())
+                        : transacaoService.deposito(usuario, DepositoDTO.getValor())))));
     }
     @PostMapping("/transferencia")
+    @LimiteTaxa("transferencia")
     @PreAuthorize("hasRole('USER')")
-    @Operation(summary = "Realiza uma transferência entre o usuário autenticado e outro usuário")
+    @Operation(summary = "Realiza uma transferência entre o usuário autenticado e outro usuário",
+            description = "Com o header Idempotency-Key, repetições com a mesma chave devolvem o resultado original sem nova transferência")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Transferência realizada com sucesso"),
             @ApiResponse(responseCode = "400", description = "Valor inválido ou saldo insuficiente"),
             @ApiResponse(responseCode = "403", description = "Acesso negado"),
-            @ApiResponse(responseCode = "404", description = "Destinatário não encontrado")
+            @ApiResponse(responseCode = "404", description = "Destinatário não encontrado"),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key já usada com outro corpo")
     })
-    public ResponseEntity<TransacaoDTOOut> transferir(@Valid @RequestBody TransacaoDTOIn transferenciaDTO, @CurrentUser Usuario remetente){
-        Usuario destinatario = usuarioService.buscarPorId(transferenciaDTO.getDestinatarioId())
-                .orElseThrow(() -> new UsuarioNaoEncontradoException("Destinatário não encontrado"));
-        Transacao transacao = transacaoService.tranferencia(remetente, destinatario, transferenciaDTO.getValor());
-        return ResponseEntity.ok(converterParaDTO(transacao));
+    public ResponseEntity<TransacaoDTOOut> transferir(@Valid @RequestBody TransacaoDTOIn transferenciaDTO, @CurrentUser Usuario remetente,
+                                                      @RequestHeader(value = "Idempotency-Key", required = false) String chaveIdempotencia){
+        return ResponseEntity.ok(metricasTransacoes.medir("transferencia", () -> idempotenciaService.executar(remetente.getId(), chaveIdempotencia,
+                "transferencia", transferenciaDTO, () -> {
+            Usuario destinatario = usuarioService.buscarPorId(transferenciaDTO.getDestinatarioId())
+                    .orElseThrow(() -> new UsuarioNaoEncontradoException("Destinatário não encontrado"));
+            return TransacaoDTOOut.de(transacaoService.tranferencia(remetente, destinatario, transferenciaDTO.getValor()));
+        })));
+    }
+
+    @PostMapping("/lote")
+    @LimiteTaxa("lote")
+    @PreAuthorize("hasRole('USER')")
+    @Operation(summary = "Realiza várias transferências do usuário autenticado como uma única operação",
+            description = "O total das pernas válidas é debitado de uma só vez; pernas inválidas são rejeitadas individualmente")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Lote processado, com o resultado de cada perna"),
+            @ApiResponse(responseCode = "400", description = "Lote vazio ou saldo insuficiente para o total"),
+            @ApiResponse(responseCode = "403", description = "Acesso negado")
+    })
+    public ResponseEntity<LoteTransferenciaDTOOut> transferirEmLote(@Valid @RequestBody LoteTransferenciaDTOIn loteDTO, @CurrentUser Usuario remetente){
+        return ResponseEntity.ok(metricasTransacoes.medir("lote", () -> transacaoService.transferenciaEmLote(remetente, loteDTO.getTransferencias())));
     }
 
     @GetMapping
+    @LimiteTaxa("listagem")
     @PreAuthorize("hasRole('USER')")
-    @Operation(summary = "Lista todas as transações do usuário autenticado")
+    @Operation(summary = "Lista todas as transações do usuário autenticado",
+            description = "Com o histórico arquivado, ordenações por dataTransacao e id paginam sem limite; ordenações por valor ou tipo"
+                    + " só alcançam as primeiras transacao.arquivo.limite-intercalado (padrão 1000) transações")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Lista de transações retornada"),
+            @ApiResponse(responseCode = "400", description = "Ordenação não suportada ou página funda demais para ordenar por valor ou tipo com o arquivo"),
+            @ApiResponse(responseCode = "403", description = "Acesso negado")
+    })
+    public ResponseEntity<Page<TransacaoDTOOut>> listarTransacoes(@CurrentUser UsuarioSnapshot usuario, Pageable pageable, TipoTransacao tipo, LocalDateTime dataInicio, LocalDateTime dataFim) {
+        return ResponseEntity.ok(transacaoService.listarTransacoes(usuario.getId(), pageable, tipo, dataInicio, dataFim));
+    }
+
+    @GetMapping(params = "cursor")
+    @LimiteTaxa("listagem")
+    @PreAuthorize("hasRole('USER')")
+    @Operation(summary = "Lista as transações do usuário autenticado por cursor",
+            description = "Ordena por data e id decrescentes, sem contagem total. Envie cursor vazio na primeira página e depois o proximoCursor recebido")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Página de transações retornada"),
             @ApiResponse(responseCode = "403", description = "Acesso negado")
     })
-    public ResponseEntity<Page<TransacaoDTOOut>> listarTransacoes(@CurrentUser Usuario usuario, Pageable pageable, TipoTransacao tipo, LocalDateTime dataInicio, LocalDateTime dataFim) {
-        return ResponseEntity.ok(transacaoService.listarTransacoes(usuario, pageable, tipo, dataInicio, dataFim).map(this::converterParaDTO));
+    public ResponseEntity<PaginaCursorDTOOut<TransacaoDTOOut>> listarTransacoesPorCursor(@CurrentUser UsuarioSnapshot usuario, @RequestParam String cursor,
+                                                                                       @RequestParam(defaultValue = "20") int tamanho,
+                                                                                       TipoTransacao tipo, LocalDateTime dataInicio, LocalDateTime dataFim) {
+        return ResponseEntity.ok(transacaoService.listarTransacoesPorCursor(usuario.getId(), cursor, tamanho, tipo, dataInicio, dataFim));
     }
 
-    private TransacaoDTOOut converterParaDTO(Transacao transacao) {
-        return new TransacaoDTOOut(
-                transacao.getId(),
-                transacao.getTipo(),
-                transacao.getValor(),
-                transacao.getDataTransacao(),
-                transacao.getUsuario().getId(),
-                transacao.getDestinatario() != null ? transacao.getDestinatario().getId() : null, // Long para destinatarioId
-                transacao.getUsuario().getNome(),
-                transacao.getDestinatario() != null ? transacao.getDestinatario().getNome() : null // String para destinatarioNome
-        );
+    @GetMapping("/export")
+    @LimiteTaxa("exportacao")
+    @PreAuthorize("hasRole('USER')")
+    @Operation(summary = "Exporta o histórico completo do usuário autenticado",
+            description = "Transmite todas as transações em CSV ou NDJSON sem paginação, respeitando os filtros de tipo e data")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Histórico transmitido"),
+            @ApiResponse(responseCode = "403", description = "Acesso negado")
+    })
+    public ResponseEntity<StreamingResponseBody> exportarTransacoes(@CurrentUser UsuarioSnapshot usuario,
+                                                                    @RequestParam(defaultValue = "csv") FormatoExportacao format,
+                                                                    TipoTransacao tipo, LocalDateTime dataInicio, LocalDateTime dataFim) {
+        StreamingResponseBody corpo = saida -> exportacaoService.exportar(usuario.getId(), format, tipo, dataInicio, dataFim, saida);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=transacoes." + format.getExtensao())
+                .body(corpo);
     }
 }
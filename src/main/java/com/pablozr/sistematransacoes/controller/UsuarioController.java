@@ -67,6 +67,7 @@ public class UsuarioController {
             @ApiResponse(responseCode = "204", description = "Usuário deletado com sucesso"),
             @ApiResponse(responseCode = "403", description = "Acesso negado (somente administradores)"),
             @ApiResponse(responseCode = "404", description = "Usuário não encontrado"),
+            @ApiResponse(responseCode = "409", description = "Conta com saldo nas fatias de conta quente"),
             @ApiResponse(responseCode = "500", description = "Erro interno no servidor")
     })
     public ResponseEntity<Void> deletarUsuario(@PathVariable Long id){
@@ -75,7 +76,8 @@ public class UsuarioController {
     }
 
     private UsuarioDTOOut converterParaDTO(Usuario usuario) {
-        return new UsuarioDTOOut(usuario.getId(), usuario.getNome(), usuario.getEmail(), usuario.getSaldo(), usuario.getDataCriacao());
+        return new UsuarioDTOOut(usuario.getId(), usuario.getNome(), usuario.getEmail(),
+                usuarioService.saldoAtual(usuario), usuario.getDataCriacao());
     }
 
 }
@@ -0,0 +1,17 @@
+package com.pablozr.sistematransacoes.controller.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class LoteTransferenciaDTOIn {
+    // As pernas são validadas uma a uma no serviço, para que uma perna inválida não derrube o lote inteiro
+    @NotEmpty(message = "O lote deve ter pelo menos uma transferência")
+    @Size(max = 10000, message = "O lote pode ter no máximo 10000 transferências")
+    private List<TransacaoDTOIn> transferencias;
+}
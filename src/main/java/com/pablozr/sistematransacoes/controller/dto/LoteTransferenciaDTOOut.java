@@ -0,0 +1,16 @@
+package com.pablozr.sistematransacoes.controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class LoteTransferenciaDTOOut {
+    private int concluidas;
+    private int rejeitadas;
+    private BigDecimal totalDebitado;
+    private List<PernaLoteDTOOut> pernas;
+}
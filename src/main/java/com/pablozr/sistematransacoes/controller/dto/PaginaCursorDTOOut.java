@@ -0,0 +1,13 @@
+package com.pablozr.sistematransacoes.controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class PaginaCursorDTOOut<T> {
+    private List<T> conteudo;
+    private String proximoCursor; // null quando não há mais itens
+}
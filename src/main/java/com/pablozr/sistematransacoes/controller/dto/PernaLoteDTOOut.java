@@ -0,0 +1,18 @@
+package com.pablozr.sistematransacoes.controller.dto;
+
+import com.pablozr.sistematransacoes.enums.StatusPernaLote;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+@Getter
+@AllArgsConstructor
+public class PernaLoteDTOOut {
+    private int indice;
+    private Long destinatarioId;
+    private BigDecimal valor;
+    private StatusPernaLote status;
+    private Long transacaoId;
+    private String mensagem;
+}
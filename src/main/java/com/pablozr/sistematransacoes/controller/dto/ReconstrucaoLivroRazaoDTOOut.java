@@ -0,0 +1,16 @@
+package com.pablozr.sistematransacoes.controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+@Getter
+@AllArgsConstructor
+public class ReconstrucaoLivroRazaoDTOOut {
+    private int contas;
+    private long lancamentos;
+    private long ultimoLancamentoId;
+    private BigDecimal somaGeral; // Zero quando todas as transações têm as duas pernas
+    private int contasDivergentes; // Contas cujo checkpoint anterior não batia com os lançamentos
+}
@@ -1,8 +1,10 @@
 package com.pablozr.sistematransacoes.controller.dto;
 
 import com.pablozr.sistematransacoes.enums.TipoTransacao;
+import com.pablozr.sistematransacoes.model.Transacao;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.math.BigDecimal;
@@ -11,6 +13,7 @@ import java.time.LocalDateTime;
 @Getter
 @Setter
 @AllArgsConstructor
+@NoArgsConstructor
 public class TransacaoDTOOut {
     private Long id;
     private TipoTransacao tipo;
@@ -20,4 +23,17 @@ public class TransacaoDTOOut {
     private Long destinatarioId;
     private String usuarioNome;
     private String destinatarioNome;
+
+    public static TransacaoDTOOut de(Transacao transacao) {
+        return new TransacaoDTOOut(
+                transacao.getId(),
+                transacao.getTipo(),
+                transacao.getValor(),
+                transacao.getDataTransacao(),
+                transacao.getUsuario().getId(),
+                transacao.getDestinatario() != null ? transacao.getDestinatario().getId() : null, // Long para destinatarioId
+                transacao.getUsuario().getNome(),
+                transacao.getDestinatario() != null ? transacao.getDestinatario().getNome() : null // String para destinatarioNome
+        );
+    }
 }
@@ -0,0 +1,24 @@
+package com.pablozr.sistematransacoes.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public enum FormatoExportacao {
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extensao;
+
+    // Conversão do parâmetro ?format=, sem diferenciar maiúsculas (csv, CSV, ndjson...)
+    public static FormatoExportacao de(String valor) {
+        for (FormatoExportacao formato : values()) {
+            if (formato.extensao.equalsIgnoreCase(valor.trim())) {
+                return formato;
+            }
+        }
+        throw new IllegalArgumentException("Formato de exportação inválido: " + valor + " (use csv ou ndjson)");
+    }
+}
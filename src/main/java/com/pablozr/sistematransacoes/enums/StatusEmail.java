@@ -0,0 +1,8 @@
+package com.pablozr.sistematransacoes.enums;
+
+public enum StatusEmail {
+    PENDENTE,
+    EM_ENVIO,
+    ENVIADO,
+    FALHA
+}
@@ -0,0 +1,6 @@
+package com.pablozr.sistematransacoes.enums;
+
+public enum StatusPernaLote {
+    CONCLUIDA,
+    REJEITADA
+}
@@ -0,0 +1,8 @@
+package com.pablozr.sistematransacoes.exception;
+
+// Idempotency-Key já usada em outra operação ou com outro corpo; vira 422
+public class ChaveIdempotenciaReutilizadaException extends RuntimeException {
+    public ChaveIdempotenciaReutilizadaException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.pablozr.sistematransacoes.exception;
+
+// A conta ainda guarda dinheiro e não pode ser removida; vira 409
+public class ContaComSaldoException extends RuntimeException {
+    public ContaComSaldoException(String message) {
+        super(message);
+    }
+}
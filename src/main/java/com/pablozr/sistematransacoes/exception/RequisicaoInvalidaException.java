@@ -0,0 +1,8 @@
+package com.pablozr.sistematransacoes.exception;
+
+// Parâmetro ou header malformado enviado pelo cliente (cursor, Idempotency-Key); vira 400
+public class RequisicaoInvalidaException extends RuntimeException {
+    public RequisicaoInvalidaException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.pablozr.sistematransacoes.exception;
+
+// Recurso local saturado; retryAfterSegundos vai no header Retry-After da resposta 429
+public class SobrecargaException extends RuntimeException {
+    private final long retryAfterSegundos;
+
+    public SobrecargaException(String message, long retryAfterSegundos) {
+        super(message);
+        this.retryAfterSegundos = retryAfterSegundos;
+    }
+
+    public long getRetryAfterSegundos() {
+        return retryAfterSegundos;
+    }
+}
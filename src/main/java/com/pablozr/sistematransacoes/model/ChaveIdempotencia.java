@@ -0,0 +1,35 @@
+package com.pablozr.sistematransacoes.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Getter
+@Setter
+@Table(name = "chave_idempotencia", uniqueConstraints =
+        @UniqueConstraint(name = "uk_chave_idempotencia_usuario_chave", columnNames = {"usuario_id", "chave"}),
+        indexes = @Index(name = "idx_chave_idempotencia_data_criacao", columnList = "data_criacao"))
+public class ChaveIdempotencia {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chave_idempotencia_seq")
+    @SequenceGenerator(name = "chave_idempotencia_seq", sequenceName = "chave_idempotencia_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "usuario_id", nullable = false)
+    private Long usuarioId;
+
+    @Column(nullable = false, length = 100)
+    private String chave;
+
+    @Column(nullable = false, length = 64)
+    private String impressaoDigital; // SHA-256 da operação e do corpo da requisição original
+
+    @Column(nullable = false, length = 2000)
+    private String resposta; // TransacaoDTOOut serializado, devolvido nas repetições
+
+    @Column(nullable = false)
+    private LocalDateTime dataCriacao;
+}
@@ -0,0 +1,28 @@
+package com.pablozr.sistematransacoes.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Saldo consolidado de uma conta até ultimoLancamentoId; o saldo atual soma os lançamentos seguintes
+@Entity
+@Getter
+@Setter
+@Table(name = "checkpoint_saldo")
+public class CheckpointSaldo {
+    @Id
+    @Column(name = "conta_id")
+    private Long contaId;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal saldo;
+
+    @Column(name = "ultimo_lancamento_id", nullable = false)
+    private Long ultimoLancamentoId;
+
+    @Column(nullable = false)
+    private LocalDateTime dataCheckpoint;
+}
@@ -9,9 +9,12 @@ import java.time.LocalDateTime;
 @Entity
 @Getter
 @Setter
+@Table(name = "confirmacao_email_token", indexes =
+        @Index(name = "idx_confirmacao_email_token_expiry_date", columnList = "expiry_date"))
 public class ConfirmacaoEmailToken {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "confirmacao_email_token_seq")
+    @SequenceGenerator(name = "confirmacao_email_token_seq", sequenceName = "confirmacao_email_token_seq", allocationSize = 50)
     private long id;
 
     private String token;
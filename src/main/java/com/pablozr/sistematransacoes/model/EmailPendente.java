@@ -0,0 +1,53 @@
+package com.pablozr.sistematransacoes.model;
+
+import com.pablozr.sistematransacoes.enums.StatusEmail;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Linha da caixa de saída de emails, gravada na mesma transação que gerou o token
+@Entity
+@Getter
+@Setter
+@Table(name = "email_outbox", indexes = {
+        @Index(name = "idx_email_outbox_status_proxima", columnList = "status, proxima_tentativa"),
+        @Index(name = "idx_email_outbox_reserva", columnList = "reserva")
+})
+public class EmailPendente {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_outbox_seq")
+    @SequenceGenerator(name = "email_outbox_seq", sequenceName = "email_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String destinatario;
+
+    @Column(nullable = false)
+    private String assunto;
+
+    @Column(nullable = false, length = 4000)
+    private String corpo;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private StatusEmail status;
+
+    @Column(nullable = false)
+    private int tentativas;
+
+    @Column(nullable = false)
+    private LocalDateTime proximaTentativa;
+
+    @Column(length = 36)
+    private String reserva; // Identifica o lote que reservou a linha para envio
+
+    private LocalDateTime reservadoEm;
+
+    @Column(length = 500)
+    private String ultimoErro;
+
+    @Column(nullable = false)
+    private LocalDateTime dataCriacao;
+}
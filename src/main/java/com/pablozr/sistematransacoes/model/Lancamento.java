@@ -0,0 +1,41 @@
+package com.pablozr.sistematransacoes.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Perna imutável do livro razão: cada transação gera um débito e um crédito de mesmo valor,
+ * então a soma de todos os lançamentos é sempre zero. O valor é negativo no débito.
+ * As linhas são gravadas via JDBC pelo LivroRazaoRepository; a entidade só descreve a tabela.
+ */
+@Entity
+@Immutable
+@Getter
+@Setter
+@Table(name = "lancamento", indexes =
+        @Index(name = "idx_lancamento_conta_id", columnList = "conta_id, id"))
+public class Lancamento {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "conta_id", nullable = false)
+    private Long contaId; // Id do usuário, ou 0 para a conta externa de depósitos e aberturas
+
+    @Column(name = "contrapartida_id", nullable = false)
+    private Long contrapartidaId;
+
+    @Column(name = "transacao_id")
+    private Long transacaoId; // Nulo nos lançamentos de abertura
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal valor;
+
+    @Column(nullable = false)
+    private LocalDateTime dataLancamento;
+}
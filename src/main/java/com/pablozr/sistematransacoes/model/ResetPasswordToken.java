@@ -9,10 +9,12 @@ import java.time.LocalDateTime;
 @Entity
 @Getter
 @Setter
-@Table(name = "reset_password_token")
+@Table(name = "reset_password_token", indexes =
+        @Index(name = "idx_reset_password_token_expiry_date", columnList = "expiry_date"))
 public class ResetPasswordToken {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reset_password_token_seq")
+    @SequenceGenerator(name = "reset_password_token_seq", sequenceName = "reset_password_token_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -0,0 +1,29 @@
+package com.pablozr.sistematransacoes.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+// Uma das fatias do saldo de uma conta quente; o saldo da conta é usuario.saldo mais todas as fatias
+@Entity
+@Getter
+@Setter
+@Table(name = "saldo_parcial", uniqueConstraints =
+        @UniqueConstraint(name = "uk_saldo_parcial_usuario_fatia", columnNames = {"usuario_id", "fatia"}))
+public class SaldoParcial {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "saldo_parcial_seq")
+    @SequenceGenerator(name = "saldo_parcial_seq", sequenceName = "saldo_parcial_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "usuario_id", nullable = false)
+    private Long usuarioId;
+
+    @Column(nullable = false)
+    private int fatia;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal valor = BigDecimal.ZERO;
+}
@@ -9,10 +9,12 @@ import java.time.LocalDateTime;
 @Entity
 @Getter
 @Setter
-@Table(name = "token_blacklist")
+@Table(name = "token_blacklist", indexes =
+        @Index(name = "idx_token_blacklist_expiry_date", columnList = "expiry_date"))
 public class TokenBlackList {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "token_blacklist_seq")
+    @SequenceGenerator(name = "token_blacklist_seq", sequenceName = "token_blacklist_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
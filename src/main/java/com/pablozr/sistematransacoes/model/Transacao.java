@@ -13,10 +13,13 @@ import java.time.LocalDateTime;
 @Entity
 @Getter
 @Setter
-@Table(name = "transacao")
+@Table(name = "transacao", indexes = {
+        @Index(name = "idx_transacao_usuario_data_id", columnList = "usuario_id, data_transacao, id"),
+        @Index(name = "idx_transacao_data_id", columnList = "data_transacao, id")})
 public class Transacao {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transacao_seq")
+    @SequenceGenerator(name = "transacao_seq", sequenceName = "transacao_seq", allocationSize = 50)
     private Long id;
 
     @Enumerated(EnumType.STRING)
@@ -30,11 +33,11 @@ public class Transacao {
     @Column(nullable = false)
     private LocalDateTime dataTransacao = LocalDateTime.now();
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "usuario_id", nullable = false)
     private Usuario usuario;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "destinatario_id")
     private Usuario destinatario; // Apenas para transferências
 }
@@ -0,0 +1,39 @@
+package com.pablozr.sistematransacoes.model;
+
+import com.pablozr.sistematransacoes.enums.TipoTransacao;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Cópia fria de transacao: mesmas colunas e o mesmo id, preenchida só pelo arquivamento
+@Entity
+@Getter
+@Setter
+@Table(name = "transacao_arquivo", indexes = {
+        @Index(name = "idx_transacao_arquivo_usuario_data_id", columnList = "usuario_id, data_transacao, id"),
+        @Index(name = "idx_transacao_arquivo_data", columnList = "data_transacao")})
+public class TransacaoArquivada {
+    @Id
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TipoTransacao tipo;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal valor;
+
+    @Column(nullable = false)
+    private LocalDateTime dataTransacao;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "usuario_id", nullable = false)
+    private Usuario usuario;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "destinatario_id")
+    private Usuario destinatario;
+}
@@ -0,0 +1,47 @@
+package com.pablozr.sistematransacoes.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Movimentação JDBC de transacao para transacao_arquivo. Participa da transação corrente; cada
+ * lote deve ser copiado e apagado na mesma transação para a linha nunca estar nas duas tabelas.
+ */
+@Repository
+public class ArquivoTransacaoRepository {
+    private static final String COLUNAS = "id, tipo, valor, data_transacao, usuario_id, destinatario_id";
+    // Dos mais antigos para os mais novos, para o arquivo sempre terminar antes do que ficou na tabela quente;
+    // idx_transacao_data_id serve o intervalo e a ordem sem varrer a tabela
+    private static final String SELECIONAR_LOTE =
+            "select id from transacao where data_transacao < ? order by data_transacao, id limit ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ArquivoTransacaoRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<Long> selecionarLote(LocalDateTime corte, int tamanho) {
+        return jdbcTemplate.queryForList(SELECIONAR_LOTE, Long.class, Timestamp.valueOf(corte), tamanho);
+    }
+
+    public int mover(List<Long> ids) {
+        String marcadores = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        Object[] parametros = ids.toArray();
+        jdbcTemplate.update("insert into transacao_arquivo (" + COLUNAS + ") select " + COLUNAS
+                + " from transacao where id in (" + marcadores + ")", parametros);
+        return jdbcTemplate.update("delete from transacao where id in (" + marcadores + ")", parametros);
+    }
+
+    public LocalDateTime maisRecenteArquivada() {
+        Timestamp data = jdbcTemplate.queryForObject("select max(data_transacao) from transacao_arquivo", Timestamp.class);
+        return data == null ? null : data.toLocalDateTime();
+    }
+}
@@ -0,0 +1,27 @@
+package com.pablozr.sistematransacoes.repository;
+
+import com.pablozr.sistematransacoes.model.ChaveIdempotencia;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface ChaveIdempotenciaRepository extends JpaRepository<ChaveIdempotencia, Long> {
+    // Só chaves ainda válidas; as expiradas esperam a limpeza mas não são mais repetidas
+    @Query("select c from ChaveIdempotencia c where c.usuarioId = :usuarioId and c.chave = :chave and c.dataCriacao >= :limite")
+    Optional<ChaveIdempotencia> buscarValida(@Param("usuarioId") Long usuarioId, @Param("chave") String chave,
+                                             @Param("limite") LocalDateTime limite);
+
+    // Libera a restrição única para a chave ser usada de novo depois de expirar
+    @Modifying
+    @Query("delete from ChaveIdempotencia c where c.usuarioId = :usuarioId and c.chave = :chave and c.dataCriacao < :limite")
+    int removerExpirada(@Param("usuarioId") Long usuarioId, @Param("chave") String chave, @Param("limite") LocalDateTime limite);
+
+    @Query("select c.id from ChaveIdempotencia c where c.dataCriacao < :limite")
+    List<Long> buscarIdsCriadosAntesDe(@Param("limite") LocalDateTime limite, Pageable pagina);
+}
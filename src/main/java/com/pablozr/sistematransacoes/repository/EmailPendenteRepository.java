@@ -0,0 +1,42 @@
+package com.pablozr.sistematransacoes.repository;
+
+import com.pablozr.sistematransacoes.enums.StatusEmail;
+import com.pablozr.sistematransacoes.model.EmailPendente;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface EmailPendenteRepository extends JpaRepository<EmailPendente, Long> {
+    List<EmailPendente> findByReserva(String reserva);
+
+    long countByStatus(StatusEmail status);
+
+    @Query("select e.id from EmailPendente e where e.status = com.pablozr.sistematransacoes.enums.StatusEmail.PENDENTE " +
+            "and e.proximaTentativa <= :agora order by e.proximaTentativa")
+    List<Long> buscarIdsProntos(@Param("agora") LocalDateTime agora, Pageable limite);
+
+    // O filtro por status faz com que só uma instância consiga reservar cada linha
+    @Modifying
+    @Query("update EmailPendente e set e.status = com.pablozr.sistematransacoes.enums.StatusEmail.EM_ENVIO, " +
+            "e.reserva = :reserva, e.reservadoEm = :agora " +
+            "where e.id in :ids and e.status = com.pablozr.sistematransacoes.enums.StatusEmail.PENDENTE")
+    int reservar(@Param("ids") Collection<Long> ids, @Param("reserva") String reserva, @Param("agora") LocalDateTime agora);
+
+    // Enviados e desistidos guardam tokens em texto no corpo; a limpeza de tokens os apaga
+    @Query("select e.id from EmailPendente e where e.status in (com.pablozr.sistematransacoes.enums.StatusEmail.ENVIADO, " +
+            "com.pablozr.sistematransacoes.enums.StatusEmail.FALHA) and e.proximaTentativa < :agora")
+    List<Long> buscarIdsFinalizados(@Param("agora") LocalDateTime agora, Pageable limite);
+
+    // Devolve para a fila reservas de uma instância que caiu no meio do envio
+    @Modifying
+    @Query("update EmailPendente e set e.status = com.pablozr.sistematransacoes.enums.StatusEmail.PENDENTE, " +
+            "e.reserva = null, e.reservadoEm = null " +
+            "where e.status = com.pablozr.sistematransacoes.enums.StatusEmail.EM_ENVIO and e.reservadoEm < :limite")
+    int liberarReservasAbandonadas(@Param("limite") LocalDateTime limite);
+}
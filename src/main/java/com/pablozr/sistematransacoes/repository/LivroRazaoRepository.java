@@ -0,0 +1,179 @@
+package com.pablozr.sistematransacoes.repository;
+
+import com.pablozr.sistematransacoes.model.Transacao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Acesso JDBC às tabelas lancamento e checkpoint_saldo. Como o OperacoesLoteRepository,
+ * participa da transação JPA corrente.
+ */
+@Repository
+public class LivroRazaoRepository {
+    private static final String INSERIR_LANCAMENTO =
+            "insert into lancamento (conta_id, contrapartida_id, transacao_id, valor, data_lancamento) values (?, ?, ?, ?, ?)";
+    private static final String TRAVAR_CONTA = "select id from usuario where id = ? for update";
+    // Checkpoint mais os lançamentos posteriores, num único comando para enxergar um estado consistente
+    private static final String SALDO =
+            "select coalesce((select c.saldo from checkpoint_saldo c where c.conta_id = ?), 0)"
+                    + " + coalesce((select sum(l.valor) from lancamento l where l.conta_id = ? and l.id >"
+                    + " coalesce((select c.ultimo_lancamento_id from checkpoint_saldo c where c.conta_id = ?), 0)), 0)";
+    private static final String SOMAR_POR_CONTA =
+            "select conta_id, sum(valor) from lancamento where id > ? and id <= ? group by conta_id";
+    private static final String AVANCAR_CHECKPOINT =
+            "update checkpoint_saldo set saldo = saldo + ?, ultimo_lancamento_id = ?, data_checkpoint = ?"
+                    + " where conta_id = ? and ultimo_lancamento_id < ?";
+    private static final String INSERIR_CHECKPOINT =
+            "insert into checkpoint_saldo (conta_id, saldo, ultimo_lancamento_id, data_checkpoint) values (?, ?, ?, ?)";
+    private static final String SINCRONIZAR_SALDO =
+            "update usuario set saldo = (select c.saldo from checkpoint_saldo c where c.conta_id = usuario.id),"
+                    + " version = version + 1 where id = ?";
+    private static final String SINCRONIZAR_TODOS_SALDOS =
+            "update usuario set saldo = (select c.saldo from checkpoint_saldo c where c.conta_id = usuario.id),"
+                    + " version = version + 1 where exists (select 1 from checkpoint_saldo c where c.conta_id = usuario.id)";
+    private static final String RECONSTRUIR_CHECKPOINTS =
+            "insert into checkpoint_saldo (conta_id, saldo, ultimo_lancamento_id, data_checkpoint)"
+                    + " select conta_id, sum(valor), ?, ? from lancamento where id <= ? group by conta_id";
+    // Contas cujo saldo por checkpoint difere da soma completa dos lançamentos
+    private static final String CONTAR_DIVERGENTES =
+            "select count(*) from (select l.conta_id, sum(l.valor) as total, coalesce(max(c.saldo), 0)"
+                    + " + coalesce(sum(case when l.id > coalesce(c.ultimo_lancamento_id, 0) then l.valor end), 0) as derivado"
+                    + " from lancamento l left join checkpoint_saldo c on c.conta_id = l.conta_id group by l.conta_id) t"
+                    + " where t.total <> t.derivado";
+    private static final String ABRIR_CONTRAPARTIDAS =
+            "insert into lancamento (conta_id, contrapartida_id, transacao_id, valor, data_lancamento)"
+                    + " select ?, u.id, null, -u.saldo, ? from usuario u"
+                    + " where u.saldo <> 0 and not exists (select 1 from lancamento l where l.conta_id = u.id)";
+    private static final String ABRIR_SALDOS =
+            "insert into lancamento (conta_id, contrapartida_id, transacao_id, valor, data_lancamento)"
+                    + " select u.id, ?, null, u.saldo, ? from usuario u"
+                    + " where u.saldo <> 0 and not exists (select 1 from lancamento l where l.conta_id = u.id)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public LivroRazaoRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Duas pernas por transação: débito na origem (ou na conta externa, para depósitos) e crédito no destino
+    public void inserirLancamentos(List<Transacao> transacoes, long contaExterna) {
+        List<Object[]> parametros = new ArrayList<>(transacoes.size() * 2);
+        for (Transacao transacao : transacoes) {
+            long origem;
+            long destino;
+            if (transacao.getDestinatario() != null) {
+                origem = transacao.getUsuario().getId();
+                destino = transacao.getDestinatario().getId();
+            } else {
+                origem = contaExterna;
+                destino = transacao.getUsuario().getId();
+            }
+            Timestamp data = Timestamp.valueOf(transacao.getDataTransacao());
+            parametros.add(new Object[]{origem, destino, transacao.getId(), transacao.getValor().negate(), data});
+            parametros.add(new Object[]{destino, origem, transacao.getId(), transacao.getValor(), data});
+        }
+        jdbcTemplate.batchUpdate(INSERIR_LANCAMENTO, parametros);
+    }
+
+    // Trava a linha do usuário até o fim da transação; só quem é debitado precisa dela
+    public boolean travarConta(Long contaId) {
+        return !jdbcTemplate.queryForList(TRAVAR_CONTA, Long.class, contaId).isEmpty();
+    }
+
+    // Depois de travarConta, numa transação READ COMMITTED, enxerga todos os débitos já confirmados da conta
+    public BigDecimal saldo(Long contaId) {
+        return jdbcTemplate.queryForObject(SALDO, BigDecimal.class, contaId, contaId, contaId);
+    }
+
+    public long maiorLancamento() {
+        return jdbcTemplate.queryForObject("select coalesce(max(id), 0) from lancamento", Long.class);
+    }
+
+    public long ultimoConsolidado() {
+        return jdbcTemplate.queryForObject("select coalesce(max(ultimo_lancamento_id), 0) from checkpoint_saldo", Long.class);
+    }
+
+    public Map<Long, BigDecimal> somarPorConta(long acimaDe, long ate) {
+        Map<Long, BigDecimal> somas = new LinkedHashMap<>();
+        jdbcTemplate.query(SOMAR_POR_CONTA, rs -> {
+            somas.put(rs.getLong(1), rs.getBigDecimal(2));
+        }, acimaDe, ate);
+        return somas;
+    }
+
+    // Soma as variações ao checkpoint de cada conta; a condição em ultimo_lancamento_id torna a operação idempotente
+    public void avancarCheckpoints(Map<Long, BigDecimal> variacoes, long ate, LocalDateTime agora) {
+        if (variacoes.isEmpty()) {
+            return;
+        }
+        Set<Long> existentes = checkpointsExistentes(variacoes.keySet());
+        Timestamp data = Timestamp.valueOf(agora);
+        List<Object[]> atualizacoes = new ArrayList<>(existentes.size());
+        List<Object[]> insercoes = new ArrayList<>(variacoes.size() - existentes.size());
+        variacoes.forEach((contaId, variacao) -> {
+            if (existentes.contains(contaId)) {
+                atualizacoes.add(new Object[]{variacao, ate, data, contaId, ate});
+            } else {
+                insercoes.add(new Object[]{contaId, variacao, ate, data});
+            }
+        });
+        jdbcTemplate.batchUpdate(AVANCAR_CHECKPOINT, atualizacoes);
+        jdbcTemplate.batchUpdate(INSERIR_CHECKPOINT, insercoes);
+    }
+
+    // Copia o saldo consolidado para usuario.saldo, que vira um cache de leitura no modo livro razão
+    public void sincronizarSaldos(Collection<Long> contaIds) {
+        List<Object[]> parametros = new ArrayList<>(contaIds.size());
+        for (Long contaId : contaIds) {
+            parametros.add(new Object[]{contaId});
+        }
+        jdbcTemplate.batchUpdate(SINCRONIZAR_SALDO, parametros);
+    }
+
+    public int contarDivergentes() {
+        return jdbcTemplate.queryForObject(CONTAR_DIVERGENTES, Integer.class);
+    }
+
+    // Recalcula todos os checkpoints a partir dos lançamentos e devolve quantas contas foram consolidadas
+    public int reconstruirCheckpoints(long ate, LocalDateTime agora) {
+        jdbcTemplate.update("delete from checkpoint_saldo");
+        int contas = jdbcTemplate.update(RECONSTRUIR_CHECKPOINTS, ate, Timestamp.valueOf(agora), ate);
+        jdbcTemplate.update(SINCRONIZAR_TODOS_SALDOS);
+        return contas;
+    }
+
+    public long contarLancamentos() {
+        return jdbcTemplate.queryForObject("select count(*) from lancamento", Long.class);
+    }
+
+    public BigDecimal somaGeral() {
+        return jdbcTemplate.queryForObject("select coalesce(sum(valor), 0) from lancamento", BigDecimal.class);
+    }
+
+    // Lança o saldo atual de cada usuário que ainda não tem lançamentos, contra a conta externa
+    public int abrirSaldos(long contaExterna, LocalDateTime agora) {
+        Timestamp data = Timestamp.valueOf(agora);
+        jdbcTemplate.update(ABRIR_CONTRAPARTIDAS, contaExterna, data);
+        return jdbcTemplate.update(ABRIR_SALDOS, contaExterna, data);
+    }
+
+    private Set<Long> checkpointsExistentes(Collection<Long> contaIds) {
+        String marcadores = String.join(", ", Collections.nCopies(contaIds.size(), "?"));
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "select conta_id from checkpoint_saldo where conta_id in (" + marcadores + ")", Long.class, contaIds.toArray()));
+    }
+}
@@ -0,0 +1,57 @@
+package com.pablozr.sistematransacoes.repository;
+
+import com.pablozr.sistematransacoes.model.Transacao;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Escritas em lote para operações com muitas pernas. Os créditos vão direto por JDBC e as
+ * transações pelo EntityManager, que com ids de sequência agrupa os INSERTs em batch; ambos
+ * usam a conexão da transação JPA corrente, então participam do mesmo commit/rollback.
+ */
+@Repository
+public class OperacoesLoteRepository {
+    private static final int TAMANHO_LOTE = 1000;
+    private static final String CREDITAR =
+            "update usuario set saldo = saldo + ?, version = version + 1 where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public OperacoesLoteRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Persiste as transações (o id vem da sequência já no persist) e, a cada lote gravado, tira do contexto
+    // só essas transações: um clear() desanexaria também os usuários que o chamador ainda vai alterar
+    public void inserirTransacoes(List<Transacao> transacoes) {
+        for (int i = 0; i < transacoes.size(); i++) {
+            entityManager.persist(transacoes.get(i));
+            if ((i + 1) % TAMANHO_LOTE == 0) {
+                entityManager.flush();
+                transacoes.subList(i + 1 - TAMANHO_LOTE, i + 1).forEach(entityManager::detach);
+            }
+        }
+        entityManager.flush();
+    }
+
+    public void creditarSaldos(Map<Long, BigDecimal> creditos) {
+        if (creditos.isEmpty()) {
+            return;
+        }
+        List<Object[]> parametros = new ArrayList<>(creditos.size());
+        creditos.forEach((usuarioId, valor) -> parametros.add(new Object[]{valor, usuarioId}));
+        jdbcTemplate.batchUpdate(CREDITAR, parametros);
+    }
+}
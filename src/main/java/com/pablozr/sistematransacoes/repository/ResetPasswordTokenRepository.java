@@ -1,10 +1,18 @@
 package com.pablozr.sistematransacoes.repository;
 
 import com.pablozr.sistematransacoes.model.ResetPasswordToken;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 public interface ResetPasswordTokenRepository extends JpaRepository<ResetPasswordToken, Long> {
     Optional<ResetPasswordToken> findByToken(String token);
+
+    @Query("select t.id from ResetPasswordToken t where t.expiryDate < :agora")
+    List<Long> buscarIdsExpirados(@Param("agora") LocalDateTime agora, Pageable limite);
 }
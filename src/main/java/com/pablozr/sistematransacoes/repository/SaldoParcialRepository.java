@@ -0,0 +1,39 @@
+package com.pablozr.sistematransacoes.repository;
+
+import com.pablozr.sistematransacoes.model.SaldoParcial;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface SaldoParcialRepository extends JpaRepository<SaldoParcial, Long> {
+
+    // 0 linhas afetadas indica que a fatia não existe mais (a quantidade de fatias mudou)
+    @Modifying
+    @Query("update SaldoParcial s set s.valor = s.valor + :valor where s.usuarioId = :usuarioId and s.fatia = :fatia")
+    int creditar(@Param("usuarioId") Long usuarioId, @Param("fatia") int fatia, @Param("valor") BigDecimal valor);
+
+    @Query("select coalesce(sum(s.valor), 0) from SaldoParcial s where s.usuarioId = :usuarioId")
+    BigDecimal somar(@Param("usuarioId") Long usuarioId);
+
+    // Trava todas as fatias da conta, esperando os créditos em andamento terminarem
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from SaldoParcial s where s.usuarioId = :usuarioId order by s.fatia")
+    List<SaldoParcial> travarFatias(@Param("usuarioId") Long usuarioId);
+
+    @Modifying
+    @Query("update SaldoParcial s set s.valor = 0 where s.usuarioId = :usuarioId")
+    int zerar(@Param("usuarioId") Long usuarioId);
+
+    @Modifying
+    @Query("delete from SaldoParcial s where s.usuarioId = :usuarioId")
+    int removerFatias(@Param("usuarioId") Long usuarioId);
+
+    @Query("select s.usuarioId, count(s) from SaldoParcial s group by s.usuarioId")
+    List<Object[]> contarFatiasPorUsuario();
+}
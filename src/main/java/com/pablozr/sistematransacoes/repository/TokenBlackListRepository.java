@@ -1,8 +1,30 @@
 package com.pablozr.sistematransacoes.repository;
 
 import com.pablozr.sistematransacoes.model.TokenBlackList;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface TokenBlackListRepository extends JpaRepository<TokenBlackList, Long> {
     boolean existsByToken(String token);
+
+    long countByExpiryDateAfter(LocalDateTime agora);
+
+    @Query("select t.token from TokenBlackList t where t.expiryDate > :agora")
+    Stream<String> streamTokensValidos(@Param("agora") LocalDateTime agora);
+
+    @Query("select max(t.expiryDate) from TokenBlackList t")
+    Optional<LocalDateTime> buscarMaiorExpiracao();
+
+    @Query("select t.token, t.expiryDate from TokenBlackList t where t.expiryDate > :desde")
+    List<Object[]> buscarTokensExpirandoDepoisDe(@Param("desde") LocalDateTime desde);
+
+    @Query("select t.id from TokenBlackList t where t.expiryDate < :agora")
+    List<Long> buscarIdsExpirados(@Param("agora") LocalDateTime agora, Pageable limite);
 }
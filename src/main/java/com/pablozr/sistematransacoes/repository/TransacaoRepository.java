@@ -11,7 +11,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import java.time.LocalDateTime;
 import java.util.List;
 
-public interface TransacaoRepository extends JpaRepository<Transacao, Long> {
+public interface TransacaoRepository extends JpaRepository<Transacao, Long>, TransacaoRepositoryCustom {
     Page<Transacao> findByUsuario(Usuario usuario, Pageable pageable);
     List<Transacao> findByUsuarioAndTipo(Usuario usuario, TipoTransacao tipo);
     List<Transacao> findByUsuarioAndDataTransacaoBetween(Usuario usuario, LocalDateTime start, LocalDateTime end);
@@ -0,0 +1,26 @@
+package com.pablozr.sistematransacoes.repository;
+
+import com.pablozr.sistematransacoes.controller.dto.TransacaoDTOOut;
+import com.pablozr.sistematransacoes.enums.TipoTransacao;
+import com.pablozr.sistematransacoes.utils.CursorTransacao;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Listagens projetadas direto em TransacaoDTOOut, com os nomes das contas vindos do mesmo SELECT.
+// Com incluirArquivo, as linhas de transacao_arquivo entram depois das da tabela quente, que são mais novas.
+public interface TransacaoRepositoryCustom {
+    Page<TransacaoDTOOut> listarProjetado(Long usuarioId, TipoTransacao tipo, LocalDateTime dataInicio, LocalDateTime dataFim,
+                                          Pageable pageable, boolean incluirArquivo);
+
+    // Paginação por chave (dataTransacao desc, id desc), sem OFFSET e sem COUNT
+    List<TransacaoDTOOut> buscarPorCursor(Long usuarioId, TipoTransacao tipo, LocalDateTime dataInicio, LocalDateTime dataFim,
+                                          CursorTransacao cursor, int limite, boolean incluirArquivo);
+
+    // Leitura só para frente, com fetch size limitado; precisa de transação aberta e deve ser fechado pelo chamador
+    Stream<TransacaoDTOOut> streamProjetado(Long usuarioId, TipoTransacao tipo, LocalDateTime dataInicio, LocalDateTime dataFim,
+                                            boolean incluirArquivo);
+}
@@ -0,0 +1,236 @@
+package com.pablozr.sistematransacoes.repository;
+
+import com.pablozr.sistematransacoes.controller.dto.TransacaoDTOOut;
+import com.pablozr.sistematransacoes.enums.TipoTransacao;
+import com.pablozr.sistematransacoes.exception.RequisicaoInvalidaException;
+import com.pablozr.sistematransacoes.model.Transacao;
+import com.pablozr.sistematransacoes.model.TransacaoArquivada;
+import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.utils.CursorTransacao;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class TransacaoRepositoryImpl implements TransacaoRepositoryCustom {
+    private static final int TAMANHO_FETCH_EXPORTACAO = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Teto de offset + tamanho na ordenação do cliente com arquivo: cada tabela lê até esse tanto de linhas
+    @Value("${transacao.arquivo.limite-intercalado:1000}")
+    private int limiteIntercalado;
+
+    @Override
+    public Page<TransacaoDTOOut> listarProjetado(Long usuarioId, TipoTransacao tipo, LocalDateTime dataInicio, LocalDateTime dataFim,
+                                                 Pageable pageable, boolean incluirArquivo) {
+        if (!incluirArquivo) {
+            List<TransacaoDTOOut> conteudo = listar(Transacao.class, usuarioId, tipo, dataInicio, dataFim, pageable.getSort(),
+                    pageable.getOffset(), pageable.getPageSize());
+            // A contagem só roda quando não dá para deduzir o total pela própria página
+            return PageableExecutionUtils.getPage(conteudo, pageable, () -> contar(Transacao.class, usuarioId, tipo, dataInicio, dataFim));
+        }
+        Sort sort = pageable.getSort();
+        if (sort.isSorted() && !ordemCronologica(sort)) {
+            return listarIntercalado(usuarioId, tipo, dataInicio, dataFim, pageable);
+        }
+
+        // Em ordem de data (ou id) toda linha quente vem depois das arquivadas, que saem da tabela quente da mais antiga para a
+        // mais nova: a segunda tabela só é lida quando a página passa do fim da primeira
+        boolean crescente = sort.isSorted() && sort.iterator().next().isAscending();
+        Class<?> primeira = crescente ? TransacaoArquivada.class : Transacao.class;
+        Class<?> segunda = crescente ? Transacao.class : TransacaoArquivada.class;
+        List<TransacaoDTOOut> conteudo = new ArrayList<>(listar(primeira, usuarioId, tipo, dataInicio, dataFim, sort,
+                pageable.getOffset(), pageable.getPageSize()));
+        if (conteudo.size() == pageable.getPageSize()) {
+            return PageableExecutionUtils.getPage(conteudo, pageable, () -> contar(primeira, usuarioId, tipo, dataInicio, dataFim)
+                    + contar(segunda, usuarioId, tipo, dataInicio, dataFim));
+        }
+        long totalPrimeira = conteudo.isEmpty() && pageable.getOffset() > 0
+                ? contar(primeira, usuarioId, tipo, dataInicio, dataFim)
+                : pageable.getOffset() + conteudo.size();
+        conteudo.addAll(listar(segunda, usuarioId, tipo, dataInicio, dataFim, sort,
+                Math.max(0, pageable.getOffset() - totalPrimeira), pageable.getPageSize() - conteudo.size()));
+        return PageableExecutionUtils.getPage(conteudo, pageable,
+                () -> totalPrimeira + contar(segunda, usuarioId, tipo, dataInicio, dataFim));
+    }
+
+    @Override
+    public List<TransacaoDTOOut> buscarPorCursor(Long usuarioId, TipoTransacao tipo, LocalDateTime dataInicio, LocalDateTime dataFim,
+                                                 CursorTransacao cursor, int limite, boolean incluirArquivo) {
+        List<TransacaoDTOOut> transacoes = buscarPorCursor(Transacao.class, usuarioId, tipo, dataInicio, dataFim, cursor, limite);
+        if (!incluirArquivo || transacoes.size() == limite) {
+            return transacoes;
+        }
+        List<TransacaoDTOOut> completas = new ArrayList<>(transacoes);
+        completas.addAll(buscarPorCursor(TransacaoArquivada.class, usuarioId, tipo, dataInicio, dataFim, cursor, limite - transacoes.size()));
+        return completas;
+    }
+
+    @Override
+    public Stream<TransacaoDTOOut> streamProjetado(Long usuarioId, TipoTransacao tipo, LocalDateTime dataInicio, LocalDateTime dataFim,
+                                                   boolean incluirArquivo) {
+        Stream<TransacaoDTOOut> quentes = stream(Transacao.class, usuarioId, tipo, dataInicio, dataFim);
+        if (!incluirArquivo) {
+            return quentes;
+        }
+        // O concat só abre o cursor do arquivo quando as quentes acabam, e o close fecha os dois
+        return Stream.concat(quentes, Stream.of(TransacaoArquivada.class)
+                .flatMap(origem -> stream(origem, usuarioId, tipo, dataInicio, dataFim)));
+    }
+
+    // Só dataTransacao e id, todos na mesma direção: a ordem não cruza a fronteira entre o arquivo e a tabela quente.
+    // Os ids vêm da sequência na ordem de inserção, que acompanha a data
+    private static boolean ordemCronologica(Sort sort) {
+        Sort.Direction direcao = sort.iterator().next().getDirection();
+        return sort.stream().allMatch(ordem -> ordem.getDirection() == direcao
+                && (ordem.getProperty().equals("dataTransacao") || ordem.getProperty().equals("id")));
+    }
+
+    // Outras ordenações (valor, tipo): busca as primeiras offset + tamanho linhas de cada tabela e intercala em memória.
+    // Sem índice comum às duas tabelas não há como pular as anteriores, então páginas fundas são recusadas
+    private Page<TransacaoDTOOut> listarIntercalado(Long usuarioId, TipoTransacao tipo, LocalDateTime dataInicio, LocalDateTime dataFim,
+                                                    Pageable pageable) {
+        Comparator<TransacaoDTOOut> ordem = comparador(pageable.getSort());
+        if (pageable.getOffset() + pageable.getPageSize() > limiteIntercalado) {
+            throw new RequisicaoInvalidaException("Com ordenação personalizada sobre o histórico arquivado só as primeiras "
+                    + limiteIntercalado + " transações podem ser paginadas; ordene por data ou id ou use o cursor");
+        }
+        int ate = (int) pageable.getOffset() + pageable.getPageSize();
+        List<TransacaoDTOOut> todas = new ArrayList<>(listar(Transacao.class, usuarioId, tipo, dataInicio, dataFim, pageable.getSort(), 0, ate));
+        todas.addAll(listar(TransacaoArquivada.class, usuarioId, tipo, dataInicio, dataFim, pageable.getSort(), 0, ate));
+        todas.sort(ordem);
+        List<TransacaoDTOOut> conteudo = todas.subList(Math.min((int) pageable.getOffset(), todas.size()), Math.min(ate, todas.size()));
+        return PageableExecutionUtils.getPage(conteudo, pageable, () -> contar(Transacao.class, usuarioId, tipo, dataInicio, dataFim)
+                + contar(TransacaoArquivada.class, usuarioId, tipo, dataInicio, dataFim));
+    }
+
+    private List<TransacaoDTOOut> listar(Class<?> origem, Long usuarioId, TipoTransacao tipo, LocalDateTime dataInicio,
+                                         LocalDateTime dataFim, Sort sort, long offset, int limite) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<TransacaoDTOOut> query = cb.createQuery(TransacaoDTOOut.class);
+        Root<?> root = query.from(origem);
+        selecionarDTO(cb, query, root);
+        query.where(filtros(cb, root, usuarioId, tipo, dataInicio, dataFim).toArray(Predicate[]::new));
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        } else {
+            query.orderBy(cb.desc(root.get("dataTransacao")), cb.desc(root.get("id")));
+        }
+        return entityManager.createQuery(query)
+                .setFirstResult(Math.toIntExact(offset))
+                .setMaxResults(limite)
+                .getResultList();
+    }
+
+    private List<TransacaoDTOOut> buscarPorCursor(Class<?> origem, Long usuarioId, TipoTransacao tipo, LocalDateTime dataInicio,
+                                                  LocalDateTime dataFim, CursorTransacao cursor, int limite) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<TransacaoDTOOut> query = cb.createQuery(TransacaoDTOOut.class);
+        Root<?> root = query.from(origem);
+        Path<LocalDateTime> data = root.get("dataTransacao");
+        selecionarDTO(cb, query, root);
+
+        List<Predicate> filtros = filtros(cb, root, usuarioId, tipo, dataInicio, dataFim);
+        if (cursor != null) {
+            filtros.add(cb.or(
+                    cb.lessThan(data, cursor.getDataTransacao()),
+                    cb.and(cb.equal(data, cursor.getDataTransacao()), cb.lessThan(root.get("id"), cursor.getId()))));
+        }
+        query.where(filtros.toArray(Predicate[]::new))
+                .orderBy(cb.desc(data), cb.desc(root.get("id")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limite)
+                .getResultList();
+    }
+
+    private Stream<TransacaoDTOOut> stream(Class<?> origem, Long usuarioId, TipoTransacao tipo, LocalDateTime dataInicio,
+                                           LocalDateTime dataFim) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<TransacaoDTOOut> query = cb.createQuery(TransacaoDTOOut.class);
+        Root<?> root = query.from(origem);
+        selecionarDTO(cb, query, root);
+        query.where(filtros(cb, root, usuarioId, tipo, dataInicio, dataFim).toArray(Predicate[]::new))
+                .orderBy(cb.desc(root.get("dataTransacao")), cb.desc(root.get("id")));
+        // No MySQL o fetch size só limita a memória com useCursorFetch=true na URL do JDBC
+        return entityManager.createQuery(query)
+                .setHint(AvailableHints.HINT_FETCH_SIZE, TAMANHO_FETCH_EXPORTACAO)
+                .setHint(AvailableHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    private long contar(Class<?> origem, Long usuarioId, TipoTransacao tipo, LocalDateTime dataInicio, LocalDateTime dataFim) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<?> root = query.from(origem);
+        query.select(cb.count(root))
+                .where(filtros(cb, root, usuarioId, tipo, dataInicio, dataFim).toArray(Predicate[]::new));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    // Mesmas propriedades que a entidade aceita na ordenação, aplicadas aos DTOs já carregados
+    private static Comparator<TransacaoDTOOut> comparador(Sort sort) {
+        Comparator<TransacaoDTOOut> comparador = null;
+        for (Sort.Order ordem : sort) {
+            Comparator<TransacaoDTOOut> campo = switch (ordem.getProperty()) {
+                case "id" -> Comparator.comparing(TransacaoDTOOut::getId);
+                case "valor" -> Comparator.comparing(TransacaoDTOOut::getValor);
+                case "dataTransacao" -> Comparator.comparing(TransacaoDTOOut::getDataTransacao);
+                case "tipo" -> Comparator.comparing(TransacaoDTOOut::getTipo);
+                default -> throw new RequisicaoInvalidaException("Ordenação por " + ordem.getProperty() + " não suportada");
+            };
+            campo = ordem.isAscending() ? campo : campo.reversed();
+            comparador = comparador == null ? campo : comparador.thenComparing(campo);
+        }
+        return comparador;
+    }
+
+    private void selecionarDTO(CriteriaBuilder cb, CriteriaQuery<TransacaoDTOOut> query, Root<?> root) {
+        Join<?, Usuario> usuario = root.join("usuario");
+        Join<?, Usuario> destinatario = root.join("destinatario", JoinType.LEFT);
+        query.select(cb.construct(TransacaoDTOOut.class,
+                root.get("id"),
+                root.get("tipo"),
+                root.get("valor"),
+                root.get("dataTransacao"),
+                usuario.get("id"),
+                destinatario.get("id"),
+                usuario.get("nome"),
+                destinatario.get("nome")));
+    }
+
+    private List<Predicate> filtros(CriteriaBuilder cb, Root<?> root, Long usuarioId, TipoTransacao tipo,
+                                    LocalDateTime dataInicio, LocalDateTime dataFim) {
+        List<Predicate> filtros = new ArrayList<>();
+        filtros.add(cb.equal(root.get("usuario").get("id"), usuarioId));
+        if (tipo != null) {
+            filtros.add(cb.equal(root.get("tipo"), tipo));
+        }
+        if (dataInicio != null) {
+            filtros.add(cb.greaterThanOrEqualTo(root.get("dataTransacao"), dataInicio));
+        }
+        if (dataFim != null) {
+            filtros.add(cb.lessThanOrEqualTo(root.get("dataTransacao"), dataFim));
+        }
+        return filtros;
+    }
+}
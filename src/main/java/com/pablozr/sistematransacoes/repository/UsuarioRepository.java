@@ -1,12 +1,18 @@
 package com.pablozr.sistematransacoes.repository;
 
 import com.pablozr.sistematransacoes.model.Usuario;
+import jakarta.persistence.LockModeType;
 import lombok.NonNull;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,4 +24,29 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
     Page<Usuario> findBySaldoGreaterThanEqual(Double saldo, Pageable pageable);
 
     Page<Usuario> findAll(Specification<Usuario> spec, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from Usuario u where u.id = :id")
+    Optional<Usuario> travarPorId(@Param("id") Long id);
+
+    // Carga do índice de busca em páginas por id, sem montar entidades
+    @Query("select u.id, u.nome, u.email from Usuario u where u.id > :apos order by u.id")
+    List<Object[]> carregarParaIndice(@Param("apos") Long apos, Pageable pageable);
+
+    @Query("select u.saldo from Usuario u where u.id = :id")
+    Optional<BigDecimal> buscarSaldo(@Param("id") Long id);
+
+    // Grava o saldo absoluto calculado fora do banco, incrementando a versão para invalidar entidades antigas
+    @Modifying
+    @Query("update Usuario u set u.saldo = :saldo, u.version = u.version + 1 where u.id = :id")
+    int definirSaldo(@Param("id") Long id, @Param("saldo") BigDecimal saldo);
+
+    @Modifying
+    @Query("update Usuario u set u.saldo = u.saldo + :valor, u.version = u.version + 1 where u.id = :id")
+    int creditar(@Param("id") Long id, @Param("valor") BigDecimal valor);
+
+    // Só debita se houver saldo; 0 linhas afetadas indica saldo insuficiente
+    @Modifying
+    @Query("update Usuario u set u.saldo = u.saldo - :valor, u.version = u.version + 1 where u.id = :id and u.saldo >= :valor")
+    int debitarSeSuficiente(@Param("id") Long id, @Param("valor") BigDecimal valor);
 }
@@ -0,0 +1,41 @@
+package com.pablozr.sistematransacoes.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Escolhe o custo do BCrypt pela máquina: mede o custo de referência e sobe ou desce um nível por
+ * dobro/metade de tempo até chegar perto do tempo alvo. Hashes já gravados guardam o próprio custo,
+ * então mudar o valor entre reinícios não invalida senhas.
+ */
+public final class CalibradorBCrypt {
+    private static final Logger log = LoggerFactory.getLogger(CalibradorBCrypt.class);
+    private static final int CUSTO_REFERENCIA = 10;
+    private static final int AQUECIMENTO = 3;
+    private static final int MEDICOES = 5;
+
+    private CalibradorBCrypt() {
+    }
+
+    public static int calibrar(long tempoAlvoMs, int custoMinimo, int custoMaximo) {
+        BCryptPasswordEncoder referencia = new BCryptPasswordEncoder(CUSTO_REFERENCIA);
+        for (int i = 0; i < AQUECIMENTO; i++) {
+            referencia.encode("calibracao");
+        }
+        long melhor = Long.MAX_VALUE;
+        for (int i = 0; i < MEDICOES; i++) {
+            long inicio = System.nanoTime();
+            referencia.encode("calibracao");
+            melhor = Math.min(melhor, System.nanoTime() - inicio);
+        }
+        double referenciaMs = melhor / 1_000_000.0;
+        // Cada nível de custo dobra o tempo: fica com o maior custo que não passa do alvo
+        int custo = CUSTO_REFERENCIA + (int) Math.floor(Math.log(tempoAlvoMs / referenciaMs) / Math.log(2));
+        custo = Math.max(custoMinimo, Math.min(custoMaximo, custo));
+        log.info("BCrypt calibrado: custo {} ({} ms no custo {}, alvo {} ms, estimado {} ms)", custo,
+                String.format("%.1f", referenciaMs), CUSTO_REFERENCIA, tempoAlvoMs,
+                String.format("%.1f", referenciaMs * Math.pow(2, custo - CUSTO_REFERENCIA)));
+        return custo;
+    }
+}
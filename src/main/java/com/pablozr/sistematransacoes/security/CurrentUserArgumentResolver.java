@@ -10,11 +10,18 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.bind.support.WebDataBinderFactory;
 import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.method.support.ModelAndViewContainer;
 
+/**
+ * Resolve parâmetros @CurrentUser. UsuarioSnapshot vem do que o filtro JWT já resolveu, sem consulta;
+ * Usuario é sempre lido do banco pela chave primária, para quem precisa de dados atuais como o saldo.
+ */
 @Component
 public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+    public static final String ATRIBUTO_USUARIO = CurrentUserArgumentResolver.class.getName() + ".usuario";
+
     private final UsuarioService usuarioService;
 
     @Autowired
@@ -24,18 +31,26 @@ public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolve
 
     @Override
     public boolean supportsParameter(MethodParameter parameter){
-        return parameter.hasParameterAnnotation(CurrentUser.class) && parameter.getParameterType().equals(Usuario.class);
+        return parameter.hasParameterAnnotation(CurrentUser.class)
+                && (parameter.getParameterType().equals(Usuario.class) || parameter.getParameterType().equals(UsuarioSnapshot.class));
     }
 
     @Override
     public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
                                   NativeWebRequest webRequest, WebDataBinderFactory binderFactory){
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || !auth.isAuthenticated() || "anonymousUser".equals(auth.getName())) {
-            throw new UsuarioNaoEncontradoException("Nenhum usuário autenticado encontrado");
+        UsuarioSnapshot snapshot = (UsuarioSnapshot) webRequest.getAttribute(ATRIBUTO_USUARIO, RequestAttributes.SCOPE_REQUEST);
+        if (snapshot == null) {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            if (auth == null || !auth.isAuthenticated() || "anonymousUser".equals(auth.getName())) {
+                throw new UsuarioNaoEncontradoException("Nenhum usuário autenticado encontrado");
+            }
+            snapshot = usuarioService.buscarSnapshotPorEmail(auth.getName())
+                    .orElseThrow(() -> new UsuarioNaoEncontradoException("Usuário autenticado não encontrado"));
+        }
+        if (parameter.getParameterType().equals(UsuarioSnapshot.class)) {
+            return snapshot;
         }
-        String email = auth.getName();
-        return usuarioService.buscarPorEmail(email)
+        return usuarioService.buscarPorId(snapshot.getId())
                 .orElseThrow(() -> new UsuarioNaoEncontradoException("Usuário autenticado não encontrado"));
     }
 }
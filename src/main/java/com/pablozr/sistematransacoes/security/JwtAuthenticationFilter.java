@@ -1,6 +1,5 @@
 package com.pablozr.sistematransacoes.security;
 
-import com.pablozr.sistematransacoes.model.Usuario;
 import com.pablozr.sistematransacoes.service.UsuarioService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -15,9 +14,11 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 
 import java.io.IOException;
+import java.util.Optional;
 import java.util.Set;
 
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
+    public static final String ATRIBUTO_PRINCIPAL = JwtAuthenticationFilter.class.getName() + ".principal";
 
     private final JwtTokenProvider jwtTokenProvider;
     private final UsuarioService usuarioService;
@@ -38,15 +39,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         String token = getTokenFromRequest(request);
 
-        if (token != null && jwtTokenProvider.validateToken(token) && !usuarioService.isTokenBlacklisted(token)) {
-            String email = jwtTokenProvider.getEmailFromToken(token);
-            Usuario usuario = usuarioService.buscarPorEmail(email)
+        Optional<JwtPrincipal> principal = token != null ? jwtTokenProvider.verificar(token) : Optional.empty();
+        if (principal.isPresent() && !usuarioService.isTokenBlacklisted(token)) {
+            String email = principal.get().getEmail();
+            UsuarioSnapshot usuario = usuarioService.buscarSnapshotPorEmail(email)
                     .orElseThrow(() -> new IllegalStateException("Usuário não encontrado"));
             if (!usuario.isAtivo()) {
                 response.sendError(HttpServletResponse.SC_FORBIDDEN, "Confirme seu email para acessar o sistema");
                 return;
             }
-            Set<String> roles = jwtTokenProvider.getRolesFromToken(token);
+            request.setAttribute(CurrentUserArgumentResolver.ATRIBUTO_USUARIO, usuario); // Evita nova busca no @CurrentUser
+            request.setAttribute(ATRIBUTO_PRINCIPAL, principal.get());
+            Set<String> roles = principal.get().getRoles();
 
             UserDetails userDetails = User.withUsername(email)
                     .password("")
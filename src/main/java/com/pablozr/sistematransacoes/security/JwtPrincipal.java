@@ -0,0 +1,22 @@
+package com.pablozr.sistematransacoes.security;
+
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.Set;
+
+// Resultado imutável de uma verificação de token: o que o resto da requisição precisa saber do JWT
+@Getter
+public final class JwtPrincipal {
+    private final String email;
+    private final Long userId;
+    private final Set<String> roles;
+    private final Instant expiracao;
+
+    public JwtPrincipal(String email, Long userId, Set<String> roles, Instant expiracao) {
+        this.email = email;
+        this.userId = userId;
+        this.roles = Set.copyOf(roles);
+        this.expiracao = expiracao;
+    }
+}
@@ -1,22 +1,77 @@
 package com.pablozr.sistematransacoes.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 @Component
-public class JwtTokenProvider {
-
-    @Value("${jwt.secret}")
-    private String SECRET_KEY;
+public class JwtTokenProvider implements MeterBinder {
 
     private final long VALIDITY_IN_MS = 3600000; // 1 hora
 
+    private final SecretKey chave;
+    private final JwtParser parser;
+    // Tokens já verificados, indexados pelo SHA-256 do token e expirados junto com ele
+    private final Cache<String, JwtPrincipal> principais;
+    private volatile Timer tempoVerificacao; // Nulo fora do contexto Spring, como nos benchmarks
+
+    @Autowired
+    public JwtTokenProvider(@Value("${jwt.secret}") String secretKey,
+                            @Value("${jwt.cache.maximum-size:100000}") long tamanhoCache) {
+        this.chave = Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser().verifyWith(chave).build();
+        this.principais = Caffeine.newBuilder()
+                .maximumSize(tamanhoCache)
+                .expireAfter(new Expiry<String, JwtPrincipal>() {
+                    @Override
+                    public long expireAfterCreate(String digest, JwtPrincipal principal, long agora) {
+                        return Math.max(0, Duration.between(Instant.now(), principal.getExpiracao()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String digest, JwtPrincipal principal, long agora, long duracaoAtual) {
+                        return duracaoAtual;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String digest, JwtPrincipal principal, long agora, long duracaoAtual) {
+                        return duracaoAtual;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, principais, "jwtPrincipal");
+        tempoVerificacao = Timer.builder("jwt.verificacao")
+                .description("Verificação de assinatura de tokens fora do cache")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+
     public String generateToken(String email, Long userId, Set<String> roles) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("userId", userId);
@@ -27,38 +82,59 @@ public class JwtTokenProvider {
                 .claims(claims)
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + VALIDITY_IN_MS)) // Substitui setExpiration
-                .signWith(Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8))) // Usa HS512 por padrão
+                .signWith(chave) // Usa HS512 por padrão
                 .compact();
     }
 
+    // Verifica assinatura e expiração uma única vez por token; as chamadas seguintes saem do cache
+    public Optional<JwtPrincipal> verificar(String token) {
+        String digest = digest(token);
+        JwtPrincipal principal = principais.getIfPresent(digest);
+        if (principal != null) {
+            return principal.getExpiracao().isAfter(Instant.now()) ? Optional.of(principal) : Optional.empty();
+        }
+        long inicio = System.nanoTime();
+        try {
+            Claims payload = parser.parseSignedClaims(token).getPayload();
+            Number userId = payload.get("userId", Number.class);
+            List<?> roles = payload.get("roles", List.class);
+            Set<String> papeis = new HashSet<>();
+            if (roles != null) {
+                roles.forEach(role -> papeis.add(String.valueOf(role)));
+            }
+            principal = new JwtPrincipal(payload.getSubject(), userId != null ? userId.longValue() : null, papeis,
+                    payload.getExpiration().toInstant());
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        } finally {
+            Timer timer = tempoVerificacao;
+            if (timer != null) {
+                timer.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            }
+        }
+        principais.put(digest, principal);
+        return Optional.of(principal);
+    }
+
     public String getEmailFromToken(String token) {
-        return Jwts.parser()
-                .verifyWith(Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8)))
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getSubject();
+        return verificar(token).map(JwtPrincipal::getEmail)
+                .orElseThrow(() -> new IllegalArgumentException("Token inválido"));
     }
 
     public boolean validateToken(String token) {
-        try {
-            Jwts.parser()
-                    .verifyWith(Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8)))
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
+        return verificar(token).isPresent();
     }
 
     public Set<String> getRolesFromToken(String token) {
-        Claims payload = Jwts.parser()
-                .verifyWith(Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8)))
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        List<String> rolesList = payload.get("roles", List.class);
-        return rolesList != null ? new HashSet<>(rolesList) : Collections.emptySet();
+        return verificar(token).map(JwtPrincipal::getRoles).orElse(Collections.emptySet());
+    }
+
+    private String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
     }
-}
\ No newline at end of file
+}
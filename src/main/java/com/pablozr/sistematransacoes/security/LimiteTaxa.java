@@ -0,0 +1,13 @@
+package com.pablozr.sistematransacoes.security;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Limite por usuário do endpoint; capacidade e reposição vêm de limite.taxa.<nome>.*
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LimiteTaxa {
+    String value();
+}
@@ -0,0 +1,115 @@
+package com.pablozr.sistematransacoes.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pablozr.sistematransacoes.exception.SobrecargaException;
+import com.pablozr.sistematransacoes.utils.BaldeTokens;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Limite de requisições por usuário nos métodos com @LimiteTaxa, pelo userId do JWT. Cada endpoint tem
+ * um Caffeine limitado de baldes por usuário; o consumo é um CAS no balde, sem lock. Responde com os
+ * headers RateLimit-Limit/Remaining/Reset e, quando recusa, 429 com Retry-After.
+ */
+@Component
+public class LimiteTaxaInterceptor implements HandlerInterceptor {
+    private static final long NANOS_POR_SEGUNDO = 1_000_000_000L;
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final boolean habilitado;
+    private final long capacidadePadrao;
+    private final double reposicaoPadrao;
+    private final long maximoUsuarios;
+    private final Map<Method, Optional<Limite>> limitesPorMetodo = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LimiteTaxaInterceptor(Environment environment, MeterRegistry meterRegistry,
+                                 @Value("${limite.taxa.habilitado:true}") boolean habilitado,
+                                 @Value("${limite.taxa.padrao.capacidade:20}") long capacidadePadrao,
+                                 @Value("${limite.taxa.padrao.reposicao-por-segundo:10}") double reposicaoPadrao,
+                                 @Value("${limite.taxa.maximo-usuarios:100000}") long maximoUsuarios) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.habilitado = habilitado;
+        this.capacidadePadrao = capacidadePadrao;
+        this.reposicaoPadrao = reposicaoPadrao;
+        this.maximoUsuarios = maximoUsuarios;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!habilitado || !(handler instanceof HandlerMethod metodo)) {
+            return true;
+        }
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true; // A exportação em streaming volta ao interceptor no fim; já foi cobrada na entrada
+        }
+        Optional<Limite> configurado = limitesPorMetodo.computeIfAbsent(metodo.getMethod(), m -> carregar(metodo));
+        JwtPrincipal principal = (JwtPrincipal) request.getAttribute(JwtAuthenticationFilter.ATRIBUTO_PRINCIPAL);
+        if (configurado.isEmpty() || principal == null || principal.getUserId() == null) {
+            return true; // Sem usuário autenticado quem barra é a segurança
+        }
+        Limite limite = configurado.get();
+        long agora = System.nanoTime();
+        BaldeTokens balde = limite.baldes.getIfPresent(principal.getUserId());
+        if (balde == null) {
+            balde = limite.baldes.get(principal.getUserId(), id -> new BaldeTokens(limite.capacidade, limite.reposicaoPorSegundo, agora));
+        }
+        long resultado = balde.tentarConsumir(agora);
+        response.setHeader("RateLimit-Limit", limite.capacidadeTexto);
+        response.setHeader("RateLimit-Reset", String.valueOf(segundos(balde.nanosAteCheio(agora))));
+        if (resultado >= 0) {
+            response.setHeader("RateLimit-Remaining", String.valueOf(resultado));
+            return true;
+        }
+        response.setHeader("RateLimit-Remaining", "0");
+        limite.rejeitadas.increment();
+        throw new SobrecargaException("Limite de requisições excedido, tente novamente em instantes", segundos(-resultado));
+    }
+
+    private Optional<Limite> carregar(HandlerMethod metodo) {
+        LimiteTaxa anotacao = metodo.getMethodAnnotation(LimiteTaxa.class);
+        if (anotacao == null) {
+            return Optional.empty();
+        }
+        String nome = anotacao.value();
+        long capacidade = environment.getProperty("limite.taxa." + nome + ".capacidade", Long.class, capacidadePadrao);
+        double reposicao = environment.getProperty("limite.taxa." + nome + ".reposicao-por-segundo", Double.class, reposicaoPadrao);
+        Counter rejeitadas = Counter.builder("limite.taxa.rejeitadas")
+                .description("Requisições recusadas pelo limite por usuário")
+                .tag("endpoint", nome)
+                .register(meterRegistry);
+        // Um balde parado há mais tempo que o necessário para encher já equivale a um novo
+        Duration ociosidade = Duration.ofNanos((long) (capacidade * NANOS_POR_SEGUNDO / reposicao)).plusSeconds(1);
+        Cache<Long, BaldeTokens> baldes = Caffeine.newBuilder()
+                .maximumSize(maximoUsuarios)
+                .expireAfterAccess(ociosidade)
+                .build();
+        return Optional.of(new Limite(capacidade, reposicao, String.valueOf(capacidade), baldes, rejeitadas));
+    }
+
+    private static long segundos(long nanos) {
+        return Math.max(1, (nanos + NANOS_POR_SEGUNDO - 1) / NANOS_POR_SEGUNDO);
+    }
+
+    private record Limite(long capacidade, double reposicaoPorSegundo, String capacidadeTexto,
+                          Cache<Long, BaldeTokens> baldes, Counter rejeitadas) {
+    }
+}
@@ -1,7 +1,9 @@
 package com.pablozr.sistematransacoes.security;
 
 import com.pablozr.sistematransacoes.service.UsuarioService;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -38,13 +40,17 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.ignoringRequestMatchers("/api/**").disable())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll() // O despacho da exportação em streaming já foi autorizado na entrada
                         .requestMatchers("/api/auth/login", "/api/auth/signup", "/api/auth/forgot-password",
                                 "/api/auth/reset-password", "/api/auth/confirm-email").permitAll()
                         .requestMatchers("/api/auth/profile").hasRole("USER")
                         .requestMatchers("/api/transacoes/**").hasRole("USER")
                         .requestMatchers(HttpMethod.GET, "/api/usuarios/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.DELETE, "/api/usuarios/**").hasRole("ADMIN")
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .requestMatchers("/swagger-ui.html", "/swagger-ui/**", "/v3/api-docs/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/actuator/health").permitAll() // Sondas de liveness/readiness
+                        .requestMatchers(HttpMethod.GET, "/actuator/prometheus").hasRole("ADMIN") // Taxas por usuário e estado interno não são públicos
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(new JwtAuthenticationFilter(jwtTokenProvider, usuarioService), UsernamePasswordAuthenticationFilter.class);
@@ -57,15 +63,21 @@ public class SecurityConfig {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOrigins(Arrays.asList("http://localhost:8080")); // Permite Swagger UI
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS")); // Métodos permitidos
-        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type")); // Headers permitidos
+        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "Idempotency-Key")); // Headers permitidos
+        configuration.setExposedHeaders(Arrays.asList("RateLimit-Limit", "RateLimit-Remaining", "RateLimit-Reset", "Retry-After"));
         configuration.setAllowCredentials(true); // Permite cookies/credenciais
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration); // Aplica a todos os endpoints
         return source;
     }
 
+    // Com senha.bcrypt.custo definido usa o valor fixo; senão calibra pelo tempo alvo na subida
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${senha.bcrypt.custo:0}") int custo,
+                                           @Value("${senha.bcrypt.tempo-alvo-ms:250}") long tempoAlvoMs,
+                                           @Value("${senha.bcrypt.custo-minimo:10}") int custoMinimo,
+                                           @Value("${senha.bcrypt.custo-maximo:16}") int custoMaximo) {
+        int custoEfetivo = custo > 0 ? custo : CalibradorBCrypt.calibrar(tempoAlvoMs, custoMinimo, custoMaximo);
+        return new BCryptPasswordEncoder(custoEfetivo);
     }
 }
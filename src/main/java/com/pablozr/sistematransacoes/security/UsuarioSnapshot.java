@@ -0,0 +1,26 @@
+package com.pablozr.sistematransacoes.security;
+
+import com.pablozr.sistematransacoes.model.Usuario;
+import lombok.Getter;
+
+import java.util.Set;
+
+// Cópia imutável dos dados de autenticação do usuário; nunca carrega saldo
+@Getter
+public final class UsuarioSnapshot {
+    private final Long id;
+    private final String email;
+    private final boolean ativo;
+    private final Set<String> roles;
+
+    public UsuarioSnapshot(Long id, String email, boolean ativo, Set<String> roles) {
+        this.id = id;
+        this.email = email;
+        this.ativo = ativo;
+        this.roles = roles != null ? Set.copyOf(roles) : Set.of();
+    }
+
+    public static UsuarioSnapshot de(Usuario usuario) {
+        return new UsuarioSnapshot(usuario.getId(), usuario.getEmail(), usuario.isAtivo(), usuario.getRoles());
+    }
+}
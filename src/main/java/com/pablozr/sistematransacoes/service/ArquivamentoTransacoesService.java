@@ -0,0 +1,91 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.repository.ArquivoTransacaoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Move transações mais antigas que o horizonte (transacao.arquivo.horizonte-dias) da tabela quente
+ * para transacao_arquivo, em lotes, cada um copiado e apagado na mesma transação. A tabela quente
+ * e seus índices ficam do tamanho do horizonte, que é o que inserts e o histórico recente usam.
+ * <p>
+ * As listagens só consultam o arquivo quando o período pedido pode alcançá-lo: sem data inicial,
+ * ou com data inicial anterior ao horizonte ou à transação arquivada mais recente.
+ */
+@Service
+public class ArquivamentoTransacoesService {
+    private static final Logger log = LoggerFactory.getLogger(ArquivamentoTransacoesService.class);
+
+    private final ArquivoTransacaoRepository arquivoTransacaoRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean ativo;
+    private final int horizonteDias;
+    private final int tamanhoLote;
+    private final ReentrantLock arquivamento = new ReentrantLock();
+    private volatile LocalDateTime maisRecenteArquivada;
+
+    @Autowired
+    public ArquivamentoTransacoesService(ArquivoTransacaoRepository arquivoTransacaoRepository, TransactionTemplate transactionTemplate,
+                                         @Value("${transacao.arquivo.enabled:false}") boolean ativo,
+                                         @Value("${transacao.arquivo.horizonte-dias:365}") int horizonteDias,
+                                         @Value("${transacao.arquivo.tamanho-lote:5000}") int tamanhoLote) {
+        this.arquivoTransacaoRepository = arquivoTransacaoRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.ativo = ativo;
+        this.horizonteDias = horizonteDias;
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    // Também com o job desligado: o arquivo pode ter linhas de quando ele estava ligado
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregarLimite() {
+        maisRecenteArquivada = arquivoTransacaoRepository.maisRecenteArquivada();
+    }
+
+    public boolean alcancaArquivo(LocalDateTime dataInicio) {
+        if (dataInicio == null) {
+            return ativo || maisRecenteArquivada != null;
+        }
+        LocalDateTime limite = maisRecenteArquivada;
+        return (ativo && dataInicio.isBefore(LocalDateTime.now().minusDays(horizonteDias)))
+                || (limite != null && !dataInicio.isAfter(limite));
+    }
+
+    @Scheduled(cron = "${transacao.arquivo.cron:0 30 3 * * *}")
+    public void arquivar() {
+        if (!ativo || !arquivamento.tryLock()) {
+            return;
+        }
+        try {
+            long inicio = System.nanoTime();
+            LocalDateTime corte = LocalDateTime.now().minusDays(horizonteDias);
+            long movidas = 0;
+            Integer lote;
+            do {
+                lote = transactionTemplate.execute(status -> {
+                    List<Long> ids = arquivoTransacaoRepository.selecionarLote(corte, tamanhoLote);
+                    return ids.isEmpty() ? 0 : arquivoTransacaoRepository.mover(ids);
+                });
+                movidas += lote == null ? 0 : lote;
+            } while (lote != null && lote == tamanhoLote);
+            maisRecenteArquivada = arquivoTransacaoRepository.maisRecenteArquivada();
+            if (movidas > 0) {
+                log.info("Arquivamento: {} transações anteriores a {} movidas em {} ms", movidas, corte,
+                        (System.nanoTime() - inicio) / 1_000_000);
+            }
+        } finally {
+            arquivamento.unlock();
+        }
+    }
+}
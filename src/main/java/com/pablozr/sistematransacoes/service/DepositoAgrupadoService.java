@@ -0,0 +1,198 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.config.RoteadorReplicas;
+import com.pablozr.sistematransacoes.enums.TipoTransacao;
+import com.pablozr.sistematransacoes.exception.SobrecargaException;
+import com.pablozr.sistematransacoes.exception.ValorNegativoException;
+import com.pablozr.sistematransacoes.model.Transacao;
+import com.pablozr.sistematransacoes.model.Usuario;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit de depósitos: as requisições entram numa fila limitada e uma única thread grava
+ * cada lote acumulado numa transação, via TransacaoService.depositosAgrupados. Quem chama só
+ * recebe a transação depois do commit do seu lote, então a durabilidade é a mesma do caminho
+ * unitário; o que cai é o número de commits por segundo.
+ * <p>
+ * Se o lote falhar, cada depósito é regravado sozinho para que um pedido inválido não derrube
+ * os outros. Fila cheia responde 429.
+ */
+@Service
+public class DepositoAgrupadoService {
+    private static final Logger log = LoggerFactory.getLogger(DepositoAgrupadoService.class);
+
+    private final TransacaoService transacaoService;
+    private final ObjectProvider<RoteadorReplicas> roteadorReplicas;
+    private final boolean ativo;
+    private final int tamanhoLote;
+    private final long esperaNanos;
+    private final BlockingQueue<Pedido> fila;
+    private final ExecutorService gravador;
+    private final Counter lotes;
+    private final Counter depositos;
+    private final Timer tempoCommit;
+    private volatile boolean encerrando;
+
+    @Autowired
+    public DepositoAgrupadoService(TransacaoService transacaoService, ObjectProvider<RoteadorReplicas> roteadorReplicas,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${deposito.agrupado.enabled:false}") boolean ativo,
+                                   @Value("${deposito.agrupado.fila:10000}") int capacidadeFila,
+                                   @Value("${deposito.agrupado.tamanho-lote:500}") int tamanhoLote,
+                                   @Value("${deposito.agrupado.espera-ms:0}") long esperaMs) {
+        this.transacaoService = transacaoService;
+        this.roteadorReplicas = roteadorReplicas;
+        this.ativo = ativo;
+        this.tamanhoLote = Math.max(1, tamanhoLote);
+        this.esperaNanos = TimeUnit.MILLISECONDS.toNanos(esperaMs);
+        this.fila = new ArrayBlockingQueue<>(capacidadeFila);
+        this.lotes = Counter.builder("deposito.agrupado.lotes")
+                .description("Transações de banco abertas pelo group commit de depósitos")
+                .register(meterRegistry);
+        this.depositos = Counter.builder("deposito.agrupado.depositos")
+                .description("Depósitos gravados pelo group commit")
+                .register(meterRegistry);
+        this.tempoCommit = Timer.builder("deposito.agrupado.commit")
+                .description("Tempo para gravar e confirmar um lote de depósitos")
+                .register(meterRegistry);
+        Gauge.builder("deposito.agrupado.fila", fila, BlockingQueue::size).register(meterRegistry);
+        if (ativo) {
+            this.gravador = Executors.newSingleThreadExecutor(tarefa -> {
+                Thread thread = new Thread(tarefa, "deposito-agrupado");
+                thread.setDaemon(true);
+                return thread;
+            });
+            gravador.execute(this::processar);
+        } else {
+            this.gravador = null;
+        }
+    }
+
+    public boolean isAtivo() {
+        return ativo;
+    }
+
+    // Bloqueia até o lote que contém este depósito ser confirmado no banco
+    public Transacao depositar(Usuario usuario, BigDecimal valor) {
+        if (valor.compareTo(BigDecimal.ZERO) < 0) {
+            throw new ValorNegativoException("O valor do depósito deve ser positivo");
+        }
+        Transacao transacao = new Transacao();
+        transacao.setTipo(TipoTransacao.DEPOSITO);
+        transacao.setValor(valor);
+        transacao.setUsuario(usuario);
+        Pedido pedido = new Pedido(transacao, new CompletableFuture<>());
+        if (encerrando || !fila.offer(pedido)) {
+            throw new SobrecargaException("Muitos depósitos na fila no momento, tente novamente em instantes", 1);
+        }
+        try {
+            Transacao salva = pedido.resultado().join();
+            // O commit aconteceu na thread do gravador, sem o usuário da requisição para a leitura própria
+            roteadorReplicas.ifAvailable(RoteadorReplicas::registrarEscritaPropria);
+            return salva;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    private void processar() {
+        List<Pedido> lote = new ArrayList<>(tamanhoLote);
+        while (!encerrando) {
+            try {
+                lote.add(fila.take());
+                fila.drainTo(lote, tamanhoLote - lote.size());
+                // Espera opcional para juntar mais pedidos quando a carga é baixa
+                long limite = System.nanoTime() + esperaNanos;
+                while (lote.size() < tamanhoLote && esperaNanos > 0) {
+                    long restante = limite - System.nanoTime();
+                    Pedido proximo = restante > 0 ? fila.poll(restante, TimeUnit.NANOSECONDS) : null;
+                    if (proximo == null) {
+                        break;
+                    }
+                    lote.add(proximo);
+                    fila.drainTo(lote, tamanhoLote - lote.size());
+                }
+                gravar(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("Falha inesperada no group commit de depósitos", e);
+            } finally {
+                for (Pedido pedido : lote) {
+                    pedido.resultado().completeExceptionally(new IllegalStateException("Depósito não processado"));
+                }
+                lote.clear();
+            }
+        }
+    }
+
+    private void gravar(List<Pedido> lote) {
+        LocalDateTime agora = LocalDateTime.now();
+        List<Transacao> transacoes = new ArrayList<>(lote.size());
+        for (Pedido pedido : lote) {
+            pedido.transacao().setId(null);
+            pedido.transacao().setDataTransacao(agora);
+            transacoes.add(pedido.transacao());
+        }
+        long inicio = System.nanoTime();
+        try {
+            List<Transacao> salvas = transacaoService.depositosAgrupados(transacoes);
+            tempoCommit.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            lotes.increment();
+            depositos.increment(lote.size());
+            for (int i = 0; i < lote.size(); i++) {
+                lote.get(i).resultado().complete(salvas.get(i));
+            }
+        } catch (RuntimeException e) {
+            if (lote.size() == 1) {
+                lote.get(0).resultado().completeExceptionally(e);
+                return;
+            }
+            log.warn("Lote de {} depósitos falhou, regravando um a um", lote.size(), e);
+            for (Pedido pedido : lote) {
+                gravar(List.of(pedido));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        encerrando = true;
+        if (gravador != null) {
+            gravador.shutdownNow();
+        }
+        Pedido pedido;
+        while ((pedido = fila.poll()) != null) {
+            pedido.resultado().completeExceptionally(new SobrecargaException("Aplicação encerrando, tente novamente", 1));
+        }
+    }
+
+    private record Pedido(Transacao transacao, CompletableFuture<Transacao> resultado) {
+    }
+}
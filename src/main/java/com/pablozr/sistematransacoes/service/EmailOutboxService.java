@@ -0,0 +1,241 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.enums.StatusEmail;
+import com.pablozr.sistematransacoes.model.EmailPendente;
+import com.pablozr.sistematransacoes.repository.EmailPendenteRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caixa de saída de emails. enfileirar grava na transação de quem chama; um job agendado reserva
+ * lotes prontos e os divide entre os trabalhadores, e cada trabalhador manda sua parte numa única
+ * chamada a send(SimpleMailMessage...), que reaproveita a mesma conexão SMTP. Falhas voltam para
+ * a fila com espera exponencial até o limite de tentativas.
+ */
+@Service
+public class EmailOutboxService {
+    private static final Logger log = LoggerFactory.getLogger(EmailOutboxService.class);
+    private static final int TAMANHO_MAXIMO_ERRO = 500;
+
+    private final EmailPendenteRepository emailPendenteRepository;
+    private final JavaMailSender mailSender;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService trabalhadores;
+    private final int numeroTrabalhadores;
+    private final int tamanhoLote;
+    private final int maximoTentativas;
+    private final Duration esperaInicial;
+    private final Duration esperaMaxima;
+    private final Duration tempoMaximoReserva;
+    private final boolean ativo;
+    private final Counter enviados;
+    private final Counter falhas;
+    // Recontado só depois de uma drenagem que mexeu em linhas, para que nem a coleta de métricas nem uma fila parada vão ao banco
+    private final AtomicLong pendentes = new AtomicLong();
+
+    @Autowired
+    public EmailOutboxService(EmailPendenteRepository emailPendenteRepository, JavaMailSender mailSender,
+                              TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                              @Value("${email.outbox.trabalhadores:2}") int numeroTrabalhadores,
+                              @Value("${email.outbox.tamanho-lote:50}") int tamanhoLote,
+                              @Value("${email.outbox.maximo-tentativas:8}") int maximoTentativas,
+                              @Value("${email.outbox.espera-inicial-ms:5000}") long esperaInicialMs,
+                              @Value("${email.outbox.espera-maxima-ms:3600000}") long esperaMaximaMs,
+                              @Value("${email.outbox.tempo-maximo-reserva-ms:600000}") long tempoMaximoReservaMs,
+                              @Value("${email.outbox.enabled:true}") boolean ativo) {
+        this.emailPendenteRepository = emailPendenteRepository;
+        this.mailSender = mailSender;
+        this.transactionTemplate = transactionTemplate;
+        this.numeroTrabalhadores = Math.max(1, numeroTrabalhadores);
+        this.trabalhadores = Executors.newFixedThreadPool(this.numeroTrabalhadores);
+        this.tamanhoLote = tamanhoLote;
+        this.maximoTentativas = maximoTentativas;
+        this.esperaInicial = Duration.ofMillis(esperaInicialMs);
+        this.esperaMaxima = Duration.ofMillis(esperaMaximaMs);
+        this.tempoMaximoReserva = Duration.ofMillis(tempoMaximoReservaMs);
+        this.ativo = ativo;
+        this.enviados = Counter.builder("email.outbox.enviados").register(meterRegistry);
+        this.falhas = Counter.builder("email.outbox.falhas").register(meterRegistry);
+        Gauge.builder("email.outbox.pendentes", pendentes, AtomicLong::get).register(meterRegistry);
+    }
+
+    // Deve ser chamado dentro da transação que criou o motivo do email, para os dois irem juntos para o banco
+    public void enfileirar(String destinatario, String assunto, String corpo) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("O email deve ser enfileirado dentro de uma transação");
+        }
+        LocalDateTime agora = LocalDateTime.now();
+        EmailPendente email = new EmailPendente();
+        email.setDestinatario(destinatario);
+        email.setAssunto(assunto);
+        email.setCorpo(corpo);
+        email.setStatus(StatusEmail.PENDENTE);
+        email.setTentativas(0);
+        email.setProximaTentativa(agora);
+        email.setDataCriacao(agora);
+        emailPendenteRepository.save(email);
+    }
+
+    // Com email.outbox.enabled=false a fila só é drenada por chamadas diretas a drenar()
+    @Scheduled(fixedDelayString = "${email.outbox.intervalo-ms:1000}",
+            initialDelayString = "${email.outbox.atraso-inicial-ms:1000}")
+    public void drenarAgendado() {
+        if (ativo) {
+            drenar();
+        }
+    }
+
+    public void drenar() {
+        Integer liberadas = transactionTemplate.execute(status ->
+                emailPendenteRepository.liberarReservasAbandonadas(LocalDateTime.now().minus(tempoMaximoReserva)));
+        boolean movimentou = liberadas != null && liberadas > 0;
+        List<EmailPendente> lote;
+        do {
+            lote = reservarLote();
+            if (!lote.isEmpty()) {
+                enviar(lote);
+                movimentou = true;
+            }
+        } while (lote.size() == tamanhoLote);
+        if (movimentou) {
+            atualizarPendentes();
+        }
+    }
+
+    private void atualizarPendentes() {
+        pendentes.set(emailPendenteRepository.countByStatus(StatusEmail.PENDENTE));
+    }
+
+    private List<EmailPendente> reservarLote() {
+        String reserva = UUID.randomUUID().toString();
+        return transactionTemplate.execute(status -> {
+            LocalDateTime agora = LocalDateTime.now();
+            List<Long> ids = emailPendenteRepository.buscarIdsProntos(agora, PageRequest.of(0, tamanhoLote));
+            if (ids.isEmpty() || emailPendenteRepository.reservar(ids, reserva, agora) == 0) {
+                return List.of();
+            }
+            return emailPendenteRepository.findByReserva(reserva);
+        });
+    }
+
+    private void enviar(List<EmailPendente> lote) {
+        // Cada trabalhador recebe uma fatia contígua e faz um único send com ela
+        int tamanhoFatia = (lote.size() + numeroTrabalhadores - 1) / numeroTrabalhadores;
+        List<Future<Map<Long, String>>> resultados = new ArrayList<>();
+        for (int inicio = 0; inicio < lote.size(); inicio += tamanhoFatia) {
+            List<EmailPendente> fatia = lote.subList(inicio, Math.min(inicio + tamanhoFatia, lote.size()));
+            resultados.add(trabalhadores.submit((Callable<Map<Long, String>>) () -> enviarFatia(fatia)));
+        }
+        Map<Long, String> erros = new HashMap<>();
+        for (Future<Map<Long, String>> resultado : resultados) {
+            try {
+                erros.putAll(resultado.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return; // As reservas voltam para a fila por tempo máximo de reserva
+            } catch (ExecutionException e) {
+                log.error("Erro inesperado no envio de emails", e.getCause());
+                return;
+            }
+        }
+        registrarResultado(lote, erros);
+    }
+
+    // Devolve o erro de cada email que falhou, por id
+    private Map<Long, String> enviarFatia(List<EmailPendente> fatia) {
+        SimpleMailMessage[] mensagens = new SimpleMailMessage[fatia.size()];
+        for (int i = 0; i < mensagens.length; i++) {
+            EmailPendente email = fatia.get(i);
+            SimpleMailMessage mensagem = new SimpleMailMessage();
+            mensagem.setTo(email.getDestinatario());
+            mensagem.setSubject(email.getAssunto());
+            mensagem.setText(email.getCorpo());
+            mensagens[i] = mensagem;
+        }
+        Map<Long, String> erros = new HashMap<>();
+        try {
+            mailSender.send(mensagens);
+        } catch (MailSendException e) {
+            Map<Object, Exception> falhasPorMensagem = e.getFailedMessages();
+            for (int i = 0; i < mensagens.length; i++) {
+                Exception causa = falhasPorMensagem.get(mensagens[i]);
+                if (causa != null || falhasPorMensagem.isEmpty()) {
+                    erros.put(fatia.get(i).getId(), String.valueOf(causa != null ? causa.getMessage() : e.getMessage()));
+                }
+            }
+        } catch (MailException e) {
+            // Conexão ou autenticação: nada da fatia foi enviado
+            for (EmailPendente email : fatia) {
+                erros.put(email.getId(), String.valueOf(e.getMessage()));
+            }
+        }
+        return erros;
+    }
+
+    private void registrarResultado(List<EmailPendente> lote, Map<Long, String> erros) {
+        LocalDateTime agora = LocalDateTime.now();
+        for (EmailPendente email : lote) {
+            email.setReserva(null);
+            email.setReservadoEm(null);
+            String erro = erros.get(email.getId());
+            if (erro == null) {
+                email.setStatus(StatusEmail.ENVIADO);
+                email.setUltimoErro(null);
+                continue;
+            }
+            int tentativas = email.getTentativas() + 1;
+            email.setTentativas(tentativas);
+            email.setUltimoErro(erro.length() > TAMANHO_MAXIMO_ERRO ? erro.substring(0, TAMANHO_MAXIMO_ERRO) : erro);
+            if (tentativas >= maximoTentativas) {
+                email.setStatus(StatusEmail.FALHA);
+                log.warn("Email {} para {} descartado após {} tentativas: {}", email.getId(), email.getDestinatario(), tentativas, erro);
+            } else {
+                email.setStatus(StatusEmail.PENDENTE);
+                email.setProximaTentativa(agora.plus(espera(tentativas)));
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> emailPendenteRepository.saveAll(lote));
+        enviados.increment(lote.size() - erros.size());
+        falhas.increment(erros.size());
+    }
+
+    // esperaInicial * 2^(tentativas-1), limitada por esperaMaxima
+    private Duration espera(int tentativas) {
+        Duration espera = esperaInicial.multipliedBy(1L << Math.min(tentativas - 1, 30));
+        return espera.compareTo(esperaMaxima) > 0 ? esperaMaxima : espera;
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        trabalhadores.shutdown();
+    }
+}
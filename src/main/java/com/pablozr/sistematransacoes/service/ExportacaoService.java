@@ -0,0 +1,89 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.pablozr.sistematransacoes.controller.dto.TransacaoDTOOut;
+import com.pablozr.sistematransacoes.enums.FormatoExportacao;
+import com.pablozr.sistematransacoes.enums.TipoTransacao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+// Escreve o histórico completo linha a linha, sem montar a lista em memória
+@Service
+public class ExportacaoService {
+    private static final String CABECALHO_CSV = "id,tipo,valor,dataTransacao,usuarioId,destinatarioId,usuarioNome,destinatarioNome";
+
+    private final TransacaoService transacaoService;
+    private final ObjectWriter escritorJson;
+
+    @Autowired
+    public ExportacaoService(TransacaoService transacaoService, ObjectMapper objectMapper) {
+        this.transacaoService = transacaoService;
+        this.escritorJson = objectMapper.writerFor(TransacaoDTOOut.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    public void exportar(Long usuarioId, FormatoExportacao formato, TipoTransacao tipo, LocalDateTime dataInicio,
+                         LocalDateTime dataFim, OutputStream saida) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8));
+        if (formato == FormatoExportacao.CSV) {
+            writer.write(CABECALHO_CSV);
+            writer.write('\n');
+        }
+        try {
+            transacaoService.exportarTransacoes(usuarioId, tipo, dataInicio, dataFim, transacao -> {
+                try {
+                    if (formato == FormatoExportacao.CSV) {
+                        escreverCsv(writer, transacao);
+                    } else {
+                        escritorJson.writeValue(writer, transacao);
+                    }
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // Cliente desconectou: a exceção encerra o stream e libera a conexão
+        }
+        writer.flush();
+    }
+
+    private void escreverCsv(Writer writer, TransacaoDTOOut transacao) throws IOException {
+        writer.write(String.valueOf(transacao.getId()));
+        writer.write(',');
+        writer.write(transacao.getTipo().name());
+        writer.write(',');
+        writer.write(transacao.getValor().toPlainString());
+        writer.write(',');
+        writer.write(transacao.getDataTransacao().toString());
+        writer.write(',');
+        writer.write(String.valueOf(transacao.getUsuarioId()));
+        writer.write(',');
+        writer.write(transacao.getDestinatarioId() != null ? transacao.getDestinatarioId().toString() : "");
+        writer.write(',');
+        writer.write(campoCsv(transacao.getUsuarioNome()));
+        writer.write(',');
+        writer.write(campoCsv(transacao.getDestinatarioNome()));
+    }
+
+    private String campoCsv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,178 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.repository.TokenBlackListRepository;
+import com.pablozr.sistematransacoes.utils.FiltroBloom;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Filtro de Bloom sobre os tokens vivos da token_blacklist. Um "não" dispensa a consulta ao banco;
+ * só um "talvez" vai ao existsByToken. É reconstruído periodicamente para descartar tokens expirados.
+ * <p>
+ * Logouts feitos em outra instância não passam por {@link #adicionar}: a cada
+ * {@code token.blacklist.bloom.sincronizacao-ms} (5 s por padrão) o filtro lê as linhas gravadas
+ * desde a última leitura, então um token revogado em outro nó deixa de funcionar aqui em no máximo
+ * esse intervalo, bem abaixo da hora de vida do token.
+ */
+@Component
+public class FiltroTokenBlacklist {
+    private static final Logger log = LoggerFactory.getLogger(FiltroTokenBlacklist.class);
+    // Releitura das linhas que expiram até este tanto antes da maior já vista: cobre relógios
+    // diferentes entre as instâncias e transações que confirmam depois da leitura
+    private static final Duration MARGEM_SINCRONIZACAO = Duration.ofMinutes(1);
+
+    private final TokenBlackListRepository tokenBlackListRepository;
+    private final TransactionTemplate transacaoLeitura;
+    private final double probabilidadeFalsoPositivo;
+    private final long capacidadeMinima;
+    private final LongAdder negativosDoFiltro = new LongAdder();
+    private final LongAdder falsosPositivos = new LongAdder();
+    private final ReentrantLock reconstrucao = new ReentrantLock();
+
+    // Nulo até a primeira carga: enquanto isso toda consulta vai ao banco
+    private volatile FiltroBloom atual;
+    private volatile FiltroBloom emConstrucao;
+    // Só lido e escrito com o lock de reconstrução
+    private LocalDateTime sincronizadoAte;
+
+    @Autowired
+    public FiltroTokenBlacklist(TokenBlackListRepository tokenBlackListRepository, PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${token.blacklist.bloom.probabilidade-falso-positivo:0.001}") double probabilidadeFalsoPositivo,
+                                @Value("${token.blacklist.bloom.capacidade-minima:10000}") long capacidadeMinima) {
+        this.tokenBlackListRepository = tokenBlackListRepository;
+        this.transacaoLeitura = new TransactionTemplate(transactionManager);
+        this.transacaoLeitura.setReadOnly(true);
+        this.probabilidadeFalsoPositivo = probabilidadeFalsoPositivo;
+        this.capacidadeMinima = capacidadeMinima;
+
+        Gauge.builder("token.blacklist.bloom.falso.positivo.estimado", this, f -> f.atual != null ? f.atual.probabilidadeFalsoPositivoEstimada() : 0)
+                .description("Taxa de falso positivo estimada pela ocupação do filtro")
+                .register(meterRegistry);
+        Gauge.builder("token.blacklist.bloom.falso.positivo.observado", this, FiltroTokenBlacklist::taxaFalsoPositivoObservada)
+                .description("Falsos positivos sobre o total de tokens fora da blacklist consultados")
+                .register(meterRegistry);
+        Gauge.builder("token.blacklist.bloom.memoria", this, f -> f.atual != null ? f.atual.tamanhoEmBytes() : 0)
+                .description("Memória ocupada pelo vetor de bits do filtro")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregar() {
+        reconstruir();
+    }
+
+    @Scheduled(fixedDelayString = "${token.blacklist.bloom.reconstrucao-ms:900000}",
+            initialDelayString = "${token.blacklist.bloom.reconstrucao-ms:900000}")
+    public void reconstruirAgendado() {
+        reconstruir();
+    }
+
+    @Scheduled(fixedDelayString = "${token.blacklist.bloom.sincronizacao-ms:5000}",
+            initialDelayString = "${token.blacklist.bloom.sincronizacao-ms:5000}")
+    public void sincronizar() {
+        if (atual == null) {
+            return; // A primeira carga ainda não terminou e toda consulta vai ao banco
+        }
+        reconstrucao.lock();
+        try {
+            FiltroBloom filtro = atual;
+            List<Object[]> novos = tokenBlackListRepository.buscarTokensExpirandoDepoisDe(sincronizadoAte.minus(MARGEM_SINCRONIZACAO));
+            for (Object[] linha : novos) {
+                filtro.adicionar((String) linha[0]);
+                LocalDateTime expiracao = (LocalDateTime) linha[1];
+                if (expiracao.isAfter(sincronizadoAte)) {
+                    sincronizadoAte = expiracao;
+                }
+            }
+        } finally {
+            reconstrucao.unlock();
+        }
+    }
+
+    // ReentrantLock em vez de synchronized: a carga faz I/O e não deve prender a thread portadora de uma thread virtual
+    public void reconstruir() {
+        reconstrucao.lock();
+        try {
+            carregarNovoFiltro();
+        } finally {
+            reconstrucao.unlock();
+        }
+    }
+
+    private void carregarNovoFiltro() {
+        LocalDateTime agora = LocalDateTime.now();
+        long inicio = System.nanoTime();
+        long vivos = tokenBlackListRepository.countByExpiryDateAfter(agora);
+        // Lido antes da carga: o que for gravado durante ela a sincronização seguinte relê
+        LocalDateTime maiorExpiracao = tokenBlackListRepository.buscarMaiorExpiracao().orElse(agora);
+        // Folga para as inserções até a próxima reconstrução
+        FiltroBloom novo = new FiltroBloom(Math.max(capacidadeMinima, vivos * 2), probabilidadeFalsoPositivo);
+        emConstrucao = novo;
+        try {
+            transacaoLeitura.executeWithoutResult(status -> {
+                try (Stream<String> tokens = tokenBlackListRepository.streamTokensValidos(agora)) {
+                    tokens.forEach(novo::adicionar);
+                }
+            });
+            sincronizadoAte = maiorExpiracao;
+            atual = novo;
+        } finally {
+            emConstrucao = null;
+        }
+        log.info("Filtro da blacklist reconstruído com {} tokens em {} ms ({} bytes)",
+                vivos, (System.nanoTime() - inicio) / 1_000_000, novo.tamanhoEmBytes());
+    }
+
+    // Chamado depois do token já gravado, então uma reconstrução em andamento o vê na consulta ou aqui
+    public void adicionar(String token) {
+        FiltroBloom construindo = emConstrucao;
+        FiltroBloom filtro = atual;
+        if (construindo != null) {
+            construindo.adicionar(token);
+        }
+        if (filtro != null) {
+            filtro.adicionar(token);
+        }
+    }
+
+    public boolean talvezContenha(String token) {
+        FiltroBloom filtro = atual;
+        if (filtro == null || filtro.talvezContenha(token)) {
+            return true;
+        }
+        negativosDoFiltro.increment();
+        return false;
+    }
+
+    // Resultado do banco para um "talvez" do filtro
+    public void registrarConsulta(boolean naBlacklist) {
+        if (!naBlacklist && atual != null) {
+            falsosPositivos.increment();
+        }
+    }
+
+    private double taxaFalsoPositivoObservada() {
+        long falsos = falsosPositivos.sum();
+        long total = falsos + negativosDoFiltro.sum();
+        return total == 0 ? 0 : (double) falsos / total;
+    }
+}
@@ -0,0 +1,124 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.exception.SobrecargaException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executa o BCrypt num pool próprio, limitado a uma fração dos núcleos e com fila curta, para que uma
+ * rajada de logins não tome a CPU das transferências. Com a fila cheia a chamada falha na hora com
+ * SobrecargaException (429), com um Retry-After estimado pela fila e pelo tempo médio de hash.
+ */
+@Service
+public class HashSenhaService {
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final int threads;
+    private final Timer tempoCodificar;
+    private final Timer tempoConferir;
+    private final Counter rejeitados;
+
+    @Autowired
+    public HashSenhaService(PasswordEncoder passwordEncoder, MeterRegistry meterRegistry,
+                            @Value("${senha.hash.fracao-cpus:0.5}") double fracaoCpus,
+                            @Value("${senha.hash.fila:64}") int tamanhoFila) {
+        this.passwordEncoder = passwordEncoder;
+        this.threads = Math.max(1, (int) Math.floor(Runtime.getRuntime().availableProcessors() * fracaoCpus));
+        AtomicInteger contador = new AtomicInteger();
+        // Fila zero: só entra quem encontrar uma thread livre
+        BlockingQueue<Runnable> fila = tamanhoFila > 0 ? new ArrayBlockingQueue<>(tamanhoFila) : new SynchronousQueue<>();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, fila,
+                tarefa -> {
+                    Thread thread = new Thread(tarefa, "hash-senha-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.tempoCodificar = Timer.builder("senha.hash.tempo").tag("operacao", "codificar")
+                .description("Tempo de CPU de cada hash BCrypt, sem a espera na fila")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.tempoConferir = Timer.builder("senha.hash.tempo").tag("operacao", "conferir")
+                .description("Tempo de CPU de cada hash BCrypt, sem a espera na fila")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.rejeitados = Counter.builder("senha.hash.rejeitados")
+                .description("Pedidos de hash recusados com a fila cheia")
+                .register(meterRegistry);
+        Gauge.builder("senha.hash.fila", executor, e -> e.getQueue().size())
+                .description("Hashes aguardando uma thread do pool")
+                .register(meterRegistry);
+        Gauge.builder("senha.hash.ativos", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    public String codificar(String senha) {
+        return executar(tempoCodificar, () -> passwordEncoder.encode(senha));
+    }
+
+    public boolean conferir(String senha, String hash) {
+        return executar(tempoConferir, () -> passwordEncoder.matches(senha, hash));
+    }
+
+    private <T> T executar(Timer timer, Callable<T> hash) {
+        Future<T> futuro;
+        try {
+            futuro = executor.submit(() -> {
+                long inicio = System.nanoTime();
+                try {
+                    return hash.call();
+                } finally {
+                    timer.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejeitados.increment();
+            throw new SobrecargaException("Muitas requisições de autenticação no momento, tente novamente em instantes", retryAfterSegundos());
+        }
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            futuro.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido aguardando o hash da senha", e);
+        } catch (CancellationException e) {
+            throw new IllegalStateException("Hash da senha cancelado", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException("Falha ao calcular o hash da senha", e.getCause());
+        }
+    }
+
+    // Tempo para esvaziar a fila atual com as threads do pool, arredondado para cima
+    private long retryAfterSegundos() {
+        double mediaMs = Math.max(tempoCodificar.mean(TimeUnit.MILLISECONDS), tempoConferir.mean(TimeUnit.MILLISECONDS));
+        double esperaMs = (executor.getQueue().size() + threads) * mediaMs / threads;
+        return Math.max(1, (long) Math.ceil(esperaMs / 1000));
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,172 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pablozr.sistematransacoes.controller.dto.TransacaoDTOOut;
+import com.pablozr.sistematransacoes.exception.ChaveIdempotenciaReutilizadaException;
+import com.pablozr.sistematransacoes.exception.RequisicaoInvalidaException;
+import com.pablozr.sistematransacoes.model.ChaveIdempotencia;
+import com.pablozr.sistematransacoes.repository.ChaveIdempotenciaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicação de operações pelo header Idempotency-Key, em dois níveis: um cache Caffeine
+ * com o resultado (ou a execução em andamento) e a tabela chave_idempotencia, com restrição
+ * única por usuário e chave, gravada na mesma transação da operação.
+ * <p>
+ * Cada chave guarda a impressão digital da operação e do corpo; repetir a chave com outro
+ * endpoint ou outro corpo é recusado em vez de devolver a resposta de uma operação diferente.
+ * As chaves valem por {@link #VALIDADE}: uma chave expirada não é mais repetida, mesmo que a limpeza
+ * de tokens ainda não a tenha apagado, e a próxima requisição com ela executa de novo.
+ */
+@Service
+public class IdempotenciaService {
+    public static final Duration VALIDADE = Duration.ofHours(24);
+    private static final int TAMANHO_MAXIMO_CHAVE = 100;
+
+    private final ChaveIdempotenciaRepository chaveIdempotenciaRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, Execucao> respostas = Caffeine.newBuilder()
+            .expireAfterWrite(VALIDADE)
+            .maximumSize(100_000)
+            .build();
+
+    @Autowired
+    public IdempotenciaService(ChaveIdempotenciaRepository chaveIdempotenciaRepository, PlatformTransactionManager transactionManager,
+                               ObjectMapper objectMapper) {
+        this.chaveIdempotenciaRepository = chaveIdempotenciaRepository;
+        // A operação participa desta transação; o livro razão exige READ COMMITTED para conferir o saldo após a trava
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.objectMapper = objectMapper;
+    }
+
+    // nomeOperacao e requisicao compõem a impressão digital conferida nas repetições da chave
+    public TransacaoDTOOut executar(Long usuarioId, String chave, String nomeOperacao, Object requisicao,
+                                    Supplier<TransacaoDTOOut> operacao) {
+        if (chave == null) {
+            return operacao.get();
+        }
+        if (chave.isBlank() || chave.length() > TAMANHO_MAXIMO_CHAVE) {
+            throw new RequisicaoInvalidaException("Idempotency-Key deve ter entre 1 e " + TAMANHO_MAXIMO_CHAVE + " caracteres");
+        }
+
+        String impressaoDigital = impressaoDigital(nomeOperacao, requisicao);
+
+        // Quem insere o future executa; requisições repetidas esperam pelo mesmo resultado
+        ConcurrentMap<String, Execucao> emCache = respostas.asMap();
+        String chaveCache = usuarioId + ":" + chave;
+        Execucao execucao = new Execucao(impressaoDigital, new CompletableFuture<>());
+        Execucao existente = emCache.putIfAbsent(chaveCache, execucao);
+        if (existente != null) {
+            conferir(existente.impressaoDigital(), impressaoDigital);
+            return aguardar(existente.resposta());
+        }
+
+        try {
+            TransacaoDTOOut resposta = chaveIdempotenciaRepository.buscarValida(usuarioId, chave, LocalDateTime.now().minus(VALIDADE))
+                    .map(registro -> lerResposta(registro, impressaoDigital))
+                    .orElseGet(() -> executarERegistrar(usuarioId, chave, impressaoDigital, operacao));
+            execucao.resposta().complete(resposta);
+            return resposta;
+        } catch (RuntimeException e) {
+            // Falhas não são memorizadas: quem esperava recebe o erro e uma nova tentativa executa de novo
+            emCache.remove(chaveCache, execucao);
+            execucao.resposta().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private TransacaoDTOOut executarERegistrar(Long usuarioId, String chave, String impressaoDigital,
+                                               Supplier<TransacaoDTOOut> operacao) {
+        try {
+            return transactionTemplate.execute(status -> {
+                chaveIdempotenciaRepository.removerExpirada(usuarioId, chave, LocalDateTime.now().minus(VALIDADE));
+                TransacaoDTOOut resposta = operacao.get();
+                ChaveIdempotencia registro = new ChaveIdempotencia();
+                registro.setUsuarioId(usuarioId);
+                registro.setChave(chave);
+                registro.setImpressaoDigital(impressaoDigital);
+                registro.setResposta(escreverResposta(resposta));
+                registro.setDataCriacao(LocalDateTime.now());
+                chaveIdempotenciaRepository.saveAndFlush(registro);
+                return resposta;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Outra instância registrou a mesma chave antes; a operação desta foi desfeita junto com a transação
+            return chaveIdempotenciaRepository.buscarValida(usuarioId, chave, LocalDateTime.now().minus(VALIDADE))
+                    .map(registro -> lerResposta(registro, impressaoDigital))
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    private TransacaoDTOOut aguardar(CompletableFuture<TransacaoDTOOut> execucao) {
+        try {
+            return execucao.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    private String escreverResposta(TransacaoDTOOut resposta) {
+        try {
+            return objectMapper.writeValueAsString(resposta);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Não foi possível serializar a resposta idempotente", e);
+        }
+    }
+
+    private String impressaoDigital(String nomeOperacao, Object requisicao) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            sha256.update(nomeOperacao.getBytes(StandardCharsets.UTF_8));
+            sha256.update((byte) '\n');
+            sha256.update(objectMapper.writeValueAsBytes(requisicao));
+            return HexFormat.of().formatHex(sha256.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Não foi possível serializar a requisição idempotente", e);
+        }
+    }
+
+    private static void conferir(String registrada, String recebida) {
+        if (!registrada.equals(recebida)) {
+            throw new ChaveIdempotenciaReutilizadaException("Idempotency-Key já usada com outra operação ou outro corpo de requisição");
+        }
+    }
+
+    private TransacaoDTOOut lerResposta(ChaveIdempotencia registro, String impressaoDigital) {
+        conferir(registro.getImpressaoDigital(), impressaoDigital);
+        try {
+            return objectMapper.readValue(registro.getResposta(), TransacaoDTOOut.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Resposta idempotente armazenada inválida", e);
+        }
+    }
+
+    private record Execucao(String impressaoDigital, CompletableFuture<TransacaoDTOOut> resposta) {
+    }
+}
@@ -0,0 +1,136 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+import com.pablozr.sistematransacoes.utils.IndiceTrigramas;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Mantém o {@link IndiceTrigramas} da busca administrativa de usuários: carrega tudo quando a
+ * aplicação sobe e aplica criações, alterações e remoções depois do commit. Enquanto a carga não
+ * termina, {@link #buscar} devolve vazio e a busca usa o caminho antigo no banco.
+ * <p>
+ * Cada instância só enxerga as próprias escritas; com mais de uma instância, configure
+ * busca.usuarios.indice.reconstrucao-cron para recarregar periodicamente.
+ */
+@Service
+public class IndiceBuscaUsuariosService {
+    private static final Logger log = LoggerFactory.getLogger(IndiceBuscaUsuariosService.class);
+
+    private final UsuarioRepository usuarioRepository;
+    private final boolean ativo;
+    private final int tamanhoLote;
+    private final ReentrantLock reconstrucao = new ReentrantLock();
+    private volatile IndiceTrigramas indice;
+    private volatile IndiceTrigramas emConstrucao;
+
+    @Autowired
+    public IndiceBuscaUsuariosService(UsuarioRepository usuarioRepository,
+                                      @Value("${busca.usuarios.indice.enabled:true}") boolean ativo,
+                                      @Value("${busca.usuarios.indice.tamanho-lote:10000}") int tamanhoLote) {
+        this.usuarioRepository = usuarioRepository;
+        this.ativo = ativo;
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregar() {
+        if (ativo) {
+            reconstruir();
+        }
+    }
+
+    @Scheduled(cron = "${busca.usuarios.indice.reconstrucao-cron:-}")
+    public void reconstruir() {
+        if (!ativo || !reconstrucao.tryLock()) {
+            return;
+        }
+        try {
+            long inicio = System.nanoTime();
+            IndiceTrigramas novo = new IndiceTrigramas();
+            emConstrucao = novo;
+            Long apos = 0L;
+            List<Object[]> linhas;
+            do {
+                linhas = usuarioRepository.carregarParaIndice(apos, PageRequest.of(0, tamanhoLote));
+                for (Object[] linha : linhas) {
+                    novo.indexarSeAusente((Long) linha[0], (String) linha[1], (String) linha[2]);
+                }
+                if (!linhas.isEmpty()) {
+                    apos = (Long) linhas.get(linhas.size() - 1)[0];
+                }
+            } while (linhas.size() == tamanhoLote);
+            indice = novo;
+            emConstrucao = null;
+            log.info("Índice de busca de usuários carregado com {} usuários em {} ms", novo.tamanho(),
+                    (System.nanoTime() - inicio) / 1_000_000);
+        } finally {
+            reconstrucao.unlock();
+        }
+    }
+
+    /**
+     * Ids dos usuários que casam com os filtros de texto, em ordem crescente. Vazio quando não há
+     * filtro de texto ou o índice ainda não está pronto.
+     */
+    public Optional<long[]> buscar(String nome, String email) {
+        IndiceTrigramas atual = indice;
+        if (atual == null || ((nome == null || nome.isBlank()) && (email == null || email.isBlank()))) {
+            return Optional.empty();
+        }
+        return Optional.of(atual.buscar(nome, email));
+    }
+
+    public void indexar(Usuario usuario) {
+        Long id = usuario.getId();
+        String nome = usuario.getNome();
+        String email = usuario.getEmail();
+        aposCommit(alvo -> alvo.indexar(id, nome, email));
+    }
+
+    public void remover(Long id) {
+        aposCommit(alvo -> alvo.remover(id));
+    }
+
+    // A escrita vai também para o índice em construção, que não sobrescreve o que já recebeu assim
+    private void aposCommit(Consumer<IndiceTrigramas> alteracao) {
+        if (!ativo) {
+            return;
+        }
+        Runnable aplicar = () -> {
+            IndiceTrigramas novo = emConstrucao;
+            if (novo != null) {
+                alteracao.accept(novo);
+            }
+            IndiceTrigramas atual = indice;
+            if (atual != null && atual != novo) {
+                alteracao.accept(atual);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar.run();
+                }
+            });
+        } else {
+            aplicar.run();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.enums.TipoTransacao;
+import com.pablozr.sistematransacoes.exception.SaldoInsuficienteException;
+import com.pablozr.sistematransacoes.exception.UsuarioNaoEncontradoException;
+import com.pablozr.sistematransacoes.model.Transacao;
+import com.pablozr.sistematransacoes.repository.OperacoesLoteRepository;
+import com.pablozr.sistematransacoes.repository.TransacaoRepository;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Mantém os saldos vivos em memória, protegidos por travas listradas por conta.
+ * As travas de uma operação são adquiridas sempre em ordem crescente de listra, então
+ * duas transferências cruzadas nunca entram em deadlock. Cada operação grava no banco
+ * dentro da transação corrente e só publica o novo saldo em memória após o commit;
+ * as travas ficam retidas até o fim da transação.
+ * Só é seguro com uma única instância da aplicação escrevendo saldos.
+ */
+@Service
+public class LedgerEngine {
+    private final UsuarioRepository usuarioRepository;
+    private final TransacaoRepository transacaoRepository;
+    private final OperacoesLoteRepository operacoesLoteRepository;
+    private final boolean ativo;
+    private final ReentrantLock[] travas;
+    private final ConcurrentHashMap<Long, BigDecimal> saldos = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LedgerEngine(UsuarioRepository usuarioRepository, TransacaoRepository transacaoRepository,
+                        OperacoesLoteRepository operacoesLoteRepository,
+                        @Value("${ledger.engine.enabled:false}") boolean ativo,
+                        @Value("${ledger.engine.stripes:256}") int listras) {
+        this.usuarioRepository = usuarioRepository;
+        this.transacaoRepository = transacaoRepository;
+        this.operacoesLoteRepository = operacoesLoteRepository;
+        this.ativo = ativo;
+        this.travas = new ReentrantLock[listras];
+        for (int i = 0; i < listras; i++) {
+            travas[i] = new ReentrantLock();
+        }
+    }
+
+    public boolean isAtivo() {
+        return ativo;
+    }
+
+    public Transacao registrar(Transacao transacao) {
+        return registrarLote(List.of(transacao)).get(0);
+    }
+
+    // Todas as contas envolvidas são travadas de uma vez, em ordem de listra, antes de qualquer escrita
+    public List<Transacao> registrarLote(List<Transacao> transacoes) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("O LedgerEngine exige uma transação ativa");
+        }
+        Map<Long, BigDecimal> variacoes = new HashMap<>();
+        for (Transacao transacao : transacoes) {
+            if (transacao.getTipo() == TipoTransacao.TRANSFERENCIA) {
+                variacoes.merge(transacao.getUsuario().getId(), transacao.getValor().negate(), BigDecimal::add);
+                variacoes.merge(transacao.getDestinatario().getId(), transacao.getValor(), BigDecimal::add);
+            } else {
+                variacoes.merge(transacao.getUsuario().getId(), transacao.getValor(), BigDecimal::add);
+            }
+        }
+
+        List<ReentrantLock> adquiridas = travar(variacoes.keySet());
+        boolean liberacaoAgendada = false;
+        try {
+            Map<Long, BigDecimal> novosSaldos = new HashMap<>();
+            variacoes.forEach((usuarioId, variacao) -> {
+                BigDecimal novoSaldo = saldoAtual(usuarioId).add(variacao);
+                if (variacao.signum() < 0 && novoSaldo.signum() < 0) {
+                    throw new SaldoInsuficienteException("Saldo insuficiente");
+                }
+                novosSaldos.put(usuarioId, novoSaldo);
+            });
+            novosSaldos.forEach(usuarioRepository::definirSaldo);
+            List<Transacao> salvas;
+            if (transacoes.size() == 1) {
+                salvas = List.of(transacaoRepository.save(transacoes.get(0)));
+            } else {
+                operacoesLoteRepository.inserirTransacoes(transacoes);
+                salvas = transacoes;
+            }
+
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    saldos.putAll(novosSaldos);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    liberar(adquiridas);
+                }
+            });
+            liberacaoAgendada = true;
+            return salvas;
+        } finally {
+            if (!liberacaoAgendada) {
+                liberar(adquiridas);
+            }
+        }
+    }
+
+    // Chamado quando a conta deixa de existir, para que um id reaproveitado não herde o saldo em memória
+    public void descartar(Long usuarioId) {
+        saldos.remove(usuarioId);
+    }
+
+    private BigDecimal saldoAtual(Long usuarioId) {
+        BigDecimal saldo = saldos.get(usuarioId);
+        if (saldo != null) {
+            return saldo;
+        }
+        saldo = usuarioRepository.buscarSaldo(usuarioId)
+                .orElseThrow(() -> new UsuarioNaoEncontradoException("Usuário não encontrado"));
+        saldos.put(usuarioId, saldo);
+        return saldo;
+    }
+
+    private List<ReentrantLock> travar(Collection<Long> usuarioIds) {
+        TreeSet<Integer> listras = new TreeSet<>();
+        for (Long usuarioId : usuarioIds) {
+            listras.add(listra(usuarioId));
+        }
+        List<ReentrantLock> adquiridas = new ArrayList<>(listras.size());
+        for (Integer listra : listras) {
+            travas[listra].lock();
+            adquiridas.add(travas[listra]);
+        }
+        return adquiridas;
+    }
+
+    private void liberar(List<ReentrantLock> adquiridas) {
+        for (int i = adquiridas.size() - 1; i >= 0; i--) {
+            adquiridas.get(i).unlock();
+        }
+    }
+
+    private int listra(Long usuarioId) {
+        return Math.floorMod(Long.hashCode(usuarioId * 0x9E3779B97F4A7C15L), travas.length);
+    }
+}
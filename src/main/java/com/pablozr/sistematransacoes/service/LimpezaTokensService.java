@@ -0,0 +1,141 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.repository.ChaveIdempotenciaRepository;
+import com.pablozr.sistematransacoes.repository.ConfirmacaoEmailTokenRepository;
+import com.pablozr.sistematransacoes.repository.EmailPendenteRepository;
+import com.pablozr.sistematransacoes.repository.ResetPasswordTokenRepository;
+import com.pablozr.sistematransacoes.repository.TokenBlackListRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Remove periodicamente os tokens expirados das tabelas token_blacklist, reset_password_token e
+ * confirmacao_email_token, os emails já enviados ou desistidos de email_outbox, cujo corpo traz
+ * o token em texto, e as chaves de chave_idempotencia que passaram da validade. Cada lote seleciona
+ * ids pelo índice de expiração (ou de data de criação) e os apaga pela chave primária na própria
+ * transação, para não segurar locks na tabela inteira.
+ */
+@Service
+public class LimpezaTokensService {
+    private static final Logger log = LoggerFactory.getLogger(LimpezaTokensService.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final FiltroTokenBlacklist filtroTokenBlacklist;
+    private final MeterRegistry meterRegistry;
+    private final List<TabelaTokens> tabelas;
+    private final int tamanhoLote;
+    private final long pausaEntreLotesMs;
+
+    @Autowired
+    public LimpezaTokensService(TokenBlackListRepository tokenBlackListRepository, ResetPasswordTokenRepository resetPasswordTokenRepository,
+                                ConfirmacaoEmailTokenRepository confirmacaoEmailTokenRepository, EmailPendenteRepository emailPendenteRepository,
+                                ChaveIdempotenciaRepository chaveIdempotenciaRepository,
+                                TransactionTemplate transactionTemplate,
+                                FiltroTokenBlacklist filtroTokenBlacklist, MeterRegistry meterRegistry,
+                                @Value("${tokens.limpeza.tamanho-lote:1000}") int tamanhoLote,
+                                @Value("${tokens.limpeza.pausa-entre-lotes-ms:50}") long pausaEntreLotesMs) {
+        this.transactionTemplate = transactionTemplate;
+        this.filtroTokenBlacklist = filtroTokenBlacklist;
+        this.meterRegistry = meterRegistry;
+        this.tamanhoLote = tamanhoLote;
+        this.pausaEntreLotesMs = pausaEntreLotesMs;
+        this.tabelas = List.of(
+                new TabelaTokens("token_blacklist", tokenBlackListRepository::buscarIdsExpirados,
+                        tokenBlackListRepository::deleteAllByIdInBatch),
+                new TabelaTokens("reset_password_token", resetPasswordTokenRepository::buscarIdsExpirados,
+                        resetPasswordTokenRepository::deleteAllByIdInBatch),
+                new TabelaTokens("confirmacao_email_token", confirmacaoEmailTokenRepository::buscarIdsExpirados,
+                        confirmacaoEmailTokenRepository::deleteAllByIdInBatch),
+                new TabelaTokens("email_outbox", emailPendenteRepository::buscarIdsFinalizados,
+                        emailPendenteRepository::deleteAllByIdInBatch),
+                new TabelaTokens("chave_idempotencia",
+                        (agora, limite) -> chaveIdempotenciaRepository.buscarIdsCriadosAntesDe(agora.minus(IdempotenciaService.VALIDADE), limite),
+                        chaveIdempotenciaRepository::deleteAllByIdInBatch));
+    }
+
+    @Scheduled(fixedDelayString = "${tokens.limpeza.intervalo-ms:3600000}",
+            initialDelayString = "${tokens.limpeza.atraso-inicial-ms:300000}")
+    public void limparExpirados() {
+        LocalDateTime agora = LocalDateTime.now();
+        for (TabelaTokens tabela : tabelas) {
+            long removidos = limpar(tabela, agora);
+            if (removidos > 0 && tabela.nome().equals("token_blacklist")) {
+                filtroTokenBlacklist.reconstruir(); // Tira do filtro os tokens que acabaram de sair do banco
+            }
+        }
+    }
+
+    private long limpar(TabelaTokens tabela, LocalDateTime agora) {
+        Timer tempoPorLote = Timer.builder("tokens.limpeza.lote")
+                .description("Tempo de cada lote da limpeza de tokens expirados")
+                .tag("tabela", tabela.nome())
+                .register(meterRegistry);
+        Counter linhasRemovidas = Counter.builder("tokens.limpeza.removidos")
+                .description("Linhas de tokens expirados removidas")
+                .tag("tabela", tabela.nome())
+                .register(meterRegistry);
+        Pageable limite = PageRequest.of(0, tamanhoLote);
+        long total = 0;
+        int lotes = 0;
+        while (true) {
+            long inicio = System.nanoTime();
+            Integer removidos = transactionTemplate.execute(status -> {
+                List<Long> ids = tabela.buscarIds().apply(agora, limite);
+                if (!ids.isEmpty()) {
+                    tabela.remover().accept(ids);
+                }
+                return ids.size();
+            });
+            long duracao = System.nanoTime() - inicio;
+            if (removidos == null || removidos == 0) {
+                break;
+            }
+            tempoPorLote.record(duracao, TimeUnit.NANOSECONDS);
+            linhasRemovidas.increment(removidos);
+            total += removidos;
+            lotes++;
+            log.debug("Limpeza de {}: lote com {} linhas em {} ms", tabela.nome(), removidos, duracao / 1_000_000);
+            if (removidos < tamanhoLote || !pausar()) {
+                break;
+            }
+        }
+        if (total > 0) {
+            log.info("Limpeza de {}: {} tokens expirados removidos em {} lotes", tabela.nome(), total, lotes);
+        }
+        return total;
+    }
+
+    // Dá espaço para as escritas concorrentes entre um lote e outro
+    private boolean pausar() {
+        if (pausaEntreLotesMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pausaEntreLotesMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private record TabelaTokens(String nome, BiFunction<LocalDateTime, Pageable, List<Long>> buscarIds,
+                                Consumer<Iterable<Long>> remover) {
+    }
+}
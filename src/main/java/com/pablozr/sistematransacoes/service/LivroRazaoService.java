@@ -0,0 +1,186 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.controller.dto.ReconstrucaoLivroRazaoDTOOut;
+import com.pablozr.sistematransacoes.enums.TipoTransacao;
+import com.pablozr.sistematransacoes.exception.SaldoInsuficienteException;
+import com.pablozr.sistematransacoes.exception.UsuarioNaoEncontradoException;
+import com.pablozr.sistematransacoes.model.Transacao;
+import com.pablozr.sistematransacoes.repository.LivroRazaoRepository;
+import com.pablozr.sistematransacoes.repository.OperacoesLoteRepository;
+import com.pablozr.sistematransacoes.repository.TransacaoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Modo livro razão de partidas dobradas: cada transação grava um débito e um crédito imutáveis na
+ * tabela lancamento, e o saldo de uma conta é o último checkpoint mais os lançamentos posteriores.
+ * Créditos são só inserts; apenas a conta debitada é travada (select for update na linha do usuário)
+ * para conferir o saldo, e a transação que debita precisa ser READ COMMITTED para que essa leitura
+ * enxergue o que foi confirmado até a trava. A coluna usuario.saldo passa a ser atualizada só na consolidação.
+ * <p>
+ * A consolidação vai até o maior id visto na execução anterior, para não fechar um checkpoint
+ * acima de um lançamento cuja transação ainda não confirmou; o intervalo precisa ser maior que a
+ * transação mais longa. Assim como o LedgerEngine, supõe uma única instância consolidando.
+ */
+@Service
+public class LivroRazaoService {
+    private static final Logger log = LoggerFactory.getLogger(LivroRazaoService.class);
+    public static final long CONTA_EXTERNA = 0L; // Contrapartida de depósitos e saldos de abertura
+
+    private final LivroRazaoRepository livroRazaoRepository;
+    private final TransacaoRepository transacaoRepository;
+    private final OperacoesLoteRepository operacoesLoteRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean ativo;
+    private final int tamanhoLote;
+    private final ReentrantLock consolidacao = new ReentrantLock();
+    private long limiteProximaConsolidacao;
+
+    @Autowired
+    public LivroRazaoService(LivroRazaoRepository livroRazaoRepository, TransacaoRepository transacaoRepository,
+                             OperacoesLoteRepository operacoesLoteRepository, TransactionTemplate transactionTemplate,
+                             @Value("${ledger.partidas.enabled:false}") boolean ativo,
+                             @Value("${ledger.partidas.checkpoint-tamanho-lote:10000}") int tamanhoLote) {
+        this.livroRazaoRepository = livroRazaoRepository;
+        this.transacaoRepository = transacaoRepository;
+        this.operacoesLoteRepository = operacoesLoteRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.ativo = ativo;
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    public boolean isAtivo() {
+        return ativo;
+    }
+
+    public Transacao registrar(Transacao transacao) {
+        return registrarLote(List.of(transacao)).get(0);
+    }
+
+    public List<Transacao> registrarLote(List<Transacao> transacoes) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("O livro razão exige uma transação ativa");
+        }
+        TreeMap<Long, BigDecimal> debitos = new TreeMap<>();
+        for (Transacao transacao : transacoes) {
+            if (transacao.getTipo() == TipoTransacao.TRANSFERENCIA) {
+                debitos.merge(transacao.getUsuario().getId(), transacao.getValor(), BigDecimal::add);
+            }
+        }
+        // Em REPEATABLE READ (padrão do InnoDB) a leitura do saldo usaria o snapshot da primeira leitura da
+        // transação, que pode ser anterior à trava, e não veria débitos confirmados enquanto se esperava por ela
+        Integer isolamento = TransactionSynchronizationManager.getCurrentTransactionIsolationLevel();
+        if (!debitos.isEmpty() && (isolamento == null || isolamento != TransactionDefinition.ISOLATION_READ_COMMITTED)) {
+            throw new IllegalStateException("Débitos no livro razão exigem uma transação READ COMMITTED");
+        }
+        // Em ordem de id, como no caminho de UPDATE, para que débitos cruzados não entrem em deadlock
+        debitos.forEach((contaId, total) -> {
+            if (!livroRazaoRepository.travarConta(contaId)) {
+                throw new UsuarioNaoEncontradoException("Usuário não encontrado");
+            }
+            if (livroRazaoRepository.saldo(contaId).compareTo(total) < 0) {
+                throw new SaldoInsuficienteException("Saldo insuficiente");
+            }
+        });
+
+        List<Transacao> salvas;
+        if (transacoes.size() == 1) {
+            salvas = List.of(transacaoRepository.save(transacoes.get(0)));
+        } else {
+            operacoesLoteRepository.inserirTransacoes(transacoes);
+            salvas = transacoes;
+        }
+        livroRazaoRepository.inserirLancamentos(salvas, CONTA_EXTERNA);
+        return salvas;
+    }
+
+    public BigDecimal saldo(Long usuarioId) {
+        return livroRazaoRepository.saldo(usuarioId);
+    }
+
+    // Contas que já tinham saldo antes do modo ser ligado recebem um lançamento de abertura
+    @EventListener(ApplicationReadyEvent.class)
+    public void abrirSaldos() {
+        if (!ativo) {
+            return;
+        }
+        Integer abertas = transactionTemplate.execute(status -> livroRazaoRepository.abrirSaldos(CONTA_EXTERNA, LocalDateTime.now()));
+        if (abertas != null && abertas > 0) {
+            log.info("Livro razão: {} saldos de abertura lançados", abertas);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ledger.partidas.checkpoint-intervalo-ms:60000}",
+            initialDelayString = "${ledger.partidas.checkpoint-intervalo-ms:60000}")
+    public void consolidar() {
+        if (!ativo || !consolidacao.tryLock()) {
+            return;
+        }
+        try {
+            long ate = limiteProximaConsolidacao;
+            limiteProximaConsolidacao = livroRazaoRepository.maiorLancamento();
+            long desde = livroRazaoRepository.ultimoConsolidado();
+            long consolidados = 0;
+            while (desde < ate) {
+                long acimaDe = desde;
+                long fim = Math.min(desde + tamanhoLote, ate);
+                Integer contas = transactionTemplate.execute(status -> {
+                    Map<Long, BigDecimal> variacoes = livroRazaoRepository.somarPorConta(acimaDe, fim);
+                    livroRazaoRepository.avancarCheckpoints(variacoes, fim, LocalDateTime.now());
+                    List<Long> usuarios = new ArrayList<>(variacoes.keySet());
+                    usuarios.remove(CONTA_EXTERNA);
+                    livroRazaoRepository.sincronizarSaldos(usuarios);
+                    return variacoes.size();
+                });
+                consolidados += contas == null ? 0 : contas;
+                desde = fim;
+            }
+            if (consolidados > 0) {
+                log.debug("Livro razão: checkpoints avançados até o lançamento {} ({} atualizações)", ate, consolidados);
+            }
+        } finally {
+            consolidacao.unlock();
+        }
+    }
+
+    /**
+     * Descarta os checkpoints e os recalcula somando os lançamentos até o mesmo limite da próxima
+     * consolidação: um lançamento de id menor que o maior atual pode ainda não ter confirmado, e ficaria
+     * fora do checkpoint e abaixo dele. Informa quantas contas divergiam antes e a soma geral, que deve
+     * ser zero. Bloqueia a consolidação enquanto roda.
+     */
+    public ReconstrucaoLivroRazaoDTOOut reconstruir() {
+        consolidacao.lock();
+        try {
+            long ate = limiteProximaConsolidacao;
+            ReconstrucaoLivroRazaoDTOOut resultado = transactionTemplate.execute(status -> {
+                int divergentes = livroRazaoRepository.contarDivergentes();
+                int contas = livroRazaoRepository.reconstruirCheckpoints(ate, LocalDateTime.now());
+                return new ReconstrucaoLivroRazaoDTOOut(contas, livroRazaoRepository.contarLancamentos(), ate,
+                        livroRazaoRepository.somaGeral(), divergentes);
+            });
+            log.info("Livro razão reconstruído até o lançamento {}: {} contas, {} divergentes, soma geral {}",
+                    resultado.getUltimoLancamentoId(), resultado.getContas(), resultado.getContasDivergentes(), resultado.getSomaGeral());
+            return resultado;
+        } finally {
+            consolidacao.unlock();
+        }
+    }
+}
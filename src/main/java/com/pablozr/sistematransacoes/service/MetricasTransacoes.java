@@ -0,0 +1,76 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.exception.ChaveIdempotenciaReutilizadaException;
+import com.pablozr.sistematransacoes.exception.RequisicaoInvalidaException;
+import com.pablozr.sistematransacoes.exception.SaldoInsuficienteException;
+import com.pablozr.sistematransacoes.exception.UsuarioNaoEncontradoException;
+import com.pablozr.sistematransacoes.exception.ValorNegativoException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Timer transacoes.operacao por operação e resultado. Mede por fora do @Transactional, então inclui o
+ * commit e os conflitos que só aparecem nele; o _count de cada resultado serve de contador.
+ */
+@Component
+public class MetricasTransacoes {
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public MetricasTransacoes(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> T medir(String operacao, Supplier<T> execucao) {
+        long inicio = System.nanoTime();
+        String resultado = "sucesso";
+        try {
+            return execucao.get();
+        } catch (RuntimeException e) {
+            resultado = classificar(e);
+            throw e;
+        } finally {
+            timer(operacao, resultado).record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String operacao, String resultado) {
+        return timers.computeIfAbsent(operacao + ':' + resultado, chave -> Timer.builder("transacoes.operacao")
+                .description("Latência das operações de movimentação de saldo")
+                .tag("operacao", operacao)
+                .tag("resultado", resultado)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry));
+    }
+
+    private static String classificar(RuntimeException e) {
+        if (e instanceof SaldoInsuficienteException) {
+            return "saldo_insuficiente";
+        }
+        if (e instanceof OptimisticLockingFailureException) {
+            return "conflito_versao";
+        }
+        if (e instanceof PessimisticLockingFailureException) {
+            return "conflito_lock";
+        }
+        if (e instanceof ValorNegativoException || e instanceof UsuarioNaoEncontradoException || e instanceof IllegalArgumentException
+                || e instanceof RequisicaoInvalidaException || e instanceof ChaveIdempotenciaReutilizadaException) {
+            return "invalida";
+        }
+        return "erro";
+    }
+}
@@ -0,0 +1,187 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.exception.ContaComSaldoException;
+import com.pablozr.sistematransacoes.exception.UsuarioNaoEncontradoException;
+import com.pablozr.sistematransacoes.model.SaldoParcial;
+import com.pablozr.sistematransacoes.repository.SaldoParcialRepository;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Saldo fracionado de contas quentes: o saldo de uma conta marcada fica dividido entre usuario.saldo e
+ * N linhas de saldo_parcial. Cada crédito vai para uma fatia sorteada, então créditos simultâneos na mesma
+ * conta disputam linhas diferentes; débitos e leituras somam as fatias.
+ * <p>
+ * A quantidade de fatias por conta fica num mapa em memória recarregado periodicamente. Um mapa
+ * desatualizado não perde dinheiro: crédito numa fatia que não existe mais cai no saldo principal, e um
+ * débito recusado sempre consolida as fatias antes de desistir.
+ * <p>
+ * Só vale no caminho de UPDATE. O LedgerEngine guarda usuario.saldo em memória e o livro razão abre as
+ * contas a partir dele, então com um dos dois ligado as fatias não podem ser criadas, e as que sobraram
+ * de antes são devolvidas a usuario.saldo na subida, antes dos saldos de abertura do livro razão.
+ */
+@Service
+public class SaldoFracionadoService {
+    private final SaldoParcialRepository saldoParcialRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final LedgerEngine ledgerEngine;
+    private final LivroRazaoService livroRazaoService;
+    private final TransactionTemplate transactionTemplate;
+    private final int maximoFatias;
+    private volatile ConcurrentHashMap<Long, Integer> fatiasPorConta = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SaldoFracionadoService(SaldoParcialRepository saldoParcialRepository, UsuarioRepository usuarioRepository,
+                                  LedgerEngine ledgerEngine, LivroRazaoService livroRazaoService,
+                                  TransactionTemplate transactionTemplate,
+                                  @Value("${saldo.fatias.maximo:64}") int maximoFatias) {
+        this.saldoParcialRepository = saldoParcialRepository;
+        this.usuarioRepository = usuarioRepository;
+        this.ledgerEngine = ledgerEngine;
+        this.livroRazaoService = livroRazaoService;
+        this.transactionTemplate = transactionTemplate;
+        this.maximoFatias = maximoFatias;
+    }
+
+    public boolean isDisponivel() {
+        return !ledgerEngine.isAtivo() && !livroRazaoService.isAtivo();
+    }
+
+    // Antes do livro razão abrir os saldos, que leem só usuario.saldo
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void devolverFatias() {
+        if (isDisponivel()) {
+            return;
+        }
+        for (Object[] linha : saldoParcialRepository.contarFatiasPorUsuario()) {
+            Long usuarioId = (Long) linha[0];
+            transactionTemplate.executeWithoutResult(status -> {
+                moverParaSaldoPrincipal(usuarioId);
+                saldoParcialRepository.removerFatias(usuarioId);
+            });
+            ledgerEngine.descartar(usuarioId);
+        }
+        fatiasPorConta = new ConcurrentHashMap<>();
+    }
+
+    @Scheduled(fixedDelayString = "${saldo.fatias.recarga-ms:30000}")
+    public void recarregar() {
+        if (!isDisponivel()) {
+            return;
+        }
+        ConcurrentHashMap<Long, Integer> carregado = new ConcurrentHashMap<>();
+        for (Object[] linha : saldoParcialRepository.contarFatiasPorUsuario()) {
+            carregado.put((Long) linha[0], ((Number) linha[1]).intValue());
+        }
+        fatiasPorConta = carregado;
+    }
+
+    public int fatias(Long usuarioId) {
+        return fatiasPorConta.getOrDefault(usuarioId, 0);
+    }
+
+    // Devolve false quando a conta não é quente (ou a fatia sumiu) e o crédito deve ir para usuario.saldo
+    public boolean creditar(Long usuarioId, BigDecimal valor) {
+        int fatias = fatias(usuarioId);
+        if (fatias < 2) {
+            return false;
+        }
+        return saldoParcialRepository.creditar(usuarioId, ThreadLocalRandom.current().nextInt(fatias), valor) > 0;
+    }
+
+    public BigDecimal somarFatias(Long usuarioId) {
+        return fatias(usuarioId) == 0 ? BigDecimal.ZERO : saldoParcialRepository.somar(usuarioId);
+    }
+
+    // Move o valor das fatias para usuario.saldo; devolve true se havia algo a mover
+    @Transactional
+    public boolean consolidar(Long usuarioId) {
+        return moverParaSaldoPrincipal(usuarioId);
+    }
+
+    /**
+     * Redistribui o saldo da conta em {@code quantidade} fatias; 0 ou 1 desmarca a conta como quente.
+     * A linha do usuário e as fatias atuais ficam travadas até o commit, e o saldo delas volta para
+     * usuario.saldo antes das novas fatias, zeradas, serem criadas.
+     */
+    @Transactional
+    public void redefinirFatias(Long usuarioId, int quantidade) {
+        if (!isDisponivel()) {
+            throw new IllegalStateException("Fatias de saldo não funcionam com o LedgerEngine ou o livro razão ligados");
+        }
+        if (quantidade < 0 || quantidade > maximoFatias) {
+            throw new IllegalArgumentException("A quantidade de fatias deve estar entre 0 e " + maximoFatias);
+        }
+        usuarioRepository.travarPorId(usuarioId)
+                .orElseThrow(() -> new UsuarioNaoEncontradoException("Usuário não encontrado"));
+        consolidar(usuarioId);
+        saldoParcialRepository.removerFatias(usuarioId);
+        int novas = quantidade < 2 ? 0 : quantidade;
+        List<SaldoParcial> fatias = new ArrayList<>(novas);
+        for (int i = 0; i < novas; i++) {
+            SaldoParcial fatia = new SaldoParcial();
+            fatia.setUsuarioId(usuarioId);
+            fatia.setFatia(i);
+            fatias.add(fatia);
+        }
+        saldoParcialRepository.saveAll(fatias);
+        aposCommit(usuarioId, novas);
+    }
+
+    // Chamado quando a conta é removida, dentro da mesma transação; recusa se alguma fatia ainda tem saldo
+    @Transactional
+    public void descartar(Long usuarioId) {
+        for (SaldoParcial fatia : saldoParcialRepository.travarFatias(usuarioId)) {
+            if (fatia.getValor().signum() != 0) {
+                throw new ContaComSaldoException("A conta ainda tem saldo nas fatias e não pode ser removida");
+            }
+        }
+        saldoParcialRepository.removerFatias(usuarioId);
+        aposCommit(usuarioId, 0);
+    }
+
+    private boolean moverParaSaldoPrincipal(Long usuarioId) {
+        List<SaldoParcial> fatias = saldoParcialRepository.travarFatias(usuarioId);
+        BigDecimal total = BigDecimal.ZERO;
+        for (SaldoParcial fatia : fatias) {
+            total = total.add(fatia.getValor());
+        }
+        if (total.signum() == 0) {
+            return false;
+        }
+        usuarioRepository.creditar(usuarioId, total);
+        saldoParcialRepository.zerar(usuarioId);
+        return true;
+    }
+
+    private void aposCommit(Long usuarioId, int fatias) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                if (fatias == 0) {
+                    fatiasPorConta.remove(usuarioId);
+                } else {
+                    fatiasPorConta.put(usuarioId, fatias);
+                }
+            }
+        });
+    }
+}
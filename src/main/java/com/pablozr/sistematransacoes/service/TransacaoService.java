@@ -1,52 +1,100 @@
 package com.pablozr.sistematransacoes.service;
 
+import com.pablozr.sistematransacoes.config.SomenteLeitura;
+import com.pablozr.sistematransacoes.controller.dto.LoteTransferenciaDTOOut;
+import com.pablozr.sistematransacoes.controller.dto.PaginaCursorDTOOut;
+import com.pablozr.sistematransacoes.controller.dto.PernaLoteDTOOut;
+import com.pablozr.sistematransacoes.controller.dto.TransacaoDTOIn;
+import com.pablozr.sistematransacoes.controller.dto.TransacaoDTOOut;
 import com.pablozr.sistematransacoes.enums.OperacaoSaldo;
+import com.pablozr.sistematransacoes.enums.StatusPernaLote;
 import com.pablozr.sistematransacoes.enums.TipoTransacao;
-import com.pablozr.sistematransacoes.exception.SaldoInsuficienteException;
 import com.pablozr.sistematransacoes.exception.ValorNegativoException;
 import com.pablozr.sistematransacoes.model.Transacao;
 import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.repository.OperacoesLoteRepository;
 import com.pablozr.sistematransacoes.repository.TransacaoRepository;
-import jakarta.transaction.Transactional;
+import com.pablozr.sistematransacoes.utils.CursorTransacao;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 @Service
 public class TransacaoService {
+    private static final int TAMANHO_MAXIMO_PAGINA_CURSOR = 100;
+
     private final TransacaoRepository transacaoRepository;
     private final UsuarioService usuarioService;
+    private final LedgerEngine ledgerEngine;
+    private final OperacoesLoteRepository operacoesLoteRepository;
+    private final LivroRazaoService livroRazaoService;
+    private final ArquivamentoTransacoesService arquivamentoTransacoesService;
 
     @Autowired
-    public TransacaoService(TransacaoRepository transacaoRepository, UsuarioService usuarioService){
+    public TransacaoService(TransacaoRepository transacaoRepository, UsuarioService usuarioService, LedgerEngine ledgerEngine,
+                            OperacoesLoteRepository operacoesLoteRepository, LivroRazaoService livroRazaoService,
+                            ArquivamentoTransacoesService arquivamentoTransacoesService){
         this.transacaoRepository = transacaoRepository;
         this.usuarioService = usuarioService;
+        this.ledgerEngine = ledgerEngine;
+        this.operacoesLoteRepository = operacoesLoteRepository;
+        this.livroRazaoService = livroRazaoService;
+        this.arquivamentoTransacoesService = arquivamentoTransacoesService;
     }
 
     public Transacao registrarTransacao(Transacao transacao){
         return transacaoRepository.save(transacao);
     }
 
-    public Page<Transacao> listarTransacoes(Usuario usuario, Pageable pageable, TipoTransacao tipo, LocalDateTime dataInicio, LocalDateTime dataFim) {
-        Specification<Transacao> spec = Specification.where((root, query, cb) -> cb.equal(root.get("usuario"), usuario));
-        if (tipo != null) {
-            spec = spec.and((root, query, cb) -> cb.equal(root.get("tipo"), tipo));
-        }
-        if (dataInicio != null) {
-            spec = spec.and((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("dataTransacao"), dataInicio));
+    @SomenteLeitura
+    public Page<TransacaoDTOOut> listarTransacoes(Long usuarioId, Pageable pageable, TipoTransacao tipo, LocalDateTime dataInicio, LocalDateTime dataFim) {
+        return transacaoRepository.listarProjetado(usuarioId, tipo, dataInicio, dataFim, pageable,
+                arquivamentoTransacoesService.alcancaArquivo(dataInicio));
+    }
+
+    // Busca um item a mais que o tamanho pedido só para saber se existe próxima página
+    @SomenteLeitura
+    public PaginaCursorDTOOut<TransacaoDTOOut> listarTransacoesPorCursor(Long usuarioId, String cursor, int tamanho, TipoTransacao tipo,
+                                                                  LocalDateTime dataInicio, LocalDateTime dataFim) {
+        int limite = Math.max(1, Math.min(tamanho, TAMANHO_MAXIMO_PAGINA_CURSOR));
+        CursorTransacao posicao = cursor == null || cursor.isBlank() ? null : CursorTransacao.decodificar(cursor);
+        List<TransacaoDTOOut> transacoes = transacaoRepository.buscarPorCursor(usuarioId, tipo, dataInicio, dataFim, posicao, limite + 1,
+                arquivamentoTransacoesService.alcancaArquivo(dataInicio));
+        if (transacoes.size() <= limite) {
+            return new PaginaCursorDTOOut<>(transacoes, null);
         }
-        if (dataFim != null) {
-            spec = spec.and((root, query, cb) -> cb.lessThanOrEqualTo(root.get("dataTransacao"), dataFim));
+        List<TransacaoDTOOut> pagina = transacoes.subList(0, limite);
+        TransacaoDTOOut ultima = pagina.get(limite - 1);
+        return new PaginaCursorDTOOut<>(pagina, new CursorTransacao(ultima.getDataTransacao(), ultima.getId()).codificar());
+    }
+
+    // A transação mantém a conexão aberta enquanto as linhas são consumidas; nada fica no contexto de persistência
+    @SomenteLeitura
+    public void exportarTransacoes(Long usuarioId, TipoTransacao tipo, LocalDateTime dataInicio, LocalDateTime dataFim,
+                                   Consumer<TransacaoDTOOut> consumidor) {
+        try (Stream<TransacaoDTOOut> transacoes = transacaoRepository.streamProjetado(usuarioId, tipo, dataInicio, dataFim,
+                arquivamentoTransacoesService.alcancaArquivo(dataInicio))) {
+            transacoes.forEach(consumidor);
         }
-        return transacaoRepository.findAll(spec, pageable);
     }
 
-    @Transactional(rollbackOn = Exception.class)
+    @Transactional(rollbackFor = Exception.class)
     public Transacao deposito(Usuario usuario, BigDecimal valor){
         if (valor.compareTo(BigDecimal.ZERO) < 0){
             throw new ValorNegativoException("O valor do depósito deve ser positivo");
@@ -57,11 +105,37 @@ public class TransacaoService {
         transacao.setUsuario(usuario);
         transacao.setDataTransacao(LocalDateTime.now());
 
+        if (ledgerEngine.isAtivo()) {
+            return ledgerEngine.registrar(transacao);
+        }
+        if (livroRazaoService.isAtivo()) {
+            return livroRazaoService.registrar(transacao);
+        }
         usuarioService.atualizarSaldo(usuario, valor, OperacaoSaldo.ADICAO);
 
         return transacaoRepository.save(transacao);
     }
-    @Transactional(rollbackOn = Exception.class)
+    // Vários depósitos numa única transação: um UPDATE por conta com a soma dos valores e um insert em lote
+    @Transactional(rollbackFor = Exception.class)
+    public List<Transacao> depositosAgrupados(List<Transacao> depositos){
+        if (ledgerEngine.isAtivo()) {
+            return ledgerEngine.registrarLote(depositos);
+        }
+        if (livroRazaoService.isAtivo()) {
+            return livroRazaoService.registrarLote(depositos);
+        }
+        TreeMap<Long, BigDecimal> creditos = new TreeMap<>();
+        for (Transacao deposito : depositos) {
+            creditos.merge(deposito.getUsuario().getId(), deposito.getValor(), BigDecimal::add);
+        }
+        usuarioService.creditarSaldos(creditos);
+        operacoesLoteRepository.inserirTransacoes(depositos);
+        return depositos;
+    }
+
+    // READ COMMITTED: no livro razão o saldo é lido depois de travar a conta e precisa enxergar os débitos
+    // confirmados enquanto se esperava pela trava, não o snapshot de uma leitura anterior da transação
+    @Transactional(rollbackFor = Exception.class, isolation = Isolation.READ_COMMITTED)
     public Transacao tranferencia(Usuario remetente, Usuario destinatario, BigDecimal valor){
         if (valor.compareTo(BigDecimal.ZERO) <= 0){
             throw new ValorNegativoException("O valor da transferência deve ser positivo");
@@ -71,10 +145,6 @@ public class TransacaoService {
             throw new IllegalArgumentException("Não é possível transferir para si mesmo.");
         }
 
-        if (remetente.getSaldo().compareTo(valor) < 0){
-            throw new SaldoInsuficienteException("Saldo insuficiente");
-        }
-
         Transacao transacao = new Transacao();
         transacao.setTipo(TipoTransacao.TRANSFERENCIA);
         transacao.setValor(valor);
@@ -82,9 +152,94 @@ public class TransacaoService {
         transacao.setDestinatario(destinatario);
         transacao.setDataTransacao(LocalDateTime.now());
 
-        usuarioService.atualizarSaldo(remetente, valor, OperacaoSaldo.SUBTRACAO);
-        usuarioService.atualizarSaldo(destinatario, valor, OperacaoSaldo.ADICAO);
+        if (ledgerEngine.isAtivo()) {
+            return ledgerEngine.registrar(transacao);
+        }
+        if (livroRazaoService.isAtivo()) {
+            return livroRazaoService.registrar(transacao);
+        }
+        // Linhas sempre atualizadas em ordem de id, para que transferências cruzadas não entrem em deadlock no banco
+        if (remetente.getId().compareTo(destinatario.getId()) < 0) {
+            usuarioService.atualizarSaldo(remetente, valor, OperacaoSaldo.SUBTRACAO);
+            usuarioService.atualizarSaldo(destinatario, valor, OperacaoSaldo.ADICAO);
+        } else {
+            usuarioService.atualizarSaldo(destinatario, valor, OperacaoSaldo.ADICAO);
+            usuarioService.atualizarSaldo(remetente, valor, OperacaoSaldo.SUBTRACAO);
+        }
 
         return transacaoRepository.save(transacao);
     }
+
+    @Transactional(rollbackFor = Exception.class, isolation = Isolation.READ_COMMITTED)
+    public LoteTransferenciaDTOOut transferenciaEmLote(Usuario remetente, List<TransacaoDTOIn> pernas){
+        Set<Long> destinatarioIds = new HashSet<>();
+        for (TransacaoDTOIn perna : pernas) {
+            if (perna.getDestinatarioId() != null) {
+                destinatarioIds.add(perna.getDestinatarioId());
+            }
+        }
+        Map<Long, Usuario> destinatarios = usuarioService.buscarPorIds(destinatarioIds).stream()
+                .collect(Collectors.toMap(Usuario::getId, Function.identity()));
+
+        PernaLoteDTOOut[] resultados = new PernaLoteDTOOut[pernas.size()];
+        List<Transacao> transacoes = new ArrayList<>();
+        List<Integer> indices = new ArrayList<>();
+        BigDecimal total = BigDecimal.ZERO;
+        LocalDateTime agora = LocalDateTime.now();
+        for (int i = 0; i < pernas.size(); i++) {
+            TransacaoDTOIn perna = pernas.get(i);
+            String motivo = motivoRejeicao(remetente, perna, destinatarios);
+            if (motivo != null) {
+                resultados[i] = new PernaLoteDTOOut(i, perna.getDestinatarioId(), perna.getValor(), StatusPernaLote.REJEITADA, null, motivo);
+                continue;
+            }
+            Transacao transacao = new Transacao();
+            transacao.setTipo(TipoTransacao.TRANSFERENCIA);
+            transacao.setValor(perna.getValor());
+            transacao.setUsuario(remetente);
+            transacao.setDestinatario(destinatarios.get(perna.getDestinatarioId()));
+            transacao.setDataTransacao(agora);
+            transacoes.add(transacao);
+            indices.add(i);
+            total = total.add(perna.getValor());
+        }
+
+        if (!transacoes.isEmpty()) {
+            if (ledgerEngine.isAtivo()) {
+                ledgerEngine.registrarLote(transacoes);
+            } else if (livroRazaoService.isAtivo()) {
+                livroRazaoService.registrarLote(transacoes);
+            } else {
+                TreeMap<Long, BigDecimal> creditos = new TreeMap<>();
+                for (Transacao transacao : transacoes) {
+                    creditos.merge(transacao.getDestinatario().getId(), transacao.getValor(), BigDecimal::add);
+                }
+                // Mesma ordem de ids da transferência unitária: créditos abaixo do remetente, débito único do total, créditos acima
+                usuarioService.creditarSaldos(creditos.headMap(remetente.getId()));
+                usuarioService.atualizarSaldo(remetente, total, OperacaoSaldo.SUBTRACAO);
+                usuarioService.creditarSaldos(creditos.tailMap(remetente.getId(), false));
+                operacoesLoteRepository.inserirTransacoes(transacoes);
+            }
+            for (int j = 0; j < transacoes.size(); j++) {
+                Transacao transacao = transacoes.get(j);
+                int indice = indices.get(j);
+                resultados[indice] = new PernaLoteDTOOut(indice, transacao.getDestinatario().getId(), transacao.getValor(),
+                        StatusPernaLote.CONCLUIDA, transacao.getId(), null);
+            }
+        }
+        return new LoteTransferenciaDTOOut(transacoes.size(), pernas.size() - transacoes.size(), total, Arrays.asList(resultados));
+    }
+
+    private String motivoRejeicao(Usuario remetente, TransacaoDTOIn perna, Map<Long, Usuario> destinatarios) {
+        if (perna.getValor() == null || perna.getValor().compareTo(BigDecimal.ZERO) <= 0) {
+            return "O valor da transferência deve ser positivo";
+        }
+        if (perna.getDestinatarioId() == null || !destinatarios.containsKey(perna.getDestinatarioId())) {
+            return "Destinatário não encontrado";
+        }
+        if (remetente.getId().equals(perna.getDestinatarioId())) {
+            return "Não é possível transferir para si mesmo.";
+        }
+        return null;
+    }
 }
@@ -1,62 +1,111 @@
 package com.pablozr.sistematransacoes.service;
 
+import com.pablozr.sistematransacoes.config.SomenteLeitura;
 import com.pablozr.sistematransacoes.controller.dto.LoginDTOIn;
 import com.pablozr.sistematransacoes.controller.dto.LoginDTOOut;
 import com.pablozr.sistematransacoes.enums.OperacaoSaldo;
 import com.pablozr.sistematransacoes.exception.EmailJaRegistradoException;
+import com.pablozr.sistematransacoes.exception.SaldoInsuficienteException;
 import com.pablozr.sistematransacoes.exception.UsuarioNaoEncontradoException;
 import com.pablozr.sistematransacoes.model.ConfirmacaoEmailToken;
 import com.pablozr.sistematransacoes.model.ResetPasswordToken;
+import com.pablozr.sistematransacoes.model.SaldoParcial;
 import com.pablozr.sistematransacoes.model.TokenBlackList;
 import com.pablozr.sistematransacoes.model.Usuario;
 import com.pablozr.sistematransacoes.repository.ConfirmacaoEmailTokenRepository;
+import com.pablozr.sistematransacoes.repository.OperacoesLoteRepository;
 import com.pablozr.sistematransacoes.repository.ResetPasswordTokenRepository;
 import com.pablozr.sistematransacoes.repository.TokenBlackListRepository;
 import com.pablozr.sistematransacoes.repository.UsuarioRepository;
 import com.pablozr.sistematransacoes.security.JwtTokenProvider;
+import com.pablozr.sistematransacoes.security.UsuarioSnapshot;
 import com.pablozr.sistematransacoes.utils.PasswordValidator;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 @Service
-public class UsuarioService {
+public class UsuarioService implements MeterBinder {
     private final UsuarioRepository usuarioRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final HashSenhaService hashSenhaService;
     private final JwtTokenProvider jwtTokenProvider;
     private final TokenBlackListRepository tokenBlacklistRepository;
     private final ResetPasswordTokenRepository resetPasswordTokenRepository;
     private final Cache<String, Boolean> tokenBlacklistCache = Caffeine.newBuilder()
             .expireAfterWrite(1, TimeUnit.HOURS)
+            .recordStats()
+            .build();
+    // Dados de autenticação por email, com vida curta; invalidado quando email, ativo ou a conta mudam
+    private final Cache<String, UsuarioSnapshot> usuarioSnapshotCache = Caffeine.newBuilder()
+            .expireAfterWrite(30, TimeUnit.SECONDS)
+            .maximumSize(100_000)
+            .recordStats()
             .build();
     private final ConfirmacaoEmailTokenRepository confirmacaoEmailTokenRepository;
+    private final LedgerEngine ledgerEngine;
+    private final OperacoesLoteRepository operacoesLoteRepository;
+    private final FiltroTokenBlacklist filtroTokenBlacklist;
+    private final EmailOutboxService emailOutboxService;
+    private final SaldoFracionadoService saldoFracionadoService;
+    private final IndiceBuscaUsuariosService indiceBuscaUsuariosService;
+    private final LivroRazaoService livroRazaoService;
+    private final int limiteCandidatosBusca;
 
     @Autowired
-    public UsuarioService(UsuarioRepository usuarioRepository, PasswordEncoder passwordEncoder, JwtTokenProvider jwtTokenProvider
+    public UsuarioService(UsuarioRepository usuarioRepository, HashSenhaService hashSenhaService, JwtTokenProvider jwtTokenProvider
     , TokenBlackListRepository tokenBlackListRepository, ResetPasswordTokenRepository resetPasswordTokenRepository,
-                          ConfirmacaoEmailTokenRepository confirmacaoEmailTokenRepository){
+                          ConfirmacaoEmailTokenRepository confirmacaoEmailTokenRepository, LedgerEngine ledgerEngine,
+                          OperacoesLoteRepository operacoesLoteRepository, FiltroTokenBlacklist filtroTokenBlacklist,
+                          EmailOutboxService emailOutboxService, SaldoFracionadoService saldoFracionadoService,
+                          IndiceBuscaUsuariosService indiceBuscaUsuariosService, LivroRazaoService livroRazaoService,
+                          @Value("${busca.usuarios.limite-candidatos:10000}") int limiteCandidatosBusca){
 
         this.usuarioRepository = usuarioRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.hashSenhaService = hashSenhaService;
         this.jwtTokenProvider = jwtTokenProvider;
         this.resetPasswordTokenRepository = resetPasswordTokenRepository;
         this.tokenBlacklistRepository = tokenBlackListRepository;
         this.confirmacaoEmailTokenRepository = confirmacaoEmailTokenRepository;
+        this.ledgerEngine = ledgerEngine;
+        this.operacoesLoteRepository = operacoesLoteRepository;
+        this.filtroTokenBlacklist = filtroTokenBlacklist;
+        this.emailOutboxService = emailOutboxService;
+        this.saldoFracionadoService = saldoFracionadoService;
+        this.indiceBuscaUsuariosService = indiceBuscaUsuariosService;
+        this.livroRazaoService = livroRazaoService;
+        this.limiteCandidatosBusca = limiteCandidatosBusca;
+    }
+
+    // Hits, misses e evictions dos caches de autenticação, ligados pelo actuator
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, tokenBlacklistCache, "tokenBlacklist");
+        CaffeineCacheMetrics.monitor(registry, usuarioSnapshotCache, "usuarioSnapshot");
     }
 
     public Usuario salvarUsuario(Usuario usuario){
@@ -66,15 +115,17 @@ public class UsuarioService {
 
         PasswordValidator.validate(usuario.getSenha());
 
-        usuario.setSenha(passwordEncoder.encode(usuario.getSenha()));
+        usuario.setSenha(hashSenhaService.codificar(usuario.getSenha()));
         usuario.setRoles(Set.of("ROLE_USER"));
-        return usuarioRepository.save(usuario);
+        Usuario salvo = usuarioRepository.save(usuario);
+        indiceBuscaUsuariosService.indexar(salvo);
+        return salvo;
     }
 
     public LoginDTOOut login(LoginDTOIn loginDTO) {
         Usuario usuario = usuarioRepository.findByEmail(loginDTO.getEmail())
                 .orElseThrow(() -> new UsuarioNaoEncontradoException("Email incorreto"));
-        if (!passwordEncoder.matches(loginDTO.getSenha(), usuario.getSenha())) {
+        if (!hashSenhaService.conferir(loginDTO.getSenha(), usuario.getSenha())) {
             throw new UsuarioNaoEncontradoException("Senha incorreta");
         }
         String token = jwtTokenProvider.generateToken(usuario.getEmail(), usuario.getId(), usuario.getRoles());
@@ -97,45 +148,100 @@ public class UsuarioService {
                 if (usuarioRepository.existsByEmail(usuarioAtualizado.getEmail())) {
                     throw new EmailJaRegistradoException("Este email já está registrado.");
                 }
+                usuarioSnapshotCache.invalidate(usuarioLogado.getEmail());
                 usuarioLogado.setEmail(usuarioAtualizado.getEmail());
             }
         }
-        return usuarioRepository.save(usuarioLogado);
+        Usuario salvo = usuarioRepository.save(usuarioLogado);
+        usuarioSnapshotCache.invalidate(salvo.getEmail());
+        indiceBuscaUsuariosService.indexar(salvo);
+        return salvo;
     }
 
+    // Fatias e usuário saem na mesma transação; o flush faz a violação de chave estrangeira (usuário com
+    // transações) aparecer aqui, antes de mexer nos caches, e desfaz a remoção das fatias
+    @Transactional
     public void deletarUsuario (Long id){
-        if (!usuarioRepository.existsById(id)){
-            throw new UsuarioNaoEncontradoException("Usuário não encontrado");
-        }
-        usuarioRepository.deleteById(id);
+        Usuario usuario = usuarioRepository.travarPorId(id)
+                .orElseThrow(() -> new UsuarioNaoEncontradoException("Usuário não encontrado"));
+        saldoFracionadoService.descartar(id);
+        usuarioRepository.delete(usuario);
+        usuarioRepository.flush();
+        usuarioSnapshotCache.invalidate(usuario.getEmail());
+        indiceBuscaUsuariosService.remover(id);
+        ledgerEngine.descartar(id);
     }
 
     public Usuario alterarSenha(Long id, String novaSenha){
         Usuario usuarioExistente = usuarioRepository.findById(id)
                 .orElseThrow(() -> new UsuarioNaoEncontradoException("Usuário não encontrado"));
         PasswordValidator.validate(novaSenha);
-        usuarioExistente.setSenha(passwordEncoder.encode(novaSenha));
+        usuarioExistente.setSenha(hashSenhaService.codificar(novaSenha));
         return usuarioRepository.save(usuarioExistente);
     }
 
+    // Um UPDATE condicional por perna; o saldo da entidade recebida não é lido nem alterado
     @Transactional
     public void atualizarSaldo(Usuario usuario, BigDecimal valor, OperacaoSaldo operacao) {
         if (operacao == OperacaoSaldo.ADICAO){
-            usuario.setSaldo(usuario.getSaldo().add(valor));
+            if (saldoFracionadoService.creditar(usuario.getId(), valor)) {
+                return;
+            }
+            if (usuarioRepository.creditar(usuario.getId(), valor) == 0) {
+                throw new UsuarioNaoEncontradoException("Usuário não encontrado");
+            }
         } else if (operacao == OperacaoSaldo.SUBTRACAO) {
-            usuario.setSaldo(usuario.getSaldo().subtract(valor));
+            // Numa conta quente parte do saldo pode estar nas fatias: consolida e tenta de novo
+            if (usuarioRepository.debitarSeSuficiente(usuario.getId(), valor) == 0
+                    && (!saldoFracionadoService.consolidar(usuario.getId())
+                    || usuarioRepository.debitarSeSuficiente(usuario.getId(), valor) == 0)) {
+                throw new SaldoInsuficienteException("Saldo insuficiente");
+            }
         }
-        usuarioRepository.save(usuario);
+    }
+
+    @Transactional
+    public void creditarSaldos(Map<Long, BigDecimal> creditos) {
+        Map<Long, BigDecimal> restantes = new LinkedHashMap<>(creditos.size());
+        creditos.forEach((usuarioId, valor) -> {
+            if (!saldoFracionadoService.creditar(usuarioId, valor)) {
+                restantes.put(usuarioId, valor);
+            }
+        });
+        operacoesLoteRepository.creditarSaldos(restantes);
     }
 
     public Optional<Usuario> buscarPorEmail(String email){
         return usuarioRepository.findByEmail(email);
     }
 
+    // Só para autenticação; operações de saldo continuam lendo a entidade do banco
+    public Optional<UsuarioSnapshot> buscarSnapshotPorEmail(String email){
+        UsuarioSnapshot snapshot = usuarioSnapshotCache.getIfPresent(email);
+        if (snapshot != null) {
+            return Optional.of(snapshot);
+        }
+        Optional<UsuarioSnapshot> carregado = usuarioRepository.findByEmail(email).map(UsuarioSnapshot::de);
+        carregado.ifPresent(s -> usuarioSnapshotCache.put(email, s));
+        return carregado;
+    }
+
     public Optional<Usuario> buscarPorId(Long id){
         return usuarioRepository.findById(id);
     }
 
+    // Saldo exibido ao usuário e ao admin: no modo livro razão a coluna só é atualizada na consolidação,
+    // fora dele as fatias de conta quente somam à coluna
+    public BigDecimal saldoAtual(Usuario usuario) {
+        return livroRazaoService.isAtivo() ? livroRazaoService.saldo(usuario.getId())
+                : usuario.getSaldo().add(saldoFracionadoService.somarFatias(usuario.getId()));
+    }
+
+    public List<Usuario> buscarPorIds(Collection<Long> ids){
+        return usuarioRepository.findAllById(ids);
+    }
+
+    @SomenteLeitura
     public Page<Usuario> buscarTodos(Pageable pageable) {
         return usuarioRepository.findAll(pageable);
     }
@@ -147,13 +253,25 @@ public class UsuarioService {
         blacklistedToken.setExpiryDate(expiryDate);
         tokenBlacklistRepository.save(blacklistedToken);
         tokenBlacklistCache.put(token, true);
+        filtroTokenBlacklist.adicionar(token);
     }
 
     public boolean isTokenBlacklisted(String token) {
-        Boolean cached = tokenBlacklistCache.getIfPresent(token);
-        return cached != null || tokenBlacklistRepository.existsByToken(token);
+        if (tokenBlacklistCache.getIfPresent(token) != null) {
+            return true;
+        }
+        if (!filtroTokenBlacklist.talvezContenha(token)) {
+            return false; // Filtro de Bloom não tem falso negativo
+        }
+        boolean naBlacklist = tokenBlacklistRepository.existsByToken(token);
+        filtroTokenBlacklist.registrarConsulta(naBlacklist);
+        if (naBlacklist) {
+            tokenBlacklistCache.put(token, true);
+        }
+        return naBlacklist;
     }
 
+    @Transactional
     public String gerarTokenResetSenha(String email){
         Usuario usuario = usuarioRepository.findByEmail(email)
                 .orElseThrow(() -> new UsuarioNaoEncontradoException("Usuário não encontrado"));
@@ -165,9 +283,12 @@ public class UsuarioService {
         resetToken.setUsuario(usuario);
         resetToken.setExpiryDate(expiryDate);
         resetPasswordTokenRepository.save(resetToken);
+        emailOutboxService.enfileirar(email, "Redefinição de Senha - Banco Digital",
+                "Use este token para redefinir sua senha: " + token + "\nVálido por 30 minutos.");
         return token;
     }
 
+    @Transactional
     public String gerarTokenConfirmacaoEmail(String email) {
         Usuario usuario = usuarioRepository.findByEmail(email)
                 .orElseThrow(() -> new UsuarioNaoEncontradoException("Usuário não encontrado"));
@@ -179,6 +300,8 @@ public class UsuarioService {
         confirmacaoToken.setUsuario(usuario);
         confirmacaoToken.setExpiryDate(expiryDate);
         confirmacaoEmailTokenRepository.save(confirmacaoToken);
+        emailOutboxService.enfileirar(email, "Confirmação de Email - Banco Digital",
+                "Confirme seu email com este token: " + token + "\nVálido por 24 horas.");
         return token;
     }
 
@@ -191,6 +314,7 @@ public class UsuarioService {
         Usuario usuario = confirmacaoToken.getUsuario();
         usuario.setAtivo(true);
         usuarioRepository.save(usuario);
+        usuarioSnapshotCache.invalidate(usuario.getEmail());
         confirmacaoEmailTokenRepository.delete(confirmacaoToken);
     }
 
@@ -202,21 +326,43 @@ public class UsuarioService {
         }
         PasswordValidator.validate(novaSenha);
         Usuario usuario = resetToken.getUsuario();
-        usuario.setSenha(passwordEncoder.encode(novaSenha));
+        usuario.setSenha(hashSenhaService.codificar(novaSenha));
         usuarioRepository.save(usuario);
         resetPasswordTokenRepository.delete(resetToken);
     }
 
+    // Filtros de texto resolvem para ids pelo índice de trigramas e o banco só busca pela chave primária.
+    // Filtros pouco seletivos (muitos candidatos) ou índice ainda carregando usam o LIKE antigo, com a mesma
+    // regra do índice para termo em branco; acentos ficam a cargo da collation accent-insensitive da coluna.
+    @SomenteLeitura
     public Page<Usuario> buscarComFiltros(Pageable pageable, String nome, String email, Double saldo) {
         Specification<Usuario> spec = Specification.where(null);
-        if (nome != null && !nome.isEmpty()) {
-            spec = spec.and((root, query, cb) -> cb.like(cb.lower(root.get("nome")), "%" + nome.toLowerCase() + "%"));
-        }
-        if (email != null && !email.isEmpty()) {
-            spec = spec.and((root, query, cb) -> cb.like(cb.lower(root.get("email")), "%" + email.toLowerCase() + "%"));
+        Optional<long[]> candidatos = indiceBuscaUsuariosService.buscar(nome, email);
+        if (candidatos.isPresent() && candidatos.get().length <= limiteCandidatosBusca) {
+            long[] ids = candidatos.get();
+            if (ids.length == 0) {
+                return Page.empty(pageable);
+            }
+            List<Long> listaIds = Arrays.stream(ids).boxed().toList();
+            spec = spec.and((root, query, cb) -> root.get("id").in(listaIds));
+        } else {
+            if (nome != null && !nome.isBlank()) {
+                spec = spec.and((root, query, cb) -> cb.like(cb.lower(root.get("nome")), "%" + nome.toLowerCase() + "%"));
+            }
+            if (email != null && !email.isBlank()) {
+                spec = spec.and((root, query, cb) -> cb.like(cb.lower(root.get("email")), "%" + email.toLowerCase() + "%"));
+            }
         }
         if (saldo != null) {
-            spec = spec.and((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("saldo"), saldo));
+            // O saldo de uma conta quente é a coluna mais as fatias, como no DTO
+            spec = spec.and((root, query, cb) -> {
+                Subquery<BigDecimal> fatias = query.subquery(BigDecimal.class);
+                Root<SaldoParcial> fatia = fatias.from(SaldoParcial.class);
+                fatias.select(cb.sum(fatia.<BigDecimal>get("valor")))
+                        .where(cb.equal(fatia.get("usuarioId"), root.get("id")));
+                return cb.greaterThanOrEqualTo(cb.sum(root.<BigDecimal>get("saldo"), cb.coalesce(fatias, BigDecimal.ZERO)),
+                        BigDecimal.valueOf(saldo));
+            });
         }
         return usuarioRepository.findAll(spec, pageable);
     }
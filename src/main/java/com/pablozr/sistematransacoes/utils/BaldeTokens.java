@@ -0,0 +1,44 @@
+package com.pablozr.sistematransacoes.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Balde de tokens sem lock, na forma GCRA: o estado é um único long com o instante teórico em que o
+ * balde estaria cheio de novo, atualizado por CAS. Equivale a um balde de capacidade N reabastecido
+ * a uma taxa fixa, sem precisar guardar tokens e último reabastecimento separados.
+ */
+public class BaldeTokens {
+    private final long intervaloNanos;
+    private final long toleranciaNanos;
+    private final AtomicLong cheioEm;
+
+    public BaldeTokens(long capacidade, double reposicaoPorSegundo, long agoraNanos) {
+        this.intervaloNanos = Math.max(1, (long) (1_000_000_000L / reposicaoPorSegundo));
+        this.toleranciaNanos = intervaloNanos * capacidade;
+        this.cheioEm = new AtomicLong(agoraNanos);
+    }
+
+    /**
+     * Tenta consumir um token. Retorna quantos tokens sobraram (>= 0) ou, se recusado,
+     * o negativo dos nanos até o próximo token ficar disponível.
+     */
+    public long tentarConsumir(long agoraNanos) {
+        while (true) {
+            long atual = cheioEm.get();
+            long base = Math.max(atual, agoraNanos);
+            long proximo = base + intervaloNanos;
+            long ocupado = proximo - agoraNanos;
+            if (ocupado > toleranciaNanos) {
+                return -Math.max(1, ocupado - toleranciaNanos);
+            }
+            if (cheioEm.compareAndSet(atual, proximo)) {
+                return (toleranciaNanos - ocupado) / intervaloNanos;
+            }
+        }
+    }
+
+    // Nanos até o balde voltar a ficar cheio
+    public long nanosAteCheio(long agoraNanos) {
+        return Math.max(0, cheioEm.get() - agoraNanos);
+    }
+}
@@ -0,0 +1,33 @@
+package com.pablozr.sistematransacoes.utils;
+
+import com.pablozr.sistematransacoes.exception.RequisicaoInvalidaException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Posição da paginação por cursor: a última (dataTransacao, id) entregue ao cliente, em formato opaco
+@Getter
+@AllArgsConstructor
+public final class CursorTransacao {
+    private final LocalDateTime dataTransacao;
+    private final Long id;
+
+    public String codificar() {
+        String valor = dataTransacao + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CursorTransacao decodificar(String cursor) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.lastIndexOf('|');
+            return new CursorTransacao(LocalDateTime.parse(valor.substring(0, separador)), Long.valueOf(valor.substring(separador + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new RequisicaoInvalidaException("Cursor inválido");
+        }
+    }
+}
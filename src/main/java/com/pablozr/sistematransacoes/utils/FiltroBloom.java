@@ -0,0 +1,88 @@
+package com.pablozr.sistematransacoes.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom para strings, seguro para inserções concorrentes. Nunca dá falso negativo;
+ * a taxa de falso positivo é dimensionada pela capacidade e pela probabilidade pedidas.
+ */
+public class FiltroBloom {
+    private final AtomicLongArray bits;
+    private final long tamanhoEmBits;
+    private final int funcoesHash;
+
+    public FiltroBloom(long capacidade, double probabilidadeFalsoPositivo) {
+        if (probabilidadeFalsoPositivo <= 0 || probabilidadeFalsoPositivo >= 1) {
+            throw new IllegalArgumentException("Probabilidade de falso positivo deve estar entre 0 e 1");
+        }
+        long n = Math.max(1, capacidade);
+        // m = -n ln p / (ln 2)^2 e k = m/n ln 2, arredondados para cima
+        long m = (long) Math.ceil(-n * Math.log(probabilidadeFalsoPositivo) / (Math.log(2) * Math.log(2)));
+        int palavras = (int) Math.min(Integer.MAX_VALUE - 8, (Math.max(64, m) + 63) >>> 6);
+        this.bits = new AtomicLongArray(palavras);
+        this.tamanhoEmBits = (long) palavras << 6;
+        this.funcoesHash = Math.max(1, (int) Math.round((double) tamanhoEmBits / n * Math.log(2)));
+    }
+
+    public void adicionar(String valor) {
+        long h = hash(valor);
+        long h1 = misturar(h);
+        long h2 = misturar(h + 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < funcoesHash; i++) {
+            long posicao = Math.floorMod(h1 + i * h2, tamanhoEmBits);
+            int palavra = (int) (posicao >>> 6);
+            long mascara = 1L << posicao;
+            long atual = bits.get(palavra);
+            while ((atual & mascara) == 0 && !bits.compareAndSet(palavra, atual, atual | mascara)) {
+                atual = bits.get(palavra);
+            }
+        }
+    }
+
+    public boolean talvezContenha(String valor) {
+        long h = hash(valor);
+        long h1 = misturar(h);
+        long h2 = misturar(h + 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < funcoesHash; i++) {
+            long posicao = Math.floorMod(h1 + i * h2, tamanhoEmBits);
+            if ((bits.get((int) (posicao >>> 6)) & (1L << posicao)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Estimativa pela fração de bits ligados: (ligados/m)^k
+    public double probabilidadeFalsoPositivoEstimada() {
+        long ligados = 0;
+        for (int i = 0; i < bits.length(); i++) {
+            ligados += Long.bitCount(bits.get(i));
+        }
+        return Math.pow((double) ligados / tamanhoEmBits, funcoesHash);
+    }
+
+    public long tamanhoEmBytes() {
+        return tamanhoEmBits >>> 3;
+    }
+
+    public int getFuncoesHash() {
+        return funcoesHash;
+    }
+
+    // FNV-1a de 64 bits sobre os caracteres
+    private static long hash(String valor) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < valor.length(); i++) {
+            h ^= valor.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        return h;
+    }
+
+    // Finalizador do SplitMix64, espalha os bits do FNV
+    private static long misturar(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
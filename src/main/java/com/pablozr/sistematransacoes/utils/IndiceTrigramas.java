@@ -0,0 +1,222 @@
+package com.pablozr.sistematransacoes.utils;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Índice em memória de trigramas sobre nome e email, para buscas "contém" sem varrer a tabela.
+ * Cada usuário ocupa uma posição (slot); cada trigrama de cada campo aponta para a lista crescente
+ * de slots que o contêm. A busca pega a menor lista entre os trigramas pedidos e confere o texto
+ * de cada candidato, então o resultado é exato e não só uma aproximação.
+ * <p>
+ * Atualizar ou remover um usuário só marca o slot antigo como vazio; quando os vazios passam dos
+ * ocupados o índice é compactado. Termos com menos de três letras não têm trigrama e caem numa
+ * varredura dos textos em memória.
+ */
+public final class IndiceTrigramas {
+    private static final int CAMPO_NOME = 0;
+    private static final int CAMPO_EMAIL = 1;
+    private static final int CAPACIDADE_INICIAL = 1024;
+    private static final Pattern DIACRITICOS = Pattern.compile("\\p{M}+");
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Postagens> postagens = new HashMap<>();
+    private final Map<Long, Integer> slotPorId = new HashMap<>();
+    private long[] ids = new long[CAPACIDADE_INICIAL];
+    private String[] nomes = new String[CAPACIDADE_INICIAL];
+    private String[] emails = new String[CAPACIDADE_INICIAL];
+    private int slots;
+    private int vazios;
+
+    public void indexar(long id, String nome, String email) {
+        lock.writeLock().lock();
+        try {
+            liberar(id);
+            adicionar(id, normalizar(nome), normalizar(email));
+            if (vazios > slotPorId.size()) {
+                compactar();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Para a carga inicial: não sobrescreve um usuário que já foi indexado por uma escrita mais recente
+    public void indexarSeAusente(long id, String nome, String email) {
+        lock.writeLock().lock();
+        try {
+            if (!slotPorId.containsKey(id)) {
+                adicionar(id, normalizar(nome), normalizar(email));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remover(long id) {
+        lock.writeLock().lock();
+        try {
+            liberar(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int tamanho() {
+        lock.readLock().lock();
+        try {
+            return slotPorId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids, em ordem crescente, dos usuários cujo nome contém {@code nome} e cujo email contém
+     * {@code email}, ignorando maiúsculas e acentos, como a collation utf8mb4_0900_ai_ci do MySQL no
+     * LIKE. Critério nulo ou em branco não filtra.
+     */
+    public long[] buscar(String nome, String email) {
+        String termoNome = termo(nome);
+        String termoEmail = termo(email);
+        lock.readLock().lock();
+        try {
+            Postagens menor = null;
+            boolean temTrigrama = false;
+            for (int campo = CAMPO_NOME; campo <= CAMPO_EMAIL; campo++) {
+                String termo = campo == CAMPO_NOME ? termoNome : termoEmail;
+                if (termo == null) {
+                    continue;
+                }
+                for (int i = 0; i + 3 <= termo.length(); i++) {
+                    Postagens lista = postagens.get(chave(campo, termo, i));
+                    if (lista == null) {
+                        return new long[0];
+                    }
+                    temTrigrama = true;
+                    if (menor == null || lista.tamanho < menor.tamanho) {
+                        menor = lista;
+                    }
+                }
+            }
+
+            int limite = temTrigrama ? menor.tamanho : slots;
+            long[] encontrados = new long[16];
+            int total = 0;
+            for (int i = 0; i < limite; i++) {
+                int slot = temTrigrama ? menor.slots[i] : i;
+                if (nomes[slot] == null) {
+                    continue;
+                }
+                if ((termoNome == null || nomes[slot].contains(termoNome))
+                        && (termoEmail == null || emails[slot].contains(termoEmail))) {
+                    if (total == encontrados.length) {
+                        encontrados = Arrays.copyOf(encontrados, total * 2);
+                    }
+                    encontrados[total++] = ids[slot];
+                }
+            }
+            long[] resultado = Arrays.copyOf(encontrados, total);
+            Arrays.sort(resultado);
+            return resultado;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void adicionar(long id, String nome, String email) {
+        if (slots == ids.length) {
+            int capacidade = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacidade);
+            nomes = Arrays.copyOf(nomes, capacidade);
+            emails = Arrays.copyOf(emails, capacidade);
+        }
+        int slot = slots++;
+        ids[slot] = id;
+        nomes[slot] = nome;
+        emails[slot] = email;
+        slotPorId.put(id, slot);
+        registrarTrigramas(CAMPO_NOME, nome, slot);
+        registrarTrigramas(CAMPO_EMAIL, email, slot);
+    }
+
+    private void liberar(long id) {
+        Integer slot = slotPorId.remove(id);
+        if (slot != null) {
+            nomes[slot] = null;
+            emails[slot] = null;
+            vazios++;
+        }
+    }
+
+    private void registrarTrigramas(int campo, String texto, int slot) {
+        Set<Long> vistos = new HashSet<>();
+        for (int i = 0; i + 3 <= texto.length(); i++) {
+            long chave = chave(campo, texto, i);
+            if (vistos.add(chave)) {
+                postagens.computeIfAbsent(chave, k -> new Postagens()).adicionar(slot);
+            }
+        }
+    }
+
+    // Reescreve os slots ocupados em sequência e refaz as listas, descartando as posições vazias
+    private void compactar() {
+        long[] idsAntigos = ids;
+        String[] nomesAntigos = nomes;
+        String[] emailsAntigos = emails;
+        int slotsAntigos = slots;
+        int capacidade = Math.max(CAPACIDADE_INICIAL, slotPorId.size() * 2);
+        ids = new long[capacidade];
+        nomes = new String[capacidade];
+        emails = new String[capacidade];
+        slots = 0;
+        vazios = 0;
+        postagens.clear();
+        slotPorId.clear();
+        for (int i = 0; i < slotsAntigos; i++) {
+            if (nomesAntigos[i] != null) {
+                adicionar(idsAntigos[i], nomesAntigos[i], emailsAntigos[i]);
+            }
+        }
+    }
+
+    private static String termo(String valor) {
+        return valor == null || valor.isBlank() ? null : normalizar(valor);
+    }
+
+    // Decompõe (NFD) e tira as marcas combinantes: "João" e "joao" viram o mesmo texto
+    private static String normalizar(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        String decomposto = Normalizer.normalize(valor, Normalizer.Form.NFD);
+        return DIACRITICOS.matcher(decomposto).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    // Campo no bit 48 e os três caracteres de 16 bits abaixo dele
+    private static long chave(int campo, String texto, int inicio) {
+        return ((long) campo << 48)
+                | ((long) texto.charAt(inicio) << 32)
+                | ((long) texto.charAt(inicio + 1) << 16)
+                | texto.charAt(inicio + 2);
+    }
+
+    private static final class Postagens {
+        private int[] slots = new int[4];
+        private int tamanho;
+
+        private void adicionar(int slot) {
+            if (tamanho == slots.length) {
+                slots = Arrays.copyOf(slots, tamanho * 2);
+            }
+            slots[tamanho++] = slot;
+        }
+    }
+}
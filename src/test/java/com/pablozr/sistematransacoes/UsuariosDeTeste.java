@@ -0,0 +1,29 @@
+package com.pablozr.sistematransacoes;
+
+import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Contas gravadas direto pelo repositório, sem passar pela validação de senha nem pelo índice de busca.
+ * O email é aleatório para que classes que compartilham o mesmo contexto (e o mesmo H2) não colidam.
+ */
+public final class UsuariosDeTeste {
+
+    private UsuariosDeTeste() {
+    }
+
+    public static Usuario criar(UsuarioRepository usuarioRepository, String nome, BigDecimal saldo) {
+        Usuario usuario = new Usuario();
+        usuario.setNome(nome);
+        usuario.setEmail(UUID.randomUUID() + "@teste.local");
+        usuario.setSenha("-");
+        usuario.setSaldo(saldo);
+        usuario.setAtivo(true);
+        usuario.setRoles(Set.of("ROLE_USER"));
+        return usuarioRepository.save(usuario);
+    }
+}
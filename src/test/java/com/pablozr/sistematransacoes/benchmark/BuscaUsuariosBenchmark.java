@@ -0,0 +1,71 @@
+package com.pablozr.sistematransacoes.benchmark;
+
+import com.pablozr.sistematransacoes.utils.IndiceTrigramas;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Busca administrativa "contém" com 10 milhões de usuários: o índice de trigramas contra a
+ * varredura com lower(...).contains(...) em todos os registros, que é o trabalho mínimo de um
+ * LIKE '%x%' sem índice (sem I/O nem SQL, então a diferença real no banco é maior).
+ * Precisa de heap grande; a carga do índice leva alguns minutos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms12g", "-Xmx12g"})
+public class BuscaUsuariosBenchmark {
+    private static final String[] NOMES = {"Ana", "Bruno", "Carla", "Diego", "Elisa", "Fábio", "Gabriela", "Heitor"};
+    private static final String[] SOBRENOMES = {"Silva", "Souza", "Oliveira", "Santos", "Pereira", "Lima", "Costa", "Almeida"};
+
+    @Param({"10000000"})
+    public int usuarios;
+
+    // Um email específico, um trecho de nome comum e os dois combinados
+    @Param({"-|usuario7654321@", "oliveira 12|-", "almeida|@dominio7."})
+    public String filtro;
+
+    private IndiceTrigramas indice;
+    private String[] nomes;
+    private String[] emails;
+    private String nome;
+    private String email;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        indice = new IndiceTrigramas();
+        nomes = new String[usuarios];
+        emails = new String[usuarios];
+        for (int i = 0; i < usuarios; i++) {
+            nomes[i] = NOMES[i % NOMES.length] + " " + SOBRENOMES[(i / NOMES.length) % SOBRENOMES.length] + " " + i;
+            emails[i] = "usuario" + i + "@dominio" + (i % 100) + ".com";
+            indice.indexarSeAusente(i + 1L, nomes[i], emails[i]);
+        }
+        String[] partes = filtro.split("\\|");
+        nome = "-".equals(partes[0]) ? null : partes[0];
+        email = "-".equals(partes[1]) ? null : partes[1];
+    }
+
+    @Benchmark
+    public long[] indiceTrigramas() {
+        return indice.buscar(nome, email);
+    }
+
+    @Benchmark
+    public int varreduraCompleta() {
+        String termoNome = nome == null ? null : nome.toLowerCase(Locale.ROOT);
+        String termoEmail = email == null ? null : email.toLowerCase(Locale.ROOT);
+        int encontrados = 0;
+        for (int i = 0; i < usuarios; i++) {
+            if ((termoNome == null || nomes[i].toLowerCase(Locale.ROOT).contains(termoNome))
+                    && (termoEmail == null || emails[i].toLowerCase(Locale.ROOT).contains(termoEmail))) {
+                encontrados++;
+            }
+        }
+        return encontrados;
+    }
+}
@@ -0,0 +1,242 @@
+package com.pablozr.sistematransacoes.benchmark;
+
+import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+import com.pablozr.sistematransacoes.security.JwtTokenProvider;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Carga de ponta a ponta em processo: sobe a aplicação com Tomcat sobre um H2 exclusivo e dispara
+ * depósitos e transferências por HTTP, com origem e destino sorteados por Zipf (expoente 0 = uniforme;
+ * destino com expoente alto concentra os pagamentos numa conta "lojista"). No fim imprime vazão,
+ * percentis de latência, contagem por resultado e confere que o dinheiro total bate com os depósitos.
+ *
+ * mvn -Pcarga test -Dcarga.args="threads=128 duracao=30 zipf.destino=1.2"
+ */
+public final class CargaTransacoes {
+    private static final BigDecimal SALDO_INICIAL = new BigDecimal("1000.00");
+
+    private CargaTransacoes() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opcoes = lerOpcoes(args);
+        int contas = inteiro(opcoes, "contas", 1000);
+        int threads = inteiro(opcoes, "threads", 64);
+        int duracaoSegundos = inteiro(opcoes, "duracao", 30);
+        int aquecimentoSegundos = inteiro(opcoes, "aquecimento", 5);
+        double proporcaoDeposito = decimal(opcoes, "proporcao.deposito", 0.1);
+        double zipfOrigem = decimal(opcoes, "zipf.origem", 0.0);
+        double zipfDestino = decimal(opcoes, "zipf.destino", 1.0);
+        BigDecimal valor = new BigDecimal(opcoes.getOrDefault("valor", "1.00"));
+
+        Map<String, Object> propriedades = new HashMap<>();
+        propriedades.put("server.tomcat.threads.max", Math.max(200, threads));
+        propriedades.put("ledger.engine.enabled", Boolean.parseBoolean(opcoes.getOrDefault("ledger", "false")));
+        try (ConfigurableApplicationContext contexto = ContextoBenchmark.iniciarComServidor(propriedades)) {
+            UsuarioRepository usuarioRepository = contexto.getBean(UsuarioRepository.class);
+            JwtTokenProvider jwtTokenProvider = contexto.getBean(JwtTokenProvider.class);
+            List<Long> ids = ContextoBenchmark.criarContas(usuarioRepository, contas, SALDO_INICIAL);
+            BigDecimal totalInicial = somarSaldos(usuarioRepository);
+
+            String base = "http://localhost:" + contexto.getEnvironment().getProperty("local.server.port") + "/api/transacoes";
+            String[] tokens = new String[contas];
+            for (int i = 0; i < contas; i++) {
+                tokens[i] = jwtTokenProvider.generateToken("conta" + i + "@benchmark.local", ids.get(i), Set.of("ROLE_USER"));
+            }
+            Zipf origem = new Zipf(contas, zipfOrigem);
+            Zipf destino = new Zipf(contas, zipfDestino);
+            HttpClient cliente = HttpClient.newBuilder()
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+
+            System.out.printf("Carga: %d contas, %d threads, %ds (+%ds aquecimento), %.0f%% depósitos, zipf origem=%.2f destino=%.2f%n",
+                    contas, threads, duracaoSegundos, aquecimentoSegundos, proporcaoDeposito * 100, zipfOrigem, zipfDestino);
+
+            Resultado aquecimento = executar(cliente, base, tokens, ids, origem, destino, valor, proporcaoDeposito, threads, aquecimentoSegundos);
+            Resultado resultado = executar(cliente, base, tokens, ids, origem, destino, valor, proporcaoDeposito, threads, duracaoSegundos);
+            resultado.imprimir(duracaoSegundos);
+
+            BigDecimal depositado = valor.multiply(BigDecimal.valueOf(aquecimento.depositos.sum() + resultado.depositos.sum()));
+            BigDecimal esperado = totalInicial.add(depositado);
+            BigDecimal totalFinal = somarSaldos(usuarioRepository);
+            System.out.printf("Conservação: inicial=%s depositado=%s esperado=%s final=%s%n", totalInicial, depositado, esperado, totalFinal);
+            if (esperado.compareTo(totalFinal) != 0) {
+                throw new IllegalStateException("Dinheiro criado ou perdido: diferença de " + totalFinal.subtract(esperado));
+            }
+            boolean negativo = usuarioRepository.findAll().stream().anyMatch(u -> u.getSaldo().signum() < 0);
+            if (negativo) {
+                throw new IllegalStateException("Alguma conta terminou com saldo negativo");
+            }
+            System.out.println("Conservação OK");
+        }
+    }
+
+    private static Resultado executar(HttpClient cliente, String base, String[] tokens, List<Long> ids, Zipf origem, Zipf destino,
+                                      BigDecimal valor, double proporcaoDeposito, int threads, int segundos) throws Exception {
+        Resultado resultado = new Resultado();
+        long fim = System.nanoTime() + Duration.ofSeconds(segundos).toNanos();
+        String corpoDeposito = "{\"valor\":" + valor.toPlainString() + "}";
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<long[]>> tarefas = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            tarefas.add(executor.submit(() -> {
+                largada.await();
+                ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+                long[] latencias = new long[1 << 14];
+                int quantidade = 0;
+                while (System.nanoTime() < fim) {
+                    int de = origem.sortear(aleatorio);
+                    boolean deposito = aleatorio.nextDouble() < proporcaoDeposito;
+                    HttpRequest requisicao;
+                    if (deposito) {
+                        requisicao = post(base + "/deposito", tokens[de], corpoDeposito);
+                    } else {
+                        int para = destino.sortear(aleatorio);
+                        if (para == de) {
+                            continue;
+                        }
+                        requisicao = post(base + "/transferencia", tokens[de],
+                                "{\"valor\":" + valor.toPlainString() + ",\"destinatarioId\":" + ids.get(para) + "}");
+                    }
+                    long inicio = System.nanoTime();
+                    HttpResponse<String> resposta = cliente.send(requisicao, HttpResponse.BodyHandlers.ofString());
+                    long duracao = System.nanoTime() - inicio;
+                    if (quantidade == latencias.length) {
+                        latencias = Arrays.copyOf(latencias, latencias.length * 2);
+                    }
+                    latencias[quantidade++] = duracao;
+                    resultado.registrar(deposito, resposta);
+                }
+                return Arrays.copyOf(latencias, quantidade);
+            }));
+        }
+        largada.countDown();
+        List<long[]> partes = new ArrayList<>();
+        for (Future<long[]> tarefa : tarefas) {
+            partes.add(tarefa.get());
+        }
+        executor.shutdown();
+        resultado.latencias = partes.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return resultado;
+    }
+
+    private static HttpRequest post(String url, String token, String corpo) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(corpo))
+                .build();
+    }
+
+    private static BigDecimal somarSaldos(UsuarioRepository usuarioRepository) {
+        return usuarioRepository.findAll().stream().map(Usuario::getSaldo).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static Map<String, String> lerOpcoes(String[] args) {
+        Map<String, String> opcoes = new HashMap<>();
+        for (String arg : args) {
+            for (String parte : arg.trim().split("\\s+")) {
+                int igual = parte.indexOf('=');
+                if (igual > 0) {
+                    opcoes.put(parte.substring(0, igual), parte.substring(igual + 1));
+                }
+            }
+        }
+        return opcoes;
+    }
+
+    private static int inteiro(Map<String, String> opcoes, String chave, int padrao) {
+        return opcoes.containsKey(chave) ? Integer.parseInt(opcoes.get(chave)) : padrao;
+    }
+
+    private static double decimal(Map<String, String> opcoes, String chave, double padrao) {
+        return opcoes.containsKey(chave) ? Double.parseDouble(opcoes.get(chave)) : padrao;
+    }
+
+    // Distribuição de Zipf por busca binária na acumulada; a conta de índice 0 é a mais sorteada
+    static final class Zipf {
+        private final double[] acumulada;
+
+        Zipf(int n, double expoente) {
+            acumulada = new double[n];
+            double soma = 0;
+            for (int i = 0; i < n; i++) {
+                soma += 1.0 / Math.pow(i + 1, expoente);
+                acumulada[i] = soma;
+            }
+            for (int i = 0; i < n; i++) {
+                acumulada[i] /= soma;
+            }
+        }
+
+        int sortear(ThreadLocalRandom aleatorio) {
+            int indice = Arrays.binarySearch(acumulada, aleatorio.nextDouble());
+            return Math.min(indice >= 0 ? indice : -indice - 1, acumulada.length - 1);
+        }
+    }
+
+    static final class Resultado {
+        final LongAdder depositos = new LongAdder();
+        final LongAdder transferencias = new LongAdder();
+        final LongAdder saldoInsuficiente = new LongAdder();
+        final LongAdder conflitosVersao = new LongAdder();
+        final LongAdder deadlocks = new LongAdder();
+        final LongAdder outrosErros = new LongAdder();
+        long[] latencias;
+
+        void registrar(boolean deposito, HttpResponse<String> resposta) {
+            int status = resposta.statusCode();
+            if (status == 200) {
+                (deposito ? depositos : transferencias).increment();
+            } else if (status == 400 && resposta.body().contains("Saldo insuficiente")) {
+                saldoInsuficiente.increment();
+            } else if (status == 409 && resposta.body().contains("deadlock")) {
+                deadlocks.increment();
+            } else if (status == 409) {
+                conflitosVersao.increment();
+            } else {
+                outrosErros.increment();
+            }
+        }
+
+        void imprimir(int segundos) {
+            long total = latencias.length;
+            System.out.printf("Requisições: %d (%.1f/s) | depósitos %d | transferências %d (%.1f/s)%n",
+                    total, (double) total / segundos, depositos.sum(), transferencias.sum(), (double) transferencias.sum() / segundos);
+            System.out.printf("Falhas: saldo insuficiente %d | conflito de versão %d | deadlock %d | outros %d%n",
+                    saldoInsuficiente.sum(), conflitosVersao.sum(), deadlocks.sum(), outrosErros.sum());
+            if (total > 0) {
+                System.out.printf("Latência (ms): p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f%n",
+                        percentil(0.50), percentil(0.90), percentil(0.99), percentil(0.999), latencias[latencias.length - 1] / 1e6);
+            }
+        }
+
+        private double percentil(double p) {
+            int indice = (int) Math.ceil(p * latencias.length) - 1;
+            return latencias[Math.max(0, Math.min(indice, latencias.length - 1))] / 1e6;
+        }
+    }
+}
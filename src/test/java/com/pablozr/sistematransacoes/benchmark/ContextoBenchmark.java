@@ -0,0 +1,69 @@
+package com.pablozr.sistematransacoes.benchmark;
+
+import com.pablozr.sistematransacoes.SistematransacoesApplication;
+import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// Sobe a aplicação contra um H2 em memória exclusivo para os benchmarks, por padrão sem servidor web
+final class ContextoBenchmark {
+
+    private ContextoBenchmark() {
+    }
+
+    static ConfigurableApplicationContext iniciar(Map<String, Object> propriedades) {
+        return iniciar(propriedades, WebApplicationType.NONE);
+    }
+
+    // Com Tomcat numa porta livre, lida depois em local.server.port
+    static ConfigurableApplicationContext iniciarComServidor(Map<String, Object> propriedades) {
+        Map<String, Object> comPorta = new HashMap<>(propriedades);
+        comPorta.putIfAbsent("server.port", 0);
+        return iniciar(comPorta, WebApplicationType.SERVLET);
+    }
+
+    private static ConfigurableApplicationContext iniciar(Map<String, Object> propriedades, WebApplicationType tipo) {
+        Map<String, Object> padrao = new HashMap<>();
+        padrao.put("spring.datasource.url", "jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=MySQL");
+        padrao.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        padrao.put("spring.mail.host", "localhost");
+        padrao.put("jwt.secret", "segredo-de-benchmark-com-tamanho-suficiente-para-hmac-sha-512-0123456789abcdef");
+        padrao.put("senha.bcrypt.custo", 4); // Sem calibração na subida
+        padrao.put("limite.taxa.habilitado", false); // A carga vem de poucos usuários de propósito
+        padrao.put("logging.level.root", "WARN");
+        padrao.putAll(propriedades);
+        return new SpringApplicationBuilder(SistematransacoesApplication.class)
+                .web(tipo)
+                .properties(padrao)
+                .run();
+    }
+
+    static List<Long> criarContas(UsuarioRepository usuarioRepository, int quantidade, BigDecimal saldoInicial) {
+        List<Usuario> contas = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            Usuario usuario = new Usuario();
+            usuario.setNome("Conta " + i);
+            usuario.setEmail("conta" + i + "@benchmark.local");
+            usuario.setSenha("-");
+            usuario.setSaldo(saldoInicial);
+            usuario.setAtivo(true);
+            usuario.setRoles(Set.of("ROLE_USER"));
+            contas.add(usuario);
+        }
+        List<Long> ids = new ArrayList<>(quantidade);
+        for (Usuario conta : usuarioRepository.saveAll(contas)) {
+            ids.add(conta.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,72 @@
+package com.pablozr.sistematransacoes.benchmark;
+
+import com.pablozr.sistematransacoes.enums.TipoTransacao;
+import com.pablozr.sistematransacoes.model.Transacao;
+import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.repository.OperacoesLoteRepository;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert em massa de Transacao pelo EntityManager. Com jpa.lote.tamanho=1 cada linha vira um
+ * executeUpdate, como acontecia com IDENTITY; com 50 o Hibernate manda os INSERTs em batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsercaoTransacoesBenchmark {
+    private static final int CONTAS = 100;
+
+    @Param({"1", "50"})
+    public int loteJdbc;
+
+    @Param({"1000"})
+    public int transacoes;
+
+    private ConfigurableApplicationContext contexto;
+    private OperacoesLoteRepository operacoesLoteRepository;
+    private TransactionTemplate transactionTemplate;
+    private List<Usuario> contas;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar(Map.of("jpa.lote.tamanho", loteJdbc));
+        operacoesLoteRepository = contexto.getBean(OperacoesLoteRepository.class);
+        transactionTemplate = contexto.getBean(TransactionTemplate.class);
+        UsuarioRepository usuarioRepository = contexto.getBean(UsuarioRepository.class);
+        contas = usuarioRepository.findAllById(ContextoBenchmark.criarContas(usuarioRepository, CONTAS, BigDecimal.ZERO));
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public List<Transacao> inserirEmMassa() {
+        LocalDateTime agora = LocalDateTime.now();
+        List<Transacao> lote = new ArrayList<>(transacoes);
+        for (int i = 0; i < transacoes; i++) {
+            Transacao transacao = new Transacao();
+            transacao.setTipo(TipoTransacao.DEPOSITO);
+            transacao.setValor(BigDecimal.ONE);
+            transacao.setUsuario(contas.get(i % CONTAS));
+            transacao.setDataTransacao(agora);
+            lote.add(transacao);
+        }
+        transactionTemplate.executeWithoutResult(status -> operacoesLoteRepository.inserirTransacoes(lote));
+        return lote;
+    }
+}
@@ -0,0 +1,81 @@
+package com.pablozr.sistematransacoes.benchmark;
+
+import com.pablozr.sistematransacoes.security.JwtAuthenticationFilter;
+import com.pablozr.sistematransacoes.security.JwtTokenProvider;
+import com.pablozr.sistematransacoes.security.UsuarioSnapshot;
+import com.pablozr.sistematransacoes.service.UsuarioService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo do filtro JWT por requisição, sem banco: blacklist e busca do usuário são stubs em memória,
+ * então sobra a verificação do token (com e sem cache), a montagem da Authentication e o SecurityContext.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+    private static final String SEGREDO = "segredo-de-benchmark-com-tamanho-suficiente-para-hmac-sha-512-0123456789abcdef";
+    private static final String EMAIL = "usuario@benchmark.local";
+
+    @Param({"100000", "0"})
+    public long tamanhoCacheJwt;
+
+    private JwtAuthenticationFilter filtro;
+    private MockHttpServletRequest requisicao;
+    private MockHttpServletResponse resposta;
+    private final FilterChain cadeia = (req, res) -> { };
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        JwtTokenProvider jwtTokenProvider = new JwtTokenProvider(SEGREDO, tamanhoCacheJwt);
+        UsuarioSnapshot usuario = new UsuarioSnapshot(1L, EMAIL, true, Set.of("ROLE_USER"));
+        filtro = new JwtAuthenticationFilter(jwtTokenProvider, new UsuarioServiceStub(usuario));
+
+        requisicao = new MockHttpServletRequest("GET", "/api/transacoes");
+        requisicao.addHeader("Authorization", "Bearer " + jwtTokenProvider.generateToken(EMAIL, 1L, Set.of("ROLE_USER")));
+        resposta = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Object filtrar() throws ServletException, IOException {
+        try {
+            filtro.doFilter(requisicao, resposta, cadeia);
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    // Só os dois métodos que o filtro usa; os repositórios ficam nulos porque nunca são tocados
+    static class UsuarioServiceStub extends UsuarioService {
+        private final UsuarioSnapshot usuario;
+
+        UsuarioServiceStub(UsuarioSnapshot usuario) {
+            super(null, null, null, null, null, null, null, null, null, null, null, null, 0);
+            this.usuario = usuario;
+        }
+
+        @Override
+        public boolean isTokenBlacklisted(String token) {
+            return false;
+        }
+
+        @Override
+        public Optional<UsuarioSnapshot> buscarSnapshotPorEmail(String email) {
+            return Optional.of(usuario);
+        }
+    }
+}
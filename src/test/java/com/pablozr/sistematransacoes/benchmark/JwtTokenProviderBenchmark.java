@@ -0,0 +1,91 @@
+package com.pablozr.sistematransacoes.benchmark;
+
+import com.pablozr.sistematransacoes.security.JwtPrincipal;
+import com.pablozr.sistematransacoes.security.JwtTokenProvider;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Geração de token no login e custo de autenticar uma requisição: o fluxo antigo do filtro
+ * (validateToken, getEmailFromToken e getRolesFromToken, cada um recriando a chave e verificando
+ * a assinatura), uma verificação única sem cache e a verificação com o principal já em cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+    private static final String SEGREDO = "segredo-de-benchmark-com-tamanho-suficiente-para-hmac-sha-512-0123456789abcdef";
+    private static final int TOKENS = 1024;
+
+    private JwtTokenProvider comCache;
+    private JwtTokenProvider semCache;
+    private String[] tokens;
+    private int proximo;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        comCache = new JwtTokenProvider(SEGREDO, 100_000);
+        semCache = new JwtTokenProvider(SEGREDO, 0);
+        tokens = new String[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            tokens[i] = comCache.generateToken("usuario" + i + "@benchmark.local", (long) i, Set.of("ROLE_USER"));
+        }
+        for (String token : tokens) {
+            comCache.verificar(token);
+        }
+    }
+
+    private String token() {
+        proximo = (proximo + 1) & (TOKENS - 1);
+        return tokens[proximo];
+    }
+
+    @Benchmark
+    public void tresVerificacoesPorRequisicao(Blackhole blackhole) {
+        String token = token();
+        blackhole.consume(Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(SEGREDO.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseSignedClaims(token));
+        blackhole.consume(Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(SEGREDO.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload()
+                .getSubject());
+        Claims payload = Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(SEGREDO.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+        blackhole.consume(payload.get("roles", List.class));
+    }
+
+    @Benchmark
+    public Optional<JwtPrincipal> verificacaoUnicaSemCache() {
+        return semCache.verificar(token());
+    }
+
+    @Benchmark
+    public Optional<JwtPrincipal> verificacaoEmCache() {
+        return comCache.verificar(token());
+    }
+
+    @Benchmark
+    public String geracao() {
+        proximo = (proximo + 1) & (TOKENS - 1);
+        return comCache.generateToken("usuario" + proximo + "@benchmark.local", (long) proximo, Set.of("ROLE_USER"));
+    }
+}
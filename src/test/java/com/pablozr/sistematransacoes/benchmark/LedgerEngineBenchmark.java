@@ -0,0 +1,75 @@
+package com.pablozr.sistematransacoes.benchmark;
+
+import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+import com.pablozr.sistematransacoes.service.TransacaoService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara a vazão de transferências pelo caminho padrão do banco com o LedgerEngine.
+ * Conflitos de versão e de trava contam como falha, não como vazão.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(8)
+public class LedgerEngineBenchmark {
+
+    @Param({"false", "true"})
+    public boolean ledgerEngine;
+
+    @Param({"20", "1000"})
+    public int contas;
+
+    private ConfigurableApplicationContext contexto;
+    private TransacaoService transacaoService;
+    private UsuarioRepository usuarioRepository;
+    private List<Long> ids;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Resultado {
+        public long concluidas;
+        public long conflitos;
+    }
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar(Map.of("ledger.engine.enabled", ledgerEngine));
+        transacaoService = contexto.getBean(TransacaoService.class);
+        usuarioRepository = contexto.getBean(UsuarioRepository.class);
+        ids = ContextoBenchmark.criarContas(usuarioRepository, contas, new BigDecimal("1000000.00"));
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public void transferencia(Resultado resultado) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int origem = random.nextInt(contas);
+        int destino = (origem + 1 + random.nextInt(contas - 1)) % contas;
+        // Mesmo fluxo do controller: as entidades são carregadas antes da transação do serviço
+        Usuario remetente = usuarioRepository.findById(ids.get(origem)).orElseThrow();
+        Usuario destinatario = usuarioRepository.findById(ids.get(destino)).orElseThrow();
+        try {
+            transacaoService.tranferencia(remetente, destinatario, BigDecimal.ONE);
+            resultado.concluidas++;
+        } catch (ConcurrencyFailureException e) {
+            resultado.conflitos++;
+        }
+    }
+}
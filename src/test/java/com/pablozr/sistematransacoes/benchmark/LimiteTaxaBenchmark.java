@@ -0,0 +1,79 @@
+package com.pablozr.sistematransacoes.benchmark;
+
+import com.pablozr.sistematransacoes.security.JwtAuthenticationFilter;
+import com.pablozr.sistematransacoes.security.JwtPrincipal;
+import com.pablozr.sistematransacoes.security.LimiteTaxa;
+import com.pablozr.sistematransacoes.security.LimiteTaxaInterceptor;
+import com.pablozr.sistematransacoes.utils.BaldeTokens;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo do limite por usuário numa requisição permitida: o CAS do balde isolado (um balde disputado
+ * por todas as threads) e o preHandle completo do interceptor, com busca do balde no Caffeine e headers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class LimiteTaxaBenchmark {
+    private static final int USUARIOS = 10_000;
+
+    private BaldeTokens baldeCompartilhado;
+    private LimiteTaxaInterceptor interceptor;
+    private HandlerMethod handler;
+
+    @Setup(Level.Trial)
+    public void iniciar() throws NoSuchMethodException {
+        // Capacidade e reposição altas o bastante para nenhuma requisição ser recusada
+        baldeCompartilhado = new BaldeTokens(Long.MAX_VALUE / 4_000_000_000L, 1e9, System.nanoTime());
+        MockEnvironment ambiente = new MockEnvironment()
+                .withProperty("limite.taxa.benchmark.capacidade", "1000000000")
+                .withProperty("limite.taxa.benchmark.reposicao-por-segundo", "1000000000");
+        interceptor = new LimiteTaxaInterceptor(ambiente, new SimpleMeterRegistry(), true, 20, 10, 100_000);
+        handler = new HandlerMethod(new Endpoint(), Endpoint.class.getMethod("transferir"));
+    }
+
+    @State(Scope.Thread)
+    public static class Requisicao {
+        MockHttpServletRequest requisicao;
+        MockHttpServletResponse resposta;
+
+        @Setup(Level.Trial)
+        public void iniciar() {
+            long usuario = ThreadLocalRandom.current().nextInt(USUARIOS);
+            requisicao = new MockHttpServletRequest("POST", "/api/transacoes/transferencia");
+            requisicao.setAttribute(JwtAuthenticationFilter.ATRIBUTO_PRINCIPAL,
+                    new JwtPrincipal("usuario" + usuario + "@benchmark.local", usuario, Set.of("ROLE_USER"), Instant.now().plusSeconds(3600)));
+            resposta = new MockHttpServletResponse();
+        }
+    }
+
+    @Benchmark
+    public long consumirBaldeDisputado() {
+        return baldeCompartilhado.tentarConsumir(System.nanoTime());
+    }
+
+    @Benchmark
+    public boolean preHandlePermitido(Requisicao estado) {
+        return interceptor.preHandle(estado.requisicao, estado.resposta, handler);
+    }
+
+    public static class Endpoint {
+        @LimiteTaxa("benchmark")
+        public void transferir() {
+        }
+    }
+}
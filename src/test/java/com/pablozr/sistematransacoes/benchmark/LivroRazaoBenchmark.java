@@ -0,0 +1,85 @@
+package com.pablozr.sistematransacoes.benchmark;
+
+import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+import com.pablozr.sistematransacoes.service.LivroRazaoService;
+import com.pablozr.sistematransacoes.service.TransacaoService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conta quente recebendo de muitas origens: o caminho de atualizarSaldo, que faz UPDATE na linha
+ * da conta a cada crédito, contra o livro razão, em que o crédito é só um insert de lançamento.
+ * A consolidação roda a cada segundo para que o custo dos checkpoints entre na medida.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(8)
+public class LivroRazaoBenchmark {
+    private static final int CONTAS = 1000;
+
+    @Param({"false", "true"})
+    public boolean livroRazao;
+
+    private ConfigurableApplicationContext contexto;
+    private TransacaoService transacaoService;
+    private UsuarioRepository usuarioRepository;
+    private List<Long> ids;
+    private Usuario contaQuente;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Resultado {
+        public long concluidas;
+        public long conflitos;
+    }
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar(Map.of(
+                "ledger.partidas.enabled", livroRazao,
+                "ledger.partidas.checkpoint-intervalo-ms", 1000));
+        transacaoService = contexto.getBean(TransacaoService.class);
+        usuarioRepository = contexto.getBean(UsuarioRepository.class);
+        ids = ContextoBenchmark.criarContas(usuarioRepository, CONTAS, new BigDecimal("1000000.00"));
+        contexto.getBean(LivroRazaoService.class).abrirSaldos(); // As contas foram criadas depois do ApplicationReadyEvent
+        contaQuente = usuarioRepository.findById(ids.get(0)).orElseThrow();
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public void transferenciaParaContaQuente(Resultado resultado) {
+        Usuario remetente = usuarioRepository.findById(ids.get(1 + ThreadLocalRandom.current().nextInt(CONTAS - 1))).orElseThrow();
+        try {
+            transacaoService.tranferencia(remetente, contaQuente, BigDecimal.ONE);
+            resultado.concluidas++;
+        } catch (ConcurrencyFailureException e) {
+            resultado.conflitos++;
+        }
+    }
+
+    @Benchmark
+    public void depositoNaContaQuente(Resultado resultado) {
+        try {
+            transacaoService.deposito(contaQuente, BigDecimal.ONE);
+            resultado.concluidas++;
+        } catch (ConcurrencyFailureException e) {
+            resultado.conflitos++;
+        }
+    }
+}
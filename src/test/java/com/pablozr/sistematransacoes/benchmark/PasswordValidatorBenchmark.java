@@ -0,0 +1,33 @@
+package com.pablozr.sistematransacoes.benchmark;
+
+import com.pablozr.sistematransacoes.exception.SenhaFracaException;
+import com.pablozr.sistematransacoes.utils.PasswordValidator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validação de senha no cadastro: uma senha válida percorre todas as regras,
+ * uma sem caractere especial falha só na última.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordValidatorBenchmark {
+
+    @Param({"SenhaForte#2024", "SenhaSemEspecial2024"})
+    public String senha;
+
+    @Benchmark
+    public boolean validar() {
+        try {
+            PasswordValidator.validate(senha);
+            return true;
+        } catch (SenhaFracaException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.pablozr.sistematransacoes.benchmark;
+
+import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+import com.pablozr.sistematransacoes.service.SaldoFracionadoService;
+import com.pablozr.sistematransacoes.service.TransacaoService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Créditos simultâneos numa conta quente: com 0 fatias todos disputam a linha do usuário,
+ * com N fatias cada crédito trava só uma das linhas de saldo_parcial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(16)
+public class SaldoFracionadoBenchmark {
+    private static final int CONTAS = 1000;
+
+    @Param({"0", "16"})
+    public int fatias;
+
+    private ConfigurableApplicationContext contexto;
+    private TransacaoService transacaoService;
+    private UsuarioRepository usuarioRepository;
+    private List<Long> ids;
+    private Usuario contaQuente;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Resultado {
+        public long concluidas;
+        public long conflitos;
+    }
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar(Map.of());
+        transacaoService = contexto.getBean(TransacaoService.class);
+        usuarioRepository = contexto.getBean(UsuarioRepository.class);
+        ids = ContextoBenchmark.criarContas(usuarioRepository, CONTAS, new BigDecimal("1000000.00"));
+        contexto.getBean(SaldoFracionadoService.class).redefinirFatias(ids.get(0), fatias);
+        contaQuente = usuarioRepository.findById(ids.get(0)).orElseThrow();
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public void creditoNaContaQuente(Resultado resultado) {
+        Usuario remetente = usuarioRepository.findById(ids.get(1 + ThreadLocalRandom.current().nextInt(CONTAS - 1))).orElseThrow();
+        try {
+            transacaoService.tranferencia(remetente, contaQuente, BigDecimal.ONE);
+            resultado.concluidas++;
+        } catch (ConcurrencyFailureException e) {
+            resultado.conflitos++;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.pablozr.sistematransacoes.benchmark;
+
+import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+import com.pablozr.sistematransacoes.security.JwtTokenProvider;
+import com.pablozr.sistematransacoes.service.TransacaoService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Teste de carga do caminho bloqueante (filtro JWT + listagem via JPA) com muitas requisições simultâneas,
+ * comparando o pool de threads de plataforma do Tomcat com threads virtuais e o semáforo de conexões.
+ * O modo SampleTime dá os percentis (p0.99) e o Throughput as requisições por segundo.
+ * mvn -Pbenchmark test -Djmh.includes=ThreadsVirtuaisBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(512)
+@Fork(1)
+public class ThreadsVirtuaisBenchmark {
+    private static final int CONTAS = 64;
+    private static final int TRANSACOES_POR_CONTA = 50;
+
+    @Param({"plataforma", "virtual"})
+    public String modo;
+
+    private ConfigurableApplicationContext contexto;
+    private HttpClient cliente;
+    private HttpRequest[] requisicoes;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciarComServidor(Map.of(
+                "spring.threads.virtual.enabled", modo.equals("virtual"),
+                "server.tomcat.threads.max", 200,
+                "server.tomcat.accept-count", 1000,
+                "spring.datasource.hikari.maximum-pool-size", 10));
+        UsuarioRepository usuarioRepository = contexto.getBean(UsuarioRepository.class);
+        TransacaoService transacaoService = contexto.getBean(TransacaoService.class);
+        JwtTokenProvider jwtTokenProvider = contexto.getBean(JwtTokenProvider.class);
+        List<Long> ids = ContextoBenchmark.criarContas(usuarioRepository, CONTAS, BigDecimal.ZERO);
+
+        String porta = contexto.getEnvironment().getProperty("local.server.port");
+        requisicoes = new HttpRequest[CONTAS];
+        for (int i = 0; i < CONTAS; i++) {
+            Usuario usuario = usuarioRepository.findById(ids.get(i)).orElseThrow();
+            for (int j = 0; j < TRANSACOES_POR_CONTA; j++) {
+                transacaoService.deposito(usuario, BigDecimal.TEN);
+            }
+            String token = jwtTokenProvider.generateToken(usuario.getEmail(), usuario.getId(), usuario.getRoles());
+            requisicoes[i] = HttpRequest.newBuilder(URI.create("http://localhost:" + porta + "/api/transacoes?size=20"))
+                    .header("Authorization", "Bearer " + token)
+                    .timeout(Duration.ofSeconds(60))
+                    .GET()
+                    .build();
+        }
+        // O cliente também usa threads virtuais para não ser ele o gargalo com 512 threads de carga
+        cliente = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Cliente {
+        int proxima;
+    }
+
+    @Benchmark
+    public int listarTransacoes(Cliente estado) throws IOException, InterruptedException {
+        estado.proxima = (estado.proxima + 1) % CONTAS;
+        HttpResponse<Void> resposta = cliente.send(requisicoes[estado.proxima], HttpResponse.BodyHandlers.discarding());
+        if (resposta.statusCode() != 200) {
+            throw new IllegalStateException("Resposta inesperada: " + resposta.statusCode());
+        }
+        return resposta.statusCode();
+    }
+}
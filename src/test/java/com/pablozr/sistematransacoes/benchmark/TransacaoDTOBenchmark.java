@@ -0,0 +1,78 @@
+package com.pablozr.sistematransacoes.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pablozr.sistematransacoes.controller.dto.TransacaoDTOOut;
+import com.pablozr.sistematransacoes.enums.TipoTransacao;
+import com.pablozr.sistematransacoes.model.Transacao;
+import com.pablozr.sistematransacoes.model.Usuario;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saída das listagens: conversão de entidade para TransacaoDTOOut e serialização de uma
+ * Page<TransacaoDTOOut> com o mesmo ObjectMapper que o Spring MVC monta.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransacaoDTOBenchmark {
+
+    @Param({"20", "100"})
+    public int tamanhoPagina;
+
+    private Transacao transferencia;
+    private Page<TransacaoDTOOut> pagina;
+    private ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        Usuario remetente = usuario(1L, "Remetente");
+        Usuario destinatario = usuario(2L, "Destinatário");
+        transferencia = new Transacao();
+        transferencia.setId(1L);
+        transferencia.setTipo(TipoTransacao.TRANSFERENCIA);
+        transferencia.setValor(new BigDecimal("123.45"));
+        transferencia.setDataTransacao(LocalDateTime.now());
+        transferencia.setUsuario(remetente);
+        transferencia.setDestinatario(destinatario);
+
+        List<TransacaoDTOOut> conteudo = new ArrayList<>(tamanhoPagina);
+        LocalDateTime agora = LocalDateTime.now();
+        for (int i = 0; i < tamanhoPagina; i++) {
+            conteudo.add(new TransacaoDTOOut((long) i, TipoTransacao.TRANSFERENCIA, new BigDecimal("10.00"), agora.minusMinutes(i),
+                    1L, 2L, "Remetente", "Destinatário"));
+        }
+        pagina = new PageImpl<>(conteudo, PageRequest.of(0, tamanhoPagina), 10_000);
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @Benchmark
+    public TransacaoDTOOut converterParaDTO() {
+        return TransacaoDTOOut.de(transferencia);
+    }
+
+    @Benchmark
+    public byte[] serializarPagina() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(pagina);
+    }
+
+    private static Usuario usuario(Long id, String nome) {
+        Usuario usuario = new Usuario();
+        usuario.setId(id);
+        usuario.setNome(nome);
+        return usuario;
+    }
+}
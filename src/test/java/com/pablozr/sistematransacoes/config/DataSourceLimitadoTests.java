@@ -0,0 +1,84 @@
+package com.pablozr.sistematransacoes.config;
+
+import com.pablozr.sistematransacoes.exception.GlobalExceptionHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DataSourceLimitadoTests {
+
+    private static final int MAXIMO = 3;
+
+    private final List<Connection> reais = new ArrayList<>();
+    private DataSourceLimitado limitado;
+
+    @BeforeEach
+    void criar() throws Exception {
+        DataSource alvo = mock(DataSource.class);
+        when(alvo.getConnection()).thenAnswer(invocacao -> {
+            Connection real = mock(Connection.class);
+            reais.add(real);
+            return real;
+        });
+        limitado = new DataSourceLimitado(alvo, MAXIMO, 50);
+    }
+
+    @Test
+    void esgotadoOProximoPedidoDesisteComErroTransitorioQueVira503() throws Exception {
+        List<Connection> emprestadas = new ArrayList<>();
+        for (int i = 0; i < MAXIMO; i++) {
+            emprestadas.add(limitado.getConnection());
+        }
+        assertThat(limitado.getPermissoesDisponiveis()).isZero();
+
+        assertThatThrownBy(limitado::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+        // Pelo DataSourceUtils, como nas transações do Spring, chega ao handler como falta de conexão
+        assertThatThrownBy(() -> DataSourceUtils.getConnection(limitado))
+                .isInstanceOf(CannotGetJdbcConnectionException.class)
+                .hasCauseInstanceOf(SQLTransientConnectionException.class)
+                .satisfies(e -> assertThat(new GlobalExceptionHandler().handleBancoIndisponivel((Exception) e).getStatusCode())
+                        .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+
+        for (Connection conexao : emprestadas) {
+            conexao.close();
+        }
+        assertThat(limitado.getPermissoesDisponiveis()).isEqualTo(MAXIMO);
+    }
+
+    @Test
+    void fecharDuasVezesDevolveUmaPermissaoEFechaAConexaoRealUmaVez() throws Exception {
+        Connection conexao = limitado.getConnection();
+        assertThat(limitado.getPermissoesDisponiveis()).isEqualTo(MAXIMO - 1);
+
+        conexao.close();
+        conexao.close();
+
+        assertThat(limitado.getPermissoesDisponiveis()).isEqualTo(MAXIMO);
+        assertThat(conexao.isClosed()).isTrue();
+        verify(reais.get(0), times(1)).close();
+    }
+
+    @Test
+    void equalsEHashCodeSeguemAIdentidadeDoProxy() throws Exception {
+        Connection conexao = limitado.getConnection();
+        Connection outra = limitado.getConnection();
+
+        assertThat(conexao).isEqualTo(conexao).isNotEqualTo(outra);
+        assertThat(conexao.hashCode()).isEqualTo(System.identityHashCode(conexao));
+    }
+}
@@ -0,0 +1,109 @@
+package com.pablozr.sistematransacoes.controller;
+
+import com.pablozr.sistematransacoes.UsuariosDeTeste;
+import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+import com.pablozr.sistematransacoes.service.HashSenhaService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Uma única thread de hash e nenhuma fila: com um hash em andamento o próximo login é recusado
+@SpringBootTest(properties = {"senha.hash.fracao-cpus=0", "senha.hash.fila=0"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AuthRestControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private HashSenhaService hashSenhaService;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EncoderBloqueante encoder;
+
+    @Test
+    void loginComAFilaDeHashCheiaFalhaNaHoraCom429ERetryAfter() throws Exception {
+        Usuario usuario = UsuariosDeTeste.criar(usuarioRepository, "Login", BigDecimal.ZERO);
+        double rejeitadosAntes = meterRegistry.get("senha.hash.rejeitados").counter().count();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Boolean> ocupando = executor.submit(() -> hashSenhaService.conferir("Senha@123", usuario.getSenha()));
+        try {
+            assertThat(encoder.entrou.await(1, TimeUnit.MINUTES)).isTrue();
+
+            mockMvc.perform(post("/api/auth/login")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"email\": \"" + usuario.getEmail() + "\", \"senha\": \"Senha@123\"}"))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, matchesPattern("\\d+")));
+
+            assertThat(meterRegistry.get("senha.hash.rejeitados").counter().count()).isEqualTo(rejeitadosAntes + 1);
+        } finally {
+            encoder.liberar.countDown();
+            ocupando.get(1, TimeUnit.MINUTES);
+            executor.shutdown();
+        }
+    }
+
+    @TestConfiguration
+    static class Configuracao {
+        @Bean
+        @Primary
+        EncoderBloqueante encoderBloqueante() {
+            return new EncoderBloqueante();
+        }
+    }
+
+    // Segura a thread de hash em matches até o teste liberar
+    static class EncoderBloqueante implements PasswordEncoder {
+        final CountDownLatch entrou = new CountDownLatch(1);
+        final CountDownLatch liberar = new CountDownLatch(1);
+
+        @Override
+        public String encode(CharSequence senha) {
+            return String.valueOf(senha);
+        }
+
+        @Override
+        public boolean matches(CharSequence senha, String hash) {
+            entrou.countDown();
+            try {
+                liberar.await(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.pablozr.sistematransacoes.controller;
+
+import com.pablozr.sistematransacoes.UsuariosDeTeste;
+import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+import com.pablozr.sistematransacoes.security.JwtTokenProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class TransacaoControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    private String token;
+
+    @BeforeEach
+    void autenticar() {
+        Usuario usuario = UsuariosDeTeste.criar(usuarioRepository, "Exportação", BigDecimal.ZERO);
+        token = jwtTokenProvider.generateToken(usuario.getEmail(), usuario.getId(), usuario.getRoles());
+    }
+
+    private MockHttpServletRequestBuilder depositar(String chaveIdempotencia, String valor) {
+        return post("/api/transacoes/deposito")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .header("Idempotency-Key", chaveIdempotencia)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"valor\": " + valor + "}");
+    }
+
+    @Test
+    void exportacaoSemFormatoUsaCsv() throws Exception {
+        MvcResult inicio = mockMvc.perform(get("/api/transacoes/export").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(inicio))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=transacoes.csv"));
+    }
+
+    @Test
+    void formatoNaoDiferenciaMaiusculas() throws Exception {
+        MvcResult inicio = mockMvc.perform(get("/api/transacoes/export").param("format", "NDJson")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(inicio))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"));
+    }
+
+    @Test
+    void despachoAssincronoNaoConsomeOLimiteDeNovo() throws Exception {
+        // Capacidade 2 para exportação: cobrar também no despacho ASYNC esgotaria o balde na primeira
+        for (String restante : new String[]{"1", "0"}) {
+            MvcResult inicio = mockMvc.perform(get("/api/transacoes/export").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(inicio))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("RateLimit-Remaining", restante));
+        }
+    }
+
+    @Test
+    void chaveIdempotenteComOutroCorpoDevolve422() throws Exception {
+        String chave = UUID.randomUUID().toString();
+        String primeira = mockMvc.perform(depositar(chave, "10.00"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        mockMvc.perform(depositar(chave, "10.00"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(primeira));
+        mockMvc.perform(depositar(chave, "20.00"))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    void cursorOuChaveMalformadosDevolvem400() throws Exception {
+        mockMvc.perform(get("/api/transacoes").param("cursor", "nao-e-um-cursor")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(depositar("x".repeat(101), "10.00"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void loteVazioOuAcimaDoLimiteDevolve400() throws Exception {
+        String perna = "{\"valor\": 1.00, \"destinatarioId\": 1}";
+        mockMvc.perform(post("/api/transacoes/lote")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"transferencias\": []}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/transacoes/lote")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"transferencias\": [" + String.join(", ", Collections.nCopies(10_001, perna)) + "]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void requisicaoAlemDaCapacidadeDevolve429ComRetryAfter() throws Exception {
+        // Capacidade 2 para lote; o limite é cobrado antes da validação do corpo
+        MockHttpServletRequestBuilder lote = post("/api/transacoes/lote")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"transferencias\": []}");
+        mockMvc.perform(lote).andExpect(status().isBadRequest()).andExpect(header().string("RateLimit-Remaining", "1"));
+        mockMvc.perform(lote).andExpect(status().isBadRequest()).andExpect(header().string("RateLimit-Remaining", "0"));
+
+        mockMvc.perform(lote)
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("RateLimit-Limit", "2"))
+                .andExpect(header().string("RateLimit-Remaining", "0"))
+                .andExpect(header().string("RateLimit-Reset", matchesPattern("[1-9]\\d*")))
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, matchesPattern("[1-9]\\d*")));
+    }
+
+    @Test
+    void formatoDesconhecidoDevolve400() throws Exception {
+        mockMvc.perform(get("/api/transacoes/export").param("format", "xml")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isBadRequest());
+    }
+}
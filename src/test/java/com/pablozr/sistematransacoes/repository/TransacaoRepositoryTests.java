@@ -0,0 +1,150 @@
+package com.pablozr.sistematransacoes.repository;
+
+import com.pablozr.sistematransacoes.UsuariosDeTeste;
+import com.pablozr.sistematransacoes.controller.dto.TransacaoDTOOut;
+import com.pablozr.sistematransacoes.enums.TipoTransacao;
+import com.pablozr.sistematransacoes.model.Transacao;
+import com.pablozr.sistematransacoes.model.Usuario;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TransacaoRepositoryTests {
+
+    @Autowired
+    private TransacaoRepository transacaoRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private OperacoesLoteRepository operacoesLoteRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Usuario remetente;
+
+    @BeforeEach
+    void criarHistorico() {
+        remetente = UsuariosDeTeste.criar(usuarioRepository, "Remetente", BigDecimal.ZERO);
+        List<Usuario> destinatarios = List.of(
+                UsuariosDeTeste.criar(usuarioRepository, "Destino A", BigDecimal.ZERO),
+                UsuariosDeTeste.criar(usuarioRepository, "Destino B", BigDecimal.ZERO),
+                UsuariosDeTeste.criar(usuarioRepository, "Destino C", BigDecimal.ZERO));
+        LocalDateTime inicio = LocalDateTime.now().minusDays(1);
+        for (int i = 0; i < 30; i++) {
+            Transacao transacao = new Transacao();
+            transacao.setValor(BigDecimal.ONE);
+            transacao.setUsuario(remetente);
+            transacao.setDataTransacao(inicio.plusMinutes(i));
+            if (i % 3 == 0) {
+                transacao.setTipo(TipoTransacao.DEPOSITO);
+            } else {
+                transacao.setTipo(TipoTransacao.TRANSFERENCIA);
+                transacao.setDestinatario(destinatarios.get(i % destinatarios.size()));
+            }
+            transacaoRepository.save(transacao);
+        }
+    }
+
+    @Test
+    void paginaProjetadaUsaUmSelectEUmaContagem() {
+        Statistics estatisticas = estatisticasZeradas();
+
+        Page<TransacaoDTOOut> pagina = transacaoRepository.listarProjetado(remetente.getId(), null, null, null, PageRequest.of(0, 20), false);
+
+        assertThat(pagina.getContent()).hasSize(20);
+        assertThat(pagina.getTotalElements()).isEqualTo(30);
+        assertThat(pagina.getContent()).allSatisfy(dto -> {
+            assertThat(dto.getUsuarioNome()).isEqualTo("Remetente");
+            if (dto.getTipo() == TipoTransacao.TRANSFERENCIA) {
+                assertThat(dto.getDestinatarioNome()).startsWith("Destino");
+            }
+        });
+        assertThat(estatisticas.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(estatisticas.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void paginaPorCursorUsaUmUnicoSelect() {
+        Statistics estatisticas = estatisticasZeradas();
+
+        List<TransacaoDTOOut> pagina = transacaoRepository.buscarPorCursor(remetente.getId(), null, null, null, null, 21, false);
+
+        assertThat(pagina).hasSize(21);
+        assertThat(estatisticas.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(estatisticas.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void insercaoEmMassaAgrupaOsInsertsEmBatch() {
+        List<Transacao> transacoes = depositos(remetente, 120);
+        Statistics estatisticas = estatisticasZeradas();
+
+        transactionTemplate.executeWithoutResult(status -> operacoesLoteRepository.inserirTransacoes(transacoes));
+
+        assertThat(transacoes).allSatisfy(transacao -> assertThat(transacao.getId()).isNotNull());
+        assertThat(estatisticas.getEntityInsertCount()).isEqualTo(120);
+        // 3 batches de 50 mais as poucas idas à sequência; com IDENTITY seriam 120 statements
+        assertThat(estatisticas.getPrepareStatementCount()).isLessThan(10);
+    }
+
+    @Test
+    void insercaoEmMassaSoDesanexaAsTransacoesGravadas() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Usuario usuario = entityManager.find(Usuario.class, remetente.getId());
+            List<Transacao> transacoes = depositos(usuario, 1001);
+
+            operacoesLoteRepository.inserirTransacoes(transacoes);
+
+            assertThat(entityManager.contains(usuario)).isTrue();
+            assertThat(entityManager.contains(transacoes.get(0))).isFalse();
+            assertThat(entityManager.contains(transacoes.get(1000))).isTrue();
+        });
+    }
+
+    private List<Transacao> depositos(Usuario usuario, int quantidade) {
+        List<Transacao> transacoes = new ArrayList<>();
+        for (int i = 0; i < quantidade; i++) {
+            Transacao transacao = new Transacao();
+            transacao.setTipo(TipoTransacao.DEPOSITO);
+            transacao.setValor(BigDecimal.ONE);
+            transacao.setUsuario(usuario);
+            transacao.setDataTransacao(LocalDateTime.now());
+            transacoes.add(transacao);
+        }
+        return transacoes;
+    }
+
+    private Statistics estatisticasZeradas() {
+        Statistics estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estatisticas.clear();
+        return estatisticas;
+    }
+}
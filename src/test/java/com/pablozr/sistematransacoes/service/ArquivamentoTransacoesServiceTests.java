@@ -0,0 +1,163 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.UsuariosDeTeste;
+import com.pablozr.sistematransacoes.controller.dto.PaginaCursorDTOOut;
+import com.pablozr.sistematransacoes.controller.dto.TransacaoDTOOut;
+import com.pablozr.sistematransacoes.enums.TipoTransacao;
+import com.pablozr.sistematransacoes.exception.RequisicaoInvalidaException;
+import com.pablozr.sistematransacoes.model.Transacao;
+import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.repository.TransacaoRepository;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {"transacao.arquivo.enabled=true", "transacao.arquivo.horizonte-dias=30",
+        "transacao.arquivo.tamanho-lote=2", "transacao.arquivo.cron=-"})
+@ActiveProfiles("test")
+class ArquivamentoTransacoesServiceTests {
+
+    @Autowired
+    private ArquivamentoTransacoesService arquivamentoTransacoesService;
+
+    @Autowired
+    private TransacaoService transacaoService;
+
+    @Autowired
+    private TransacaoRepository transacaoRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Usuario usuario;
+    private final List<Long> recentes = new ArrayList<>();
+    private final List<Long> antigas = new ArrayList<>();
+
+    // Três transações dentro do horizonte e três de 100 dias atrás, com valores 1 a 6 do mais antigo ao mais novo
+    @BeforeEach
+    void criarHistorico() {
+        usuario = UsuariosDeTeste.criar(usuarioRepository, "Arquivo", BigDecimal.ZERO);
+        for (int i = 0; i < 3; i++) {
+            antigas.add(0, depositar(LocalDateTime.now().minusDays(100).plusMinutes(i), i + 1));
+        }
+        for (int i = 0; i < 3; i++) {
+            recentes.add(0, depositar(LocalDateTime.now().minusDays(1).plusMinutes(i), i + 4));
+        }
+        arquivamentoTransacoesService.arquivar();
+    }
+
+    @Test
+    void arquivamentoMoveSoAsAntigasEListagemAsEmendaDepoisDasRecentes() {
+        assertThat(contar("transacao")).isEqualTo(3);
+        assertThat(contar("transacao_arquivo")).isEqualTo(3);
+
+        List<Long> vistos = new ArrayList<>();
+        for (int pagina = 0; pagina < 3; pagina++) {
+            Page<TransacaoDTOOut> resultado = transacaoService.listarTransacoes(usuario.getId(), PageRequest.of(pagina, 2), null, null, null);
+            assertThat(resultado.getTotalElements()).isEqualTo(6);
+            resultado.getContent().forEach(dto -> vistos.add(dto.getId()));
+        }
+        List<Long> esperado = new ArrayList<>(recentes);
+        esperado.addAll(antigas);
+        assertThat(vistos).containsExactlyElementsOf(esperado);
+    }
+
+    @Test
+    void ordenacaoDoClienteIntercalaQuentesEArquivadas() {
+        Page<TransacaoDTOOut> resultado = transacaoService.listarTransacoes(usuario.getId(),
+                PageRequest.of(1, 2, Sort.by("valor")), null, null, null);
+
+        assertThat(resultado.getTotalElements()).isEqualTo(6);
+        assertThat(resultado.getContent()).extracting(TransacaoDTOOut::getValor)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("3"), new BigDecimal("4"));
+    }
+
+    @Test
+    void ordenacaoDoClienteRecusaPaginasAlemDoLimiteIntercalado() {
+        assertThatThrownBy(() -> transacaoService.listarTransacoes(usuario.getId(),
+                PageRequest.of(500, 2, Sort.by("valor")), null, null, null))
+                .isInstanceOf(RequisicaoInvalidaException.class);
+    }
+
+    @Test
+    void ordenacaoPorDataEmendaAsTabelasSemLimiteDePagina() {
+        for (Sort.Direction direcao : Sort.Direction.values()) {
+            List<Long> vistos = new ArrayList<>();
+            for (int pagina = 0; pagina < 3; pagina++) {
+                Page<TransacaoDTOOut> resultado = transacaoService.listarTransacoes(usuario.getId(),
+                        PageRequest.of(pagina, 2, Sort.by(direcao, "dataTransacao", "id")), null, null, null);
+                assertThat(resultado.getTotalElements()).isEqualTo(6);
+                resultado.getContent().forEach(dto -> vistos.add(dto.getId()));
+            }
+            List<Long> esperado = new ArrayList<>(recentes);
+            esperado.addAll(antigas);
+            if (direcao.isAscending()) {
+                Collections.reverse(esperado);
+            }
+            assertThat(vistos).as(direcao.name()).containsExactlyElementsOf(esperado);
+        }
+
+        Page<TransacaoDTOOut> funda = transacaoService.listarTransacoes(usuario.getId(),
+                PageRequest.of(500, 2, Sort.by(Sort.Direction.DESC, "dataTransacao")), null, null, null);
+        assertThat(funda.getContent()).isEmpty();
+        assertThat(funda.getTotalElements()).isEqualTo(6);
+    }
+
+    @Test
+    void periodoDentroDoHorizonteNaoConsultaOArquivo() {
+        assertThat(arquivamentoTransacoesService.alcancaArquivo(LocalDateTime.now().minusDays(10))).isFalse();
+        assertThat(arquivamentoTransacoesService.alcancaArquivo(LocalDateTime.now().minusDays(200))).isTrue();
+
+        Page<TransacaoDTOOut> resultado = transacaoService.listarTransacoes(usuario.getId(), PageRequest.of(0, 10), null,
+                LocalDateTime.now().minusDays(10), null);
+        assertThat(resultado.getContent()).extracting(TransacaoDTOOut::getId).containsExactlyElementsOf(recentes);
+    }
+
+    @Test
+    void cursorAtravessaDaTabelaQuenteParaOArquivo() {
+        PaginaCursorDTOOut<TransacaoDTOOut> primeira = transacaoService.listarTransacoesPorCursor(usuario.getId(), null, 4, null, null, null);
+        PaginaCursorDTOOut<TransacaoDTOOut> segunda = transacaoService.listarTransacoesPorCursor(usuario.getId(),
+                primeira.getProximoCursor(), 4, null, null, null);
+
+        List<Long> vistos = new ArrayList<>();
+        primeira.getConteudo().forEach(dto -> vistos.add(dto.getId()));
+        segunda.getConteudo().forEach(dto -> vistos.add(dto.getId()));
+        List<Long> esperado = new ArrayList<>(recentes);
+        esperado.addAll(antigas);
+        assertThat(vistos).containsExactlyElementsOf(esperado);
+        assertThat(segunda.getProximoCursor()).isNull();
+    }
+
+    private Long depositar(LocalDateTime data, int valor) {
+        Transacao transacao = new Transacao();
+        transacao.setTipo(TipoTransacao.DEPOSITO);
+        transacao.setValor(new BigDecimal(valor));
+        transacao.setUsuario(usuario);
+        transacao.setDataTransacao(data);
+        return transacaoRepository.save(transacao).getId();
+    }
+
+    private long contar(String tabela) {
+        return jdbcTemplate.queryForObject("select count(*) from " + tabela + " where usuario_id = ?", Long.class, usuario.getId());
+    }
+}
@@ -0,0 +1,81 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.UsuariosDeTeste;
+import com.pablozr.sistematransacoes.model.Transacao;
+import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {"deposito.agrupado.enabled=true", "deposito.agrupado.espera-ms=20"})
+@ActiveProfiles("test")
+class DepositoAgrupadoServiceTests {
+
+    private static final int THREADS = 32;
+    private static final int DEPOSITOS_POR_THREAD = 20;
+    private static final int CONTAS = 4;
+
+    @Autowired
+    private DepositoAgrupadoService depositoAgrupadoService;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void depositosConcorrentesSaoGravadosEmPoucosCommits() throws Exception {
+        List<Usuario> contas = new ArrayList<>();
+        for (int i = 0; i < CONTAS; i++) {
+            contas.add(UsuariosDeTeste.criar(usuarioRepository, "Deposito agrupado", BigDecimal.ZERO));
+        }
+        double lotesAntes = meterRegistry.get("deposito.agrupado.lotes").counter().count();
+
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<List<Transacao>>> tarefas = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            Usuario conta = contas.get(i % CONTAS);
+            tarefas.add(executor.submit(() -> {
+                largada.await();
+                List<Transacao> gravadas = new ArrayList<>();
+                for (int j = 0; j < DEPOSITOS_POR_THREAD; j++) {
+                    gravadas.add(depositoAgrupadoService.depositar(conta, BigDecimal.ONE));
+                }
+                return gravadas;
+            }));
+        }
+        largada.countDown();
+        List<Transacao> gravadas = new ArrayList<>();
+        for (Future<List<Transacao>> tarefa : tarefas) {
+            gravadas.addAll(tarefa.get());
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(gravadas).hasSize(THREADS * DEPOSITOS_POR_THREAD)
+                .allSatisfy(transacao -> assertThat(transacao.getId()).isNotNull());
+        BigDecimal esperado = new BigDecimal(THREADS / CONTAS * DEPOSITOS_POR_THREAD);
+        for (Usuario conta : contas) {
+            assertThat(usuarioRepository.buscarSaldo(conta.getId()).orElseThrow()).isEqualByComparingTo(esperado);
+        }
+        // Cada thread espera o próprio commit, então há no máximo um lote por rodada de depósitos
+        double lotes = meterRegistry.get("deposito.agrupado.lotes").counter().count() - lotesAntes;
+        assertThat(lotes).isLessThanOrEqualTo(THREADS * DEPOSITOS_POR_THREAD / 4.0);
+    }
+}
@@ -0,0 +1,152 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.enums.StatusEmail;
+import com.pablozr.sistematransacoes.model.EmailPendente;
+import com.pablozr.sistematransacoes.repository.EmailPendenteRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "email.outbox.trabalhadores=2")
+@ActiveProfiles("test")
+class EmailOutboxServiceTests {
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private EmailPendenteRepository emailPendenteRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private FakeMailSender mailSender;
+
+    @Autowired
+    private LimpezaTokensService limpezaTokensService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void limpar() {
+        emailPendenteRepository.deleteAll();
+        mailSender.reiniciar();
+    }
+
+    @Test
+    void enviaOsPendentesEmLotesPorTrabalhador() {
+        for (int i = 0; i < 10; i++) {
+            enfileirar("usuario" + i + "@teste.local");
+        }
+
+        emailOutboxService.drenar();
+
+        assertThat(mailSender.enviados).hasSize(10);
+        assertThat(mailSender.chamadas.get()).isEqualTo(2); // Um send por trabalhador
+        assertThat(emailPendenteRepository.findAll()).allSatisfy(email -> assertThat(email.getStatus()).isEqualTo(StatusEmail.ENVIADO));
+    }
+
+    @Test
+    void falhaDeUmaMensagemSoReagendaEla() {
+        enfileirar("ok@teste.local");
+        enfileirar("falha@teste.local");
+        mailSender.recusar("falha@teste.local");
+
+        LocalDateTime antes = LocalDateTime.now();
+        emailOutboxService.drenar();
+
+        Map<String, EmailPendente> porDestinatario = new LinkedHashMap<>();
+        emailPendenteRepository.findAll().forEach(email -> porDestinatario.put(email.getDestinatario(), email));
+        assertThat(porDestinatario.get("ok@teste.local").getStatus()).isEqualTo(StatusEmail.ENVIADO);
+        EmailPendente falhou = porDestinatario.get("falha@teste.local");
+        assertThat(falhou.getStatus()).isEqualTo(StatusEmail.PENDENTE);
+        assertThat(falhou.getTentativas()).isEqualTo(1);
+        assertThat(falhou.getProximaTentativa()).isAfter(antes);
+        assertThat(meterRegistry.get("email.outbox.pendentes").gauge().value()).isEqualTo(1);
+
+        // Ainda dentro da espera: a próxima drenagem não tenta de novo
+        mailSender.reiniciar();
+        emailOutboxService.drenar();
+        assertThat(mailSender.chamadas.get()).isZero();
+    }
+
+    @Test
+    void limpezaApagaOsEmailsJaEnviados() {
+        enfileirar("ok@teste.local");
+        enfileirar("falha@teste.local");
+        mailSender.recusar("falha@teste.local");
+        emailOutboxService.drenar();
+
+        limpezaTokensService.limparExpirados();
+
+        assertThat(emailPendenteRepository.findAll()).extracting(EmailPendente::getDestinatario).containsExactly("falha@teste.local");
+    }
+
+    private void enfileirar(String destinatario) {
+        transactionTemplate.executeWithoutResult(status ->
+                emailOutboxService.enfileirar(destinatario, "Assunto", "Corpo"));
+    }
+
+    @TestConfiguration
+    static class Configuracao {
+        @Bean
+        @Primary
+        FakeMailSender fakeMailSender() {
+            return new FakeMailSender();
+        }
+    }
+
+    // Guarda as mensagens em memória e recusa os destinatários marcados como o JavaMailSenderImpl faria
+    static class FakeMailSender extends JavaMailSenderImpl {
+        final List<SimpleMailMessage> enviados = new CopyOnWriteArrayList<>();
+        final AtomicInteger chamadas = new AtomicInteger();
+        private final List<String> recusados = new CopyOnWriteArrayList<>();
+
+        void recusar(String destinatario) {
+            recusados.add(destinatario);
+        }
+
+        void reiniciar() {
+            enviados.clear();
+            recusados.clear();
+            chamadas.set(0);
+        }
+
+        @Override
+        public void send(SimpleMailMessage... mensagens) {
+            chamadas.incrementAndGet();
+            Map<Object, Exception> falhas = new LinkedHashMap<>();
+            for (SimpleMailMessage mensagem : mensagens) {
+                if (recusados.contains(mensagem.getTo()[0])) {
+                    falhas.put(mensagem, new IllegalStateException("Destinatário recusado"));
+                } else {
+                    enviados.add(mensagem);
+                }
+            }
+            if (!falhas.isEmpty()) {
+                throw new MailSendException(falhas);
+            }
+        }
+    }
+}
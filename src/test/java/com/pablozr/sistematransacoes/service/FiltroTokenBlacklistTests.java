@@ -0,0 +1,47 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.model.TokenBlackList;
+import com.pablozr.sistematransacoes.repository.TokenBlackListRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Sincronização agendada desligada na prática: o teste a chama quando quer
+@SpringBootTest(properties = "token.blacklist.bloom.sincronizacao-ms=3600000")
+@ActiveProfiles("test")
+class FiltroTokenBlacklistTests {
+
+    @Autowired
+    private FiltroTokenBlacklist filtroTokenBlacklist;
+
+    @Autowired
+    private TokenBlackListRepository tokenBlackListRepository;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Test
+    void logoutGravadoPorOutraInstanciaEntraNoFiltroNaSincronizacao() {
+        String token;
+        do {
+            token = UUID.randomUUID().toString(); // Um que o filtro ainda responda "não", sem falso positivo
+        } while (filtroTokenBlacklist.talvezContenha(token));
+
+        // Gravado direto no banco, como faria o logout atendido por outro nó
+        TokenBlackList revogado = new TokenBlackList();
+        revogado.setToken(token);
+        revogado.setExpiryDate(LocalDateTime.now().plusHours(1));
+        tokenBlackListRepository.save(revogado);
+        assertThat(usuarioService.isTokenBlacklisted(token)).isFalse();
+
+        filtroTokenBlacklist.sincronizar();
+
+        assertThat(usuarioService.isTokenBlacklisted(token)).isTrue();
+    }
+}
@@ -0,0 +1,113 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.UsuariosDeTeste;
+import com.pablozr.sistematransacoes.controller.dto.DepositoDTOIn;
+import com.pablozr.sistematransacoes.controller.dto.TransacaoDTOOut;
+import com.pablozr.sistematransacoes.model.ChaveIdempotencia;
+import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.repository.ChaveIdempotenciaRepository;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class IdempotenciaServiceTests {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private IdempotenciaService idempotenciaService;
+
+    @Autowired
+    private TransacaoService transacaoService;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private ChaveIdempotenciaRepository chaveIdempotenciaRepository;
+
+    @Test
+    void requisicoesSimultaneasComAMesmaChaveExecutamUmaVez() throws Exception {
+        Usuario usuario = UsuariosDeTeste.criar(usuarioRepository, "Idempotência", BigDecimal.ZERO);
+        String chave = UUID.randomUUID().toString();
+        DepositoDTOIn corpo = deposito("10.00");
+        AtomicInteger execucoes = new AtomicInteger();
+        Supplier<TransacaoDTOOut> operacao = () -> {
+            execucoes.incrementAndGet();
+            try {
+                // Segura a primeira execução para que as outras cheguem com ela em andamento
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return TransacaoDTOOut.de(transacaoService.deposito(usuario, corpo.getValor()));
+        };
+
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<TransacaoDTOOut>> respostas = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            respostas.add(executor.submit(() -> {
+                largada.await();
+                return idempotenciaService.executar(usuario.getId(), chave, "deposito", corpo, operacao);
+            }));
+        }
+        largada.countDown();
+        List<Long> ids = new ArrayList<>();
+        for (Future<TransacaoDTOOut> resposta : respostas) {
+            ids.add(resposta.get().getId());
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(execucoes.get()).isEqualTo(1);
+        assertThat(ids).doesNotContainNull().containsOnly(ids.get(0));
+        assertThat(usuarioRepository.buscarSaldo(usuario.getId()).orElseThrow()).isEqualByComparingTo("10.00");
+    }
+
+    @Test
+    void chaveExpiradaNaoEhRepetidaMesmoAntesDaLimpeza() {
+        Usuario usuario = UsuariosDeTeste.criar(usuarioRepository, "Idempotência", BigDecimal.ZERO);
+        String chave = UUID.randomUUID().toString();
+        ChaveIdempotencia expirada = new ChaveIdempotencia();
+        expirada.setUsuarioId(usuario.getId());
+        expirada.setChave(chave);
+        expirada.setImpressaoDigital("0".repeat(64));
+        expirada.setResposta("{\"id\": -1}");
+        expirada.setDataCriacao(LocalDateTime.now().minus(IdempotenciaService.VALIDADE).minusMinutes(1));
+        chaveIdempotenciaRepository.save(expirada);
+
+        TransacaoDTOOut resposta = idempotenciaService.executar(usuario.getId(), chave, "deposito", deposito("5.00"),
+                () -> TransacaoDTOOut.de(transacaoService.deposito(usuario, new BigDecimal("5.00"))));
+
+        assertThat(resposta.getId()).isPositive();
+        assertThat(usuarioRepository.buscarSaldo(usuario.getId()).orElseThrow()).isEqualByComparingTo("5.00");
+        assertThat(chaveIdempotenciaRepository.buscarValida(usuario.getId(), chave, LocalDateTime.now().minus(IdempotenciaService.VALIDADE)))
+                .hasValueSatisfying(registro -> assertThat(registro.getImpressaoDigital()).isNotEqualTo("0".repeat(64)));
+    }
+
+    private DepositoDTOIn deposito(String valor) {
+        DepositoDTOIn deposito = new DepositoDTOIn();
+        deposito.setValor(new BigDecimal(valor));
+        return deposito;
+    }
+}
@@ -0,0 +1,81 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.UsuariosDeTeste;
+import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class IndiceBuscaUsuariosServiceTests {
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private IndiceBuscaUsuariosService indiceBuscaUsuariosService;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Test
+    void buscaPorTrechoUsaOIndiceEMantemSaldoEPaginacao() {
+        String marcador = "zq" + UUID.randomUUID().toString().substring(0, 8);
+        Usuario pobre = criarUsuario("Pobre " + marcador, BigDecimal.ONE);
+        Usuario rico = criarUsuario("Rico " + marcador, new BigDecimal("500.00"));
+
+        assertThat(indiceBuscaUsuariosService.buscar(marcador.toUpperCase(), null)).hasValueSatisfying(
+                ids -> assertThat(ids).containsExactly(pobre.getId(), rico.getId()));
+
+        Page<Usuario> pagina = usuarioService.buscarComFiltros(PageRequest.of(0, 1, Sort.by("id")), marcador.toUpperCase(), null, null);
+        assertThat(pagina.getTotalElements()).isEqualTo(2);
+        assertThat(pagina.getContent()).extracting(Usuario::getId).containsExactly(pobre.getId());
+
+        assertThat(usuarioService.buscarComFiltros(PageRequest.of(0, 10), marcador, "@teste.local", 100.0).getContent())
+                .extracting(Usuario::getId).containsExactly(rico.getId());
+    }
+
+    @Test
+    void usuarioRemovidoSaiDoIndice() {
+        String marcador = "zq" + UUID.randomUUID().toString().substring(0, 8);
+        Usuario usuario = criarUsuario("Removido " + marcador, BigDecimal.ZERO);
+        assertThat(usuarioService.buscarComFiltros(PageRequest.of(0, 10), marcador, null, null).getContent()).hasSize(1);
+
+        usuarioService.deletarUsuario(usuario.getId());
+
+        assertThat(indiceBuscaUsuariosService.buscar(marcador, null)).hasValueSatisfying(ids -> assertThat(ids).isEmpty());
+        assertThat(usuarioService.buscarComFiltros(PageRequest.of(0, 10), marcador, null, null).getContent()).isEmpty();
+    }
+
+    @Test
+    void acentosEMaiusculasNaoMudamOResultadoETermoEmBrancoNaoFiltra() {
+        String marcador = "zq" + UUID.randomUUID().toString().substring(0, 8);
+        Usuario joao = criarUsuario("João Ávila " + marcador, BigDecimal.ZERO);
+
+        for (String termo : new String[]{"joao avila", "JOÃO ÁVILA", "joão", "Avila " + marcador}) {
+            assertThat(usuarioService.buscarComFiltros(PageRequest.of(0, 10), termo, null, null).getContent())
+                    .as(termo).extracting(Usuario::getId).contains(joao.getId());
+        }
+        assertThat(indiceBuscaUsuariosService.buscar("   ", null)).isEmpty();
+        assertThat(usuarioService.buscarComFiltros(PageRequest.of(0, 10), "   ", joao.getEmail(), null).getContent())
+                .extracting(Usuario::getId).containsExactly(joao.getId());
+    }
+
+    // Indexa como salvarUsuario faria depois de gravar
+    private Usuario criarUsuario(String nome, BigDecimal saldo) {
+        Usuario usuario = UsuariosDeTeste.criar(usuarioRepository, nome, saldo);
+        indiceBuscaUsuariosService.indexar(usuario);
+        return usuario;
+    }
+}
@@ -0,0 +1,61 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.UsuariosDeTeste;
+import com.pablozr.sistematransacoes.model.SaldoParcial;
+import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.repository.SaldoParcialRepository;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "ledger.engine.enabled=true")
+@ActiveProfiles("test")
+class LedgerEngineTests {
+
+    @Autowired
+    private TransacaoService transacaoService;
+
+    @Autowired
+    private SaldoFracionadoService saldoFracionadoService;
+
+    @Autowired
+    private SaldoParcialRepository saldoParcialRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Test
+    void fatiasSaoRecusadasEAsQueSobraramVoltamAntesDoSaldoIrParaAMemoria() {
+        Usuario lojista = UsuariosDeTeste.criar(usuarioRepository, "Ledger engine", new BigDecimal("10.00"));
+        Usuario fornecedor = UsuariosDeTeste.criar(usuarioRepository, "Ledger engine", BigDecimal.ZERO);
+        assertThatThrownBy(() -> saldoFracionadoService.redefinirFatias(lojista.getId(), 4))
+                .isInstanceOf(IllegalStateException.class);
+
+        // Fatias gravadas antes de o LedgerEngine ser ligado
+        saldoParcialRepository.saveAll(List.of(fatia(lojista, 0, "6.00"), fatia(lojista, 1, "4.00")));
+        saldoFracionadoService.devolverFatias();
+
+        transacaoService.tranferencia(lojista, fornecedor, new BigDecimal("20.00"));
+        transacaoService.deposito(lojista, new BigDecimal("1.00"));
+
+        assertThat(saldoParcialRepository.somar(lojista.getId())).isEqualByComparingTo("0.00");
+        assertThat(usuarioRepository.buscarSaldo(lojista.getId()).orElseThrow()).isEqualByComparingTo("1.00");
+        assertThat(usuarioRepository.buscarSaldo(fornecedor.getId()).orElseThrow()).isEqualByComparingTo("20.00");
+    }
+
+    private SaldoParcial fatia(Usuario usuario, int indice, String valor) {
+        SaldoParcial fatia = new SaldoParcial();
+        fatia.setUsuarioId(usuario.getId());
+        fatia.setFatia(indice);
+        fatia.setValor(new BigDecimal(valor));
+        return fatia;
+    }
+}
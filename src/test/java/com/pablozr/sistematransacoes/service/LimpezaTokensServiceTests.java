@@ -0,0 +1,93 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.UsuariosDeTeste;
+import com.pablozr.sistematransacoes.model.ResetPasswordToken;
+import com.pablozr.sistematransacoes.model.TokenBlackList;
+import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.repository.ResetPasswordTokenRepository;
+import com.pablozr.sistematransacoes.repository.TokenBlackListRepository;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Lotes de 2 linhas para que 5 expiradas precisem de 3 lotes; falso positivo do filtro desprezível
+@SpringBootTest(properties = {"tokens.limpeza.tamanho-lote=2", "tokens.limpeza.pausa-entre-lotes-ms=0",
+        "token.blacklist.bloom.sincronizacao-ms=3600000", "token.blacklist.bloom.probabilidade-falso-positivo=0.000001"})
+@ActiveProfiles("test")
+class LimpezaTokensServiceTests {
+
+    @Autowired
+    private LimpezaTokensService limpezaTokensService;
+
+    @Autowired
+    private FiltroTokenBlacklist filtroTokenBlacklist;
+
+    @Autowired
+    private TokenBlackListRepository tokenBlackListRepository;
+
+    @Autowired
+    private ResetPasswordTokenRepository resetPasswordTokenRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void expiradosSaemEmLotesVivosFicamEOFiltroEReconstruido() {
+        LocalDateTime agora = LocalDateTime.now();
+        List<String> expirados = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            expirados.add(revogar(agora.minusMinutes(1 + i)));
+        }
+        String vivo = revogar(agora.plusHours(1));
+        Usuario usuario = UsuariosDeTeste.criar(usuarioRepository, "Limpeza", BigDecimal.ZERO);
+        for (int i = 0; i < 3; i++) {
+            resetar(usuario, agora.minusMinutes(1));
+        }
+        ResetPasswordToken resetVivo = resetar(usuario, agora.plusHours(1));
+        assertThat(expirados).allMatch(filtroTokenBlacklist::talvezContenha);
+
+        limpezaTokensService.limparExpirados();
+
+        assertThat(tokenBlackListRepository.findAll()).extracting(TokenBlackList::getToken).containsExactly(vivo);
+        assertThat(resetPasswordTokenRepository.findAll()).extracting(ResetPasswordToken::getId).containsExactly(resetVivo.getId());
+        assertThat(meterRegistry.get("tokens.limpeza.lote").tag("tabela", "token_blacklist").timer().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("tokens.limpeza.removidos").tag("tabela", "token_blacklist").counter().count()).isEqualTo(5);
+        assertThat(meterRegistry.get("tokens.limpeza.lote").tag("tabela", "reset_password_token").timer().count()).isEqualTo(2);
+
+        // O filtro foi refeito só com os tokens que continuam no banco
+        assertThat(filtroTokenBlacklist.talvezContenha(vivo)).isTrue();
+        assertThat(expirados).noneMatch(filtroTokenBlacklist::talvezContenha);
+    }
+
+    // Gravado no banco e no filtro, como no logout
+    private String revogar(LocalDateTime expiracao) {
+        TokenBlackList revogado = new TokenBlackList();
+        revogado.setToken(UUID.randomUUID().toString());
+        revogado.setExpiryDate(expiracao);
+        tokenBlackListRepository.save(revogado);
+        filtroTokenBlacklist.adicionar(revogado.getToken());
+        return revogado.getToken();
+    }
+
+    private ResetPasswordToken resetar(Usuario usuario, LocalDateTime expiracao) {
+        ResetPasswordToken token = new ResetPasswordToken();
+        token.setToken(UUID.randomUUID().toString());
+        token.setUsuario(usuario);
+        token.setExpiryDate(expiracao);
+        return resetPasswordTokenRepository.save(token);
+    }
+}
@@ -0,0 +1,239 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.UsuariosDeTeste;
+import com.pablozr.sistematransacoes.controller.dto.ReconstrucaoLivroRazaoDTOOut;
+import com.pablozr.sistematransacoes.controller.dto.TransacaoDTOIn;
+import com.pablozr.sistematransacoes.controller.dto.TransacaoDTOOut;
+import com.pablozr.sistematransacoes.exception.SaldoInsuficienteException;
+import com.pablozr.sistematransacoes.model.SaldoParcial;
+import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.repository.SaldoParcialRepository;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// REPEATABLE READ como padrão das conexões, igual ao InnoDB, para que o snapshot de uma leitura anterior à trava apareça
+@SpringBootTest(properties = {"ledger.partidas.enabled=true", "ledger.partidas.checkpoint-intervalo-ms=3600000",
+        "spring.datasource.hikari.transaction-isolation=TRANSACTION_REPEATABLE_READ"})
+@ActiveProfiles("test")
+class LivroRazaoServiceTests {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private TransacaoService transacaoService;
+
+    @Autowired
+    private LivroRazaoService livroRazaoService;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private IdempotenciaService idempotenciaService;
+
+    @Autowired
+    private SaldoFracionadoService saldoFracionadoService;
+
+    @Autowired
+    private SaldoParcialRepository saldoParcialRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void saldoVemDoCheckpointMaisLancamentosEReconstrucaoBate() {
+        Usuario origem = UsuariosDeTeste.criar(usuarioRepository, "Livro razão", new BigDecimal("100.00"));
+        Usuario destino = UsuariosDeTeste.criar(usuarioRepository, "Livro razão", BigDecimal.ZERO);
+        livroRazaoService.abrirSaldos();
+
+        transacaoService.tranferencia(origem, destino, new BigDecimal("30.00"));
+        transacaoService.deposito(destino, new BigDecimal("5.00"));
+        assertThatThrownBy(() -> transacaoService.tranferencia(origem, destino, new BigDecimal("70.01")))
+                .isInstanceOf(SaldoInsuficienteException.class);
+
+        assertThat(livroRazaoService.saldo(origem.getId())).isEqualByComparingTo("70.00");
+        assertThat(livroRazaoService.saldo(destino.getId())).isEqualByComparingTo("35.00");
+        assertThat(usuarioRepository.buscarSaldo(destino.getId()).orElseThrow()).isEqualByComparingTo("0.00");
+        // Perfil e telas de admin não mostram o cache atrasado
+        assertThat(usuarioService.saldoAtual(usuarioRepository.findById(destino.getId()).orElseThrow())).isEqualByComparingTo("35.00");
+
+        // A primeira execução só registra o limite; a segunda consolida até ele
+        livroRazaoService.consolidar();
+        livroRazaoService.consolidar();
+        transacaoService.tranferencia(destino, origem, new BigDecimal("10.00"));
+
+        assertThat(usuarioRepository.buscarSaldo(destino.getId()).orElseThrow()).isEqualByComparingTo("35.00");
+        assertThat(livroRazaoService.saldo(origem.getId())).isEqualByComparingTo("80.00");
+        assertThat(livroRazaoService.saldo(destino.getId())).isEqualByComparingTo("25.00");
+
+        ReconstrucaoLivroRazaoDTOOut reconstrucao = livroRazaoService.reconstruir();
+        assertThat(reconstrucao.getContasDivergentes()).isZero();
+        assertThat(reconstrucao.getSomaGeral()).isEqualByComparingTo("0.00");
+        // Os checkpoints vão até o limite da consolidação, que ainda não inclui a última transferência
+        assertThat(usuarioRepository.buscarSaldo(origem.getId()).orElseThrow()).isEqualByComparingTo("70.00");
+        assertThat(livroRazaoService.saldo(origem.getId())).isEqualByComparingTo("80.00");
+        assertThat(livroRazaoService.saldo(destino.getId())).isEqualByComparingTo("25.00");
+    }
+
+    // O depósito aberto recebe ids menores que o confirmado depois dele, que entra no maior id visível
+    @Test
+    void lancamentoAindaNaoConfirmadoDuranteAReconstrucaoNaoSome() throws Exception {
+        Usuario conta = UsuariosDeTeste.criar(usuarioRepository, "Livro razão", BigDecimal.ZERO);
+        livroRazaoService.consolidar();
+
+        CountDownLatch aberto = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> deposito = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            transacaoService.deposito(conta, new BigDecimal("5.00"));
+            aberto.countDown();
+            try {
+                liberar.await(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertThat(aberto.await(1, TimeUnit.MINUTES)).isTrue();
+        transacaoService.deposito(conta, new BigDecimal("7.00"));
+
+        livroRazaoService.reconstruir();
+        liberar.countDown();
+        deposito.get();
+        executor.shutdown();
+
+        assertThat(livroRazaoService.saldo(conta.getId())).isEqualByComparingTo("12.00");
+        livroRazaoService.consolidar();
+        livroRazaoService.consolidar();
+        assertThat(livroRazaoService.saldo(conta.getId())).isEqualByComparingTo("12.00");
+        assertThat(usuarioRepository.buscarSaldo(conta.getId()).orElseThrow()).isEqualByComparingTo("12.00");
+    }
+
+    @Test
+    void debitosConcorrentesNaoPassamDoSaldo() throws Exception {
+        Usuario origem = UsuariosDeTeste.criar(usuarioRepository, "Livro razão", new BigDecimal("50.00"));
+        Usuario destino = UsuariosDeTeste.criar(usuarioRepository, "Livro razão", BigDecimal.ZERO);
+        livroRazaoService.abrirSaldos();
+
+        AtomicInteger concluidas = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> tarefas = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            tarefas.add(executor.submit(() -> {
+                largada.await();
+                for (int j = 0; j < 10; j++) {
+                    try {
+                        transacaoService.tranferencia(origem, destino, BigDecimal.ONE);
+                        concluidas.incrementAndGet();
+                    } catch (SaldoInsuficienteException e) {
+                        // Esperado depois que o saldo acaba
+                    }
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> tarefa : tarefas) {
+            tarefa.get();
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(concluidas.get()).isEqualTo(50);
+        assertThat(livroRazaoService.saldo(origem.getId())).isEqualByComparingTo("0.00");
+        assertThat(livroRazaoService.saldo(destino.getId())).isEqualByComparingTo("50.00");
+    }
+
+    // O lote lê os destinatários e a transferência idempotente lê o destinatário antes de travar a conta
+    @Test
+    void debitosQueLeemAntesDaTravaNaoPassamDoSaldo() throws Exception {
+        Usuario origem = UsuariosDeTeste.criar(usuarioRepository, "Livro razão", new BigDecimal("50.00"));
+        Usuario destino = UsuariosDeTeste.criar(usuarioRepository, "Livro razão", BigDecimal.ZERO);
+        livroRazaoService.abrirSaldos();
+
+        TransacaoDTOIn perna = new TransacaoDTOIn();
+        perna.setDestinatarioId(destino.getId());
+        perna.setValor(BigDecimal.ONE);
+
+        AtomicInteger concluidas = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> tarefas = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            boolean emLote = i % 2 == 0;
+            tarefas.add(executor.submit(() -> {
+                largada.await();
+                for (int j = 0; j < 10; j++) {
+                    try {
+                        if (emLote) {
+                            transacaoService.transferenciaEmLote(origem, List.of(perna));
+                        } else {
+                            idempotenciaService.executar(origem.getId(), UUID.randomUUID().toString(), "transferencia", perna, () -> {
+                                Usuario destinatario = usuarioService.buscarPorId(destino.getId()).orElseThrow();
+                                return TransacaoDTOOut.de(transacaoService.tranferencia(origem, destinatario, BigDecimal.ONE));
+                            });
+                        }
+                        concluidas.incrementAndGet();
+                    } catch (SaldoInsuficienteException e) {
+                        // Esperado depois que o saldo acaba
+                    }
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> tarefa : tarefas) {
+            tarefa.get();
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(concluidas.get()).isEqualTo(50);
+        assertThat(livroRazaoService.saldo(origem.getId())).isEqualByComparingTo("0.00");
+        assertThat(livroRazaoService.saldo(destino.getId())).isEqualByComparingTo("50.00");
+    }
+
+    @Test
+    void fatiasSaoRecusadasEAsQueSobraramEntramNoSaldoDeAbertura() {
+        Usuario lojista = UsuariosDeTeste.criar(usuarioRepository, "Livro razão", new BigDecimal("10.00"));
+        assertThatThrownBy(() -> saldoFracionadoService.redefinirFatias(lojista.getId(), 4))
+                .isInstanceOf(IllegalStateException.class);
+
+        // Fatias gravadas antes de o modo ser ligado
+        saldoParcialRepository.saveAll(List.of(fatia(lojista, 0, "7.00"), fatia(lojista, 1, "3.00")));
+        saldoFracionadoService.devolverFatias();
+        livroRazaoService.abrirSaldos();
+
+        assertThat(saldoParcialRepository.somar(lojista.getId())).isEqualByComparingTo("0.00");
+        assertThat(livroRazaoService.saldo(lojista.getId())).isEqualByComparingTo("20.00");
+    }
+
+    private SaldoParcial fatia(Usuario usuario, int indice, String valor) {
+        SaldoParcial fatia = new SaldoParcial();
+        fatia.setUsuarioId(usuario.getId());
+        fatia.setFatia(indice);
+        fatia.setValor(new BigDecimal(valor));
+        return fatia;
+    }
+}
@@ -0,0 +1,123 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.UsuariosDeTeste;
+import com.pablozr.sistematransacoes.config.RoteadorReplicas;
+import com.pablozr.sistematransacoes.controller.dto.TransacaoDTOOut;
+import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primario;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "datasource.replicas.enabled=true",
+        "datasource.replicas.urls=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;MODE=MySQL,jdbc:h2:tcp://localhost:1/indisponivel",
+        "datasource.replicas.tempo-conexao-ms=250",
+        "datasource.replicas.verificacao-ms=3600000",
+        "busca.usuarios.indice.enabled=false",
+        "deposito.agrupado.enabled=true"})
+@ActiveProfiles("test")
+class RoteamentoReplicasTests {
+
+    private static final String EMAIL_REPLICA = "so-na-replica@teste.com";
+    private static boolean esquemaCopiado;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private RoteadorReplicas roteadorReplicas;
+
+    @Autowired
+    private DepositoAgrupadoService depositoAgrupadoService;
+
+    @Autowired
+    private TransacaoService transacaoService;
+
+    // A réplica recebe o esquema criado pelo Hibernate no primário e uma linha que o primário não tem
+    @BeforeEach
+    void prepararReplica() {
+        if (esquemaCopiado) {
+            return;
+        }
+        JdbcTemplate primario = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:primario;DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", ""));
+        JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", ""));
+        List<String> esquema = primario.queryForList("SCRIPT NODATA", String.class);
+        esquema.stream().filter(comando -> !comando.startsWith("CREATE USER")).forEach(replica::execute);
+        replica.update("insert into usuario (id, nome, email, senha, saldo, version, ativo, data_criacao) values (?, ?, ?, ?, ?, ?, ?, ?)",
+                900_000L, "Réplica", EMAIL_REPLICA, "x", new BigDecimal("1.00"), 0L, true, LocalDateTime.now());
+        esquemaCopiado = true;
+    }
+
+    @AfterEach
+    void limparAutenticacao() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void leiturasSomenteLeituraVaoParaReplicaEIgnoramAReplicaForaDoAr() {
+        for (int i = 0; i < 4; i++) {
+            assertThat(usuarioService.buscarComFiltros(PageRequest.of(0, 10), null, EMAIL_REPLICA, null).getContent())
+                    .extracting(Usuario::getEmail).containsExactly(EMAIL_REPLICA);
+        }
+
+        assertThat(roteadorReplicas.replicasDisponiveis()).isEqualTo(1);
+        assertThat(usuarioRepository.findByEmail(EMAIL_REPLICA)).isEmpty();
+    }
+
+    @Test
+    void depoisDeEscreverOUsuarioLeDoPrimarioDuranteAJanela() {
+        String email = "escritor-" + UUID.randomUUID() + "@teste.com";
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(email, null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+
+        Usuario usuario = new Usuario();
+        usuario.setNome("Escritor");
+        usuario.setEmail(email);
+        usuario.setSenha("x");
+        usuario.setSaldo(BigDecimal.TEN);
+        usuario.setRoles(Set.of("USER"));
+        usuario.setAtivo(true);
+        usuario.setDataCriacao(LocalDateTime.now());
+        usuarioRepository.save(usuario);
+
+        assertThat(usuarioService.buscarComFiltros(PageRequest.of(0, 10), null, email, null).getContent())
+                .extracting(Usuario::getEmail).containsExactly(email);
+        assertThat(usuarioService.buscarComFiltros(PageRequest.of(0, 10), null, EMAIL_REPLICA, null).getContent()).isEmpty();
+    }
+
+    @Test
+    void depositoAgrupadoMarcaODepositanteParaLeituraPropria() {
+        // Criado antes da autenticação, para que só o depósito possa marcar o usuário
+        Usuario usuario = UsuariosDeTeste.criar(usuarioRepository, "Depositante", BigDecimal.ZERO);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(usuario.getEmail(), null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+
+        depositoAgrupadoService.depositar(usuario, new BigDecimal("5.00"));
+
+        assertThat(transacaoService.listarTransacoes(usuario.getId(), PageRequest.of(0, 10), null, null, null).getContent())
+                .extracting(TransacaoDTOOut::getValor).usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("5.00"));
+    }
+}
@@ -0,0 +1,165 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.UsuariosDeTeste;
+import com.pablozr.sistematransacoes.exception.ContaComSaldoException;
+import com.pablozr.sistematransacoes.model.SaldoParcial;
+import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.repository.SaldoParcialRepository;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SaldoFracionadoServiceTests {
+
+    private static final int REMETENTES = 16;
+    private static final int CREDITOS_POR_REMETENTE = 25;
+
+    @Autowired
+    private TransacaoService transacaoService;
+
+    @Autowired
+    private SaldoFracionadoService saldoFracionadoService;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private SaldoParcialRepository saldoParcialRepository;
+
+    @Test
+    void creditosConcorrentesSeEspalhamPelasFatiasSemPerderSaldo() throws Exception {
+        Usuario lojista = UsuariosDeTeste.criar(usuarioRepository, "Saldo fracionado", new BigDecimal("10.00"));
+        saldoFracionadoService.redefinirFatias(lojista.getId(), 8);
+        List<Usuario> remetentes = new ArrayList<>();
+        for (int i = 0; i < REMETENTES; i++) {
+            remetentes.add(UsuariosDeTeste.criar(usuarioRepository, "Saldo fracionado", new BigDecimal("100.00")));
+        }
+
+        creditarEmParalelo(remetentes, lojista);
+
+        BigDecimal esperado = new BigDecimal(10 + REMETENTES * CREDITOS_POR_REMETENTE);
+        assertThat(usuarioRepository.buscarSaldo(lojista.getId()).orElseThrow()).isEqualByComparingTo("10.00");
+        assertThat(fatiasDe(lojista))
+                .hasSize(8)
+                .filteredOn(fatia -> fatia.getValor().signum() > 0).hasSizeGreaterThan(1);
+        assertThat(usuarioRepository.buscarSaldo(lojista.getId()).orElseThrow()
+                .add(saldoFracionadoService.somarFatias(lojista.getId()))).isEqualByComparingTo(esperado);
+    }
+
+    @Test
+    void debitoConsolidaAsFatiasQuandoOSaldoPrincipalNaoBasta() {
+        Usuario lojista = UsuariosDeTeste.criar(usuarioRepository, "Saldo fracionado", BigDecimal.ZERO);
+        Usuario cliente = UsuariosDeTeste.criar(usuarioRepository, "Saldo fracionado", new BigDecimal("60.00"));
+        Usuario fornecedor = UsuariosDeTeste.criar(usuarioRepository, "Saldo fracionado", BigDecimal.ZERO);
+        saldoFracionadoService.redefinirFatias(lojista.getId(), 4);
+        for (int i = 0; i < 5; i++) {
+            transacaoService.tranferencia(cliente, lojista, new BigDecimal("10.00"));
+        }
+        assertThat(usuarioRepository.buscarSaldo(lojista.getId()).orElseThrow()).isEqualByComparingTo("0.00");
+
+        transacaoService.tranferencia(lojista, fornecedor, new BigDecimal("45.00"));
+
+        assertThat(usuarioRepository.buscarSaldo(lojista.getId()).orElseThrow()).isEqualByComparingTo("5.00");
+        assertThat(saldoFracionadoService.somarFatias(lojista.getId())).isEqualByComparingTo("0.00");
+        assertThat(usuarioRepository.buscarSaldo(fornecedor.getId()).orElseThrow()).isEqualByComparingTo("45.00");
+
+        transacaoService.tranferencia(cliente, lojista, BigDecimal.ONE);
+        saldoFracionadoService.redefinirFatias(lojista.getId(), 0);
+
+        assertThat(saldoFracionadoService.fatias(lojista.getId())).isZero();
+        assertThat(fatiasDe(lojista)).isEmpty();
+        assertThat(usuarioRepository.buscarSaldo(lojista.getId()).orElseThrow()).isEqualByComparingTo("6.00");
+    }
+
+    @Test
+    void remocaoDeContaComSaldoNasFatiasERecusada() {
+        Usuario lojista = UsuariosDeTeste.criar(usuarioRepository, "Saldo fracionado", BigDecimal.ZERO);
+        saldoFracionadoService.redefinirFatias(lojista.getId(), 4);
+        usuarioService.creditarSaldos(Map.of(lojista.getId(), new BigDecimal("10.00")));
+
+        assertThatThrownBy(() -> usuarioService.deletarUsuario(lojista.getId()))
+                .isInstanceOf(ContaComSaldoException.class);
+        assertThat(usuarioRepository.existsById(lojista.getId())).isTrue();
+        assertThat(saldoFracionadoService.somarFatias(lojista.getId())).isEqualByComparingTo("10.00");
+
+        saldoFracionadoService.redefinirFatias(lojista.getId(), 0);
+        usuarioService.deletarUsuario(lojista.getId());
+
+        assertThat(usuarioRepository.existsById(lojista.getId())).isFalse();
+    }
+
+    @Test
+    void remocaoQueFalhaNaChaveEstrangeiraMantemAsFatias() {
+        Usuario lojista = UsuariosDeTeste.criar(usuarioRepository, "Saldo fracionado", BigDecimal.ZERO);
+        Usuario cliente = UsuariosDeTeste.criar(usuarioRepository, "Saldo fracionado", new BigDecimal("10.00"));
+        saldoFracionadoService.redefinirFatias(lojista.getId(), 4);
+        transacaoService.tranferencia(cliente, lojista, new BigDecimal("10.00"));
+        transacaoService.tranferencia(lojista, cliente, new BigDecimal("10.00"));
+
+        assertThatThrownBy(() -> usuarioService.deletarUsuario(lojista.getId()))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(usuarioRepository.existsById(lojista.getId())).isTrue();
+        assertThat(fatiasDe(lojista)).hasSize(4);
+        assertThat(saldoFracionadoService.fatias(lojista.getId())).isEqualTo(4);
+    }
+
+    @Test
+    void filtroDeSaldoMinimoSomaAsFatias() {
+        Usuario lojista = UsuariosDeTeste.criar(usuarioRepository, "Saldo fracionado", new BigDecimal("1.00"));
+        saldoFracionadoService.redefinirFatias(lojista.getId(), 4);
+        usuarioService.creditarSaldos(Map.of(lojista.getId(), new BigDecimal("900000.00")));
+        Usuario semFatias = UsuariosDeTeste.criar(usuarioRepository, "Saldo fracionado", new BigDecimal("900000.00"));
+
+        assertThat(usuarioService.buscarComFiltros(PageRequest.of(0, 100), null, null, 900000.5).getContent())
+                .extracting(Usuario::getId).contains(lojista.getId()).doesNotContain(semFatias.getId());
+    }
+
+    private List<SaldoParcial> fatiasDe(Usuario usuario) {
+        return saldoParcialRepository.findAll().stream()
+                .filter(fatia -> fatia.getUsuarioId().equals(usuario.getId()))
+                .toList();
+    }
+
+    private void creditarEmParalelo(List<Usuario> remetentes, Usuario destinatario) throws Exception {
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(remetentes.size());
+        List<Future<?>> tarefas = new ArrayList<>();
+        for (Usuario remetente : remetentes) {
+            tarefas.add(executor.submit(() -> {
+                largada.await();
+                for (int j = 0; j < CREDITOS_POR_REMETENTE; j++) {
+                    transacaoService.tranferencia(remetente, destinatario, BigDecimal.ONE);
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> tarefa : tarefas) {
+            tarefa.get();
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+    }
+}
@@ -0,0 +1,80 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.UsuariosDeTeste;
+import com.pablozr.sistematransacoes.enums.TipoTransacao;
+import com.pablozr.sistematransacoes.exception.SaldoInsuficienteException;
+import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.repository.TransacaoRepository;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TransacaoServiceConcurrencyTests {
+
+    private static final int THREADS = 32;
+    private static final int TENTATIVAS_POR_THREAD = 50;
+
+    @Autowired
+    private TransacaoService transacaoService;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private TransacaoRepository transacaoRepository;
+
+    @Test
+    void debitosConcorrentesNuncaDeixamSaldoNegativo() throws Exception {
+        Usuario remetente = UsuariosDeTeste.criar(usuarioRepository, "Remetente", new BigDecimal("100.00"));
+        Usuario destinatario = UsuariosDeTeste.criar(usuarioRepository, "Destinatário", BigDecimal.ZERO);
+
+        AtomicInteger concluidas = new AtomicInteger();
+        AtomicInteger recusadas = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> tarefas = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            tarefas.add(executor.submit(() -> {
+                largada.await();
+                for (int j = 0; j < TENTATIVAS_POR_THREAD; j++) {
+                    try {
+                        transacaoService.tranferencia(remetente, destinatario, BigDecimal.ONE);
+                        concluidas.incrementAndGet();
+                    } catch (SaldoInsuficienteException e) {
+                        recusadas.incrementAndGet();
+                    }
+                    assertThat(usuarioRepository.buscarSaldo(remetente.getId()).orElseThrow()).isNotNegative();
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> tarefa : tarefas) {
+            tarefa.get();
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(concluidas.get()).isEqualTo(100);
+        assertThat(recusadas.get()).isEqualTo(THREADS * TENTATIVAS_POR_THREAD - 100);
+        assertThat(usuarioRepository.buscarSaldo(remetente.getId()).orElseThrow()).isEqualByComparingTo("0.00");
+        assertThat(usuarioRepository.buscarSaldo(destinatario.getId()).orElseThrow()).isEqualByComparingTo("100.00");
+        assertThat(transacaoRepository.findByUsuarioAndTipo(remetente, TipoTransacao.TRANSFERENCIA)).hasSize(100);
+    }
+}
@@ -0,0 +1,131 @@
+package com.pablozr.sistematransacoes.service;
+
+import com.pablozr.sistematransacoes.UsuariosDeTeste;
+import com.pablozr.sistematransacoes.controller.dto.LoteTransferenciaDTOOut;
+import com.pablozr.sistematransacoes.controller.dto.PernaLoteDTOOut;
+import com.pablozr.sistematransacoes.controller.dto.TransacaoDTOIn;
+import com.pablozr.sistematransacoes.enums.OperacaoSaldo;
+import com.pablozr.sistematransacoes.enums.StatusPernaLote;
+import com.pablozr.sistematransacoes.enums.TipoTransacao;
+import com.pablozr.sistematransacoes.exception.SaldoInsuficienteException;
+import com.pablozr.sistematransacoes.model.Usuario;
+import com.pablozr.sistematransacoes.repository.TransacaoRepository;
+import com.pablozr.sistematransacoes.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TransacaoServiceLoteTests {
+
+    @Autowired
+    private TransacaoService transacaoService;
+
+    @MockitoSpyBean
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private TransacaoRepository transacaoRepository;
+
+    @Test
+    void pernasInvalidasSaoRejeitadasUmaAUmaEOTotalEDebitadoUmaVez() {
+        Usuario remetente = UsuariosDeTeste.criar(usuarioRepository, "Lote", new BigDecimal("100.00"));
+        Usuario primeiro = UsuariosDeTeste.criar(usuarioRepository, "Lote", BigDecimal.ZERO);
+        Usuario segundo = UsuariosDeTeste.criar(usuarioRepository, "Lote", BigDecimal.ZERO);
+        clearInvocations(usuarioService);
+
+        LoteTransferenciaDTOOut resultado = transacaoService.transferenciaEmLote(remetente, List.of(
+                perna(primeiro.getId(), "10.00"),
+                perna(primeiro.getId(), "-1.00"),
+                perna(Long.MAX_VALUE, "5.00"),
+                perna(remetente.getId(), "5.00"),
+                perna(segundo.getId(), null),
+                perna(segundo.getId(), "20.00")));
+
+        assertThat(resultado.getConcluidas()).isEqualTo(2);
+        assertThat(resultado.getRejeitadas()).isEqualTo(4);
+        assertThat(resultado.getTotalDebitado()).isEqualByComparingTo("30.00");
+        assertThat(resultado.getPernas()).extracting(PernaLoteDTOOut::getIndice).containsExactly(0, 1, 2, 3, 4, 5);
+        assertThat(resultado.getPernas()).extracting(PernaLoteDTOOut::getStatus).containsExactly(
+                StatusPernaLote.CONCLUIDA, StatusPernaLote.REJEITADA, StatusPernaLote.REJEITADA,
+                StatusPernaLote.REJEITADA, StatusPernaLote.REJEITADA, StatusPernaLote.CONCLUIDA);
+        assertThat(resultado.getPernas()).extracting(PernaLoteDTOOut::getMensagem).containsExactly(
+                null, "O valor da transferência deve ser positivo", "Destinatário não encontrado",
+                "Não é possível transferir para si mesmo.", "O valor da transferência deve ser positivo", null);
+        assertThat(resultado.getPernas().get(0).getTransacaoId()).isNotNull();
+        assertThat(resultado.getPernas().get(1).getTransacaoId()).isNull();
+
+        verify(usuarioService, times(1)).atualizarSaldo(any(), any(), eq(OperacaoSaldo.SUBTRACAO));
+        assertThat(usuarioRepository.buscarSaldo(remetente.getId()).orElseThrow()).isEqualByComparingTo("70.00");
+        assertThat(usuarioRepository.buscarSaldo(primeiro.getId()).orElseThrow()).isEqualByComparingTo("10.00");
+        assertThat(usuarioRepository.buscarSaldo(segundo.getId()).orElseThrow()).isEqualByComparingTo("20.00");
+        assertThat(transacaoRepository.findByUsuarioAndTipo(remetente, TipoTransacao.TRANSFERENCIA)).hasSize(2);
+    }
+
+    @Test
+    void saldoInsuficienteParaOTotalDesfazOLoteInteiro() {
+        // O destinatário de id menor é creditado antes do débito, e esse crédito também precisa ser desfeito
+        Usuario abaixo = UsuariosDeTeste.criar(usuarioRepository, "Lote", BigDecimal.ZERO);
+        Usuario remetente = UsuariosDeTeste.criar(usuarioRepository, "Lote", new BigDecimal("25.00"));
+        Usuario acima = UsuariosDeTeste.criar(usuarioRepository, "Lote", BigDecimal.ZERO);
+
+        assertThatThrownBy(() -> transacaoService.transferenciaEmLote(remetente, List.of(
+                perna(abaixo.getId(), "10.00"),
+                perna(acima.getId(), "20.00"))))
+                .isInstanceOf(SaldoInsuficienteException.class);
+
+        assertThat(usuarioRepository.buscarSaldo(remetente.getId()).orElseThrow()).isEqualByComparingTo("25.00");
+        assertThat(usuarioRepository.buscarSaldo(abaixo.getId()).orElseThrow()).isEqualByComparingTo("0.00");
+        assertThat(usuarioRepository.buscarSaldo(acima.getId()).orElseThrow()).isEqualByComparingTo("0.00");
+        assertThat(transacaoRepository.findByUsuarioAndTipo(remetente, TipoTransacao.TRANSFERENCIA)).isEmpty();
+    }
+
+    @Test
+    void creditosAbaixoDoRemetenteVemAntesDoDebitoEOsAcimaDepois() {
+        Usuario abaixo = UsuariosDeTeste.criar(usuarioRepository, "Lote", BigDecimal.ZERO);
+        Usuario remetente = UsuariosDeTeste.criar(usuarioRepository, "Lote", new BigDecimal("50.00"));
+        Usuario acima = UsuariosDeTeste.criar(usuarioRepository, "Lote", BigDecimal.ZERO);
+        clearInvocations(usuarioService);
+
+        transacaoService.transferenciaEmLote(remetente, List.of(
+                perna(acima.getId(), "20.00"),
+                perna(abaixo.getId(), "10.00"),
+                perna(abaixo.getId(), "5.00")));
+
+        InOrder ordem = inOrder(usuarioService);
+        ordem.verify(usuarioService).creditarSaldos(argThat(creditos -> creditos.keySet().equals(Set.of(abaixo.getId()))
+                && creditos.get(abaixo.getId()).compareTo(new BigDecimal("15.00")) == 0));
+        ordem.verify(usuarioService).atualizarSaldo(argThat(usuario -> usuario.getId().equals(remetente.getId())),
+                argThat(valor -> valor.compareTo(new BigDecimal("35.00")) == 0), eq(OperacaoSaldo.SUBTRACAO));
+        ordem.verify(usuarioService).creditarSaldos(argThat(creditos -> creditos.keySet().equals(Set.of(acima.getId()))));
+        assertThat(usuarioRepository.buscarSaldo(remetente.getId()).orElseThrow()).isEqualByComparingTo("15.00");
+    }
+
+    private TransacaoDTOIn perna(Long destinatarioId, String valor) {
+        TransacaoDTOIn perna = new TransacaoDTOIn();
+        perna.setDestinatarioId(destinatarioId);
+        perna.setValor(valor == null ? null : new BigDecimal(valor));
+        return perna;
+    }
+}
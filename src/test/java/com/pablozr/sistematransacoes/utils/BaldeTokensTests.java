@@ -0,0 +1,81 @@
+package com.pablozr.sistematransacoes.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BaldeTokensTests {
+
+    private static final long SEGUNDO = 1_000_000_000L;
+
+    @Test
+    void rajadaVaiAteACapacidadeEOProximoEsperaUmIntervalo() {
+        BaldeTokens balde = new BaldeTokens(5, 1, 0);
+
+        for (long restantes = 4; restantes >= 0; restantes--) {
+            assertThat(balde.tentarConsumir(0)).isEqualTo(restantes);
+        }
+        assertThat(balde.tentarConsumir(0)).isEqualTo(-SEGUNDO);
+        assertThat(balde.nanosAteCheio(0)).isEqualTo(5 * SEGUNDO);
+    }
+
+    @Test
+    void tokensVoltamNoRitmoDaReposicaoSemPassarDaCapacidade() {
+        BaldeTokens balde = new BaldeTokens(2, 4, 0);
+        long intervalo = SEGUNDO / 4;
+        balde.tentarConsumir(0);
+        balde.tentarConsumir(0);
+
+        // Faltando um quarto do intervalo, a espera informada é esse quarto
+        assertThat(balde.tentarConsumir(intervalo * 3 / 4)).isEqualTo(-(intervalo / 4));
+        assertThat(balde.tentarConsumir(intervalo)).isZero();
+        assertThat(balde.tentarConsumir(intervalo)).isNegative();
+
+        // Parado muito além do necessário para encher, volta só à capacidade
+        long depois = 100 * SEGUNDO;
+        assertThat(balde.nanosAteCheio(depois)).isZero();
+        assertThat(balde.tentarConsumir(depois)).isEqualTo(1);
+        assertThat(balde.tentarConsumir(depois)).isZero();
+        assertThat(balde.tentarConsumir(depois)).isNegative();
+    }
+
+    @Test
+    void consumidoresConcorrentesNuncaPassamDaCapacidade() throws Exception {
+        int capacidade = 100;
+        int threads = 16;
+        // Reposição desprezível: com o relógio parado só a capacidade pode ser consumida
+        BaldeTokens balde = new BaldeTokens(capacidade, 0.001, 0);
+        AtomicInteger aceitos = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> tarefas = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            tarefas.add(executor.submit(() -> {
+                largada.await();
+                for (int j = 0; j < 50; j++) {
+                    if (balde.tentarConsumir(SEGUNDO) >= 0) {
+                        aceitos.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> tarefa : tarefas) {
+            tarefa.get();
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(aceitos.get()).isEqualTo(capacidade);
+    }
+}